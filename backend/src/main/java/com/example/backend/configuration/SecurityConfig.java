@@ -23,7 +23,7 @@ import com.example.backend.entities.RoleName;
 public class SecurityConfig {
 
 
-    private final String[] PUBLIC_ENDPOINTS = {"/api/auth/token", "/api/auth/logout", "/api/auth/refresh", "/api/users/signup", "/api/payments/**", "/api/subscriptions/**", "/api/restaurants/paginated", "/api/staff/**",  "/api/packages/**", "/api/branches/**", "/api/public/**", "/api/public/tables/**", "/api/users/mail/**", "/api/users/forgetpass", "/api/orderlines/**", "/api/branch-menu-items/branch/**", "/api/branch-menu-items/guest/branch/**", "/api/menu-items/customization/**", "/api/order-items/**", "/api/orders/**", "/api/restaurants/{id}"};
+    private final String[] PUBLIC_ENDPOINTS = {"/api/auth/token", "/api/auth/logout", "/api/auth/refresh", "/api/users/signup", "/api/payments/**", "/api/subscriptions/**", "/api/restaurants/paginated", "/api/staff/**",  "/api/packages/**", "/api/branches/**", "/api/public/**", "/api/public/tables/**", "/api/users/mail/**", "/api/users/forgetpass", "/api/orderlines/**", "/api/branch-menu-items/branch/**", "/api/branch-menu-items/guest/branch/**", "/api/menu-items/customization/**", "/api/order-items/**", "/api/orders/**", "/api/restaurants/{id}", "/api/realtime/**"};
 
 
     @Value("${jwt.signer-key}")
@@ -39,6 +39,8 @@ public class SecurityConfig {
         httpSecurity.authorizeHttpRequests(request -> 
             request
                 .requestMatchers(HttpMethod.OPTIONS, "/**").permitAll() // allow preflight request in local
+                // rewrites stored totals of a whole branch, must be matched before the public /api/orders/**
+                .requestMatchers(HttpMethod.POST, "/api/orders/reconcile/**").hasAnyRole(RoleName.RESTAURANT_OWNER.name(), RoleName.BRANCH_MANAGER.name())
                 .requestMatchers(PUBLIC_ENDPOINTS).permitAll()
                 
                 // User API
@@ -61,6 +63,8 @@ public class SecurityConfig {
                 .requestMatchers("/api/owner/areas/**").hasAnyRole(RoleName.RESTAURANT_OWNER.name(), RoleName.BRANCH_MANAGER.name())
 
                 .requestMatchers("/actuator/health").permitAll()
+                // metrics and prometheus expose per node traffic and internals, scrapers authenticate with an admin token
+                .requestMatchers("/actuator/**").hasAnyRole(RoleName.ADMIN.name())
                 .requestMatchers("/api/**").authenticated()
                 .anyRequest().permitAll());
 
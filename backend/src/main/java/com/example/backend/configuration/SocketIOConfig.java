@@ -1,20 +1,55 @@
 package com.example.backend.configuration;
 
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 
+import com.corundumstudio.socketio.SocketConfig;
 import com.corundumstudio.socketio.SocketIOServer;
+import com.example.backend.service.RoomEventPublisher;
 
 @Configuration
 public class SocketIOConfig {
 
+    // 0 threads keeps the netty default (2 x cores for workers), -1 buffer sizes keep the OS default
+    // socketio.enabled=false leaves realtime to the SSE endpoints on the HTTP port
     @Bean
-    public SocketIOServer socketIOServer() {
+    @ConditionalOnProperty(name = "socketio.enabled", havingValue = "true", matchIfMissing = true)
+    public SocketIOServer socketIOServer(@Value("${socketio.port}") int port,
+                                         @Value("${socketio.boss-threads}") int bossThreads,
+                                         @Value("${socketio.worker-threads}") int workerThreads,
+                                         @Value("${socketio.use-linux-native-epoll}") boolean useLinuxNativeEpoll,
+                                         @Value("${socketio.max-frame-payload-length}") int maxFramePayloadLength,
+                                         @Value("${socketio.tcp-send-buffer-size}") int tcpSendBufferSize,
+                                         @Value("${socketio.tcp-receive-buffer-size}") int tcpReceiveBufferSize) {
         com.corundumstudio.socketio.Configuration configuration = new com.corundumstudio.socketio.Configuration();
         configuration.setHostname("0.0.0.0");
-        configuration.setPort(8099);
+        configuration.setPort(port);
         configuration.setOrigin("*");
+        configuration.setBossThreads(bossThreads);
+        configuration.setWorkerThreads(workerThreads);
+        configuration.setUseLinuxNativeEpoll(useLinuxNativeEpoll);
+        configuration.setMaxFramePayloadLength(maxFramePayloadLength);
+        SocketConfig socketConfig = new SocketConfig();
+        socketConfig.setTcpNoDelay(true);
+        socketConfig.setTcpSendBufferSize(tcpSendBufferSize);
+        socketConfig.setTcpReceiveBufferSize(tcpReceiveBufferSize);
+        configuration.setSocketConfig(socketConfig);
         return new SocketIOServer(configuration);
     }
+
+    // clustered mode: room events published by the other nodes are delivered to the clients of this one
+    @Bean
+    @ConditionalOnProperty(name = "socketio.cluster.enabled", havingValue = "true")
+    public RedisMessageListenerContainer roomEventListenerContainer(RedisConnectionFactory factory, RoomEventPublisher roomEventPublisher) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(factory);
+        container.addMessageListener(roomEventPublisher, new ChannelTopic(RoomEventPublisher.CHANNEL));
+        return container;
+    }
     
 }
\ No newline at end of file
@@ -0,0 +1,57 @@
+package com.example.backend.controller;
+
+import com.example.backend.dto.ApiResponse;
+import com.example.backend.dto.BillDTO;
+import com.example.backend.dto.request.CheckoutRequest;
+import com.example.backend.service.BillService;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+@RestController
+@RequestMapping("/api/bills")
+public class BillController {
+
+    private final BillService billService;
+
+    public BillController(BillService billService) {
+        this.billService = billService;
+    }
+
+    // finalize the order, create its bill and free the table
+    @PostMapping("/checkout")
+    public ApiResponse<BillDTO> checkout(@RequestBody CheckoutRequest request) {
+        ApiResponse<BillDTO> apiResponse = new ApiResponse<>();
+        apiResponse.setResult(billService.checkout(request));
+        return apiResponse;
+    }
+
+    @GetMapping("/order/{orderId}")
+    public ApiResponse<BillDTO> getBillByOrder(@PathVariable UUID orderId) {
+        ApiResponse<BillDTO> apiResponse = new ApiResponse<>();
+        apiResponse.setResult(billService.getBillByOrder(orderId));
+        return apiResponse;
+    }
+
+    // default: bills of today
+    @GetMapping("/branch/{branchId}")
+    public ApiResponse<List<BillDTO>> getBillsByBranch(@PathVariable UUID branchId,
+                                                       @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date) {
+        ApiResponse<List<BillDTO>> apiResponse = new ApiResponse<>();
+        apiResponse.setResult(billService.getBillsByBranch(branchId, date != null ? date : LocalDate.now(ZoneId.of("Asia/Ho_Chi_Minh"))));
+        return apiResponse;
+    }
+
+    @GetMapping("/branch/{branchId}/cash-up")
+    public ApiResponse<List<Map<String, Object>>> getCashUp(@PathVariable UUID branchId,
+                                                            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date) {
+        ApiResponse<List<Map<String, Object>>> apiResponse = new ApiResponse<>();
+        apiResponse.setResult(billService.getCashUp(branchId, date != null ? date : LocalDate.now(ZoneId.of("Asia/Ho_Chi_Minh"))));
+        return apiResponse;
+    }
+}
@@ -2,12 +2,17 @@ package com.example.backend.controller;
 
 import com.example.backend.dto.ApiResponse;
 import com.example.backend.dto.OrderDTO;
+import com.example.backend.dto.OrderTotalDriftDTO;
 import com.example.backend.dto.request.UpdateOrderStatusRequest;
 import com.example.backend.dto.response.UpdateOrderStatusResponse;
 import com.example.backend.entities.OrderStatus;
+import com.example.backend.service.GuestTableTokenService;
 import com.example.backend.service.OrderService;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.LocalDate;
+import java.time.ZoneId;
 import java.util.List;
 import java.util.UUID;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -22,9 +27,11 @@ import org.springframework.web.bind.annotation.PathVariable;
 public class OrderController {
 
     private final OrderService orderService;
+    private final GuestTableTokenService guestTableTokenService;
 
-    public OrderController(OrderService orderService) {
+    public OrderController(OrderService orderService, GuestTableTokenService guestTableTokenService) {
         this.orderService = orderService;
+        this.guestTableTokenService = guestTableTokenService;
     }
 
     @GetMapping("/eating/{branchId}")
@@ -48,6 +55,16 @@ public class OrderController {
         return apiResponse;
     }
 
+    // guests connect to the socket with the guest token of their QR scan and this orderId to follow their orderLines live
+    @GetMapping("/open/{areaTableId}")
+    public ApiResponse<UUID> getOpenOrderId(@PathVariable UUID areaTableId,
+                                            @RequestHeader(value = "Guest-Token", required = false) String guestToken) {
+        guestTableTokenService.verify(guestToken, areaTableId);
+        ApiResponse<UUID> apiResponse = new ApiResponse<>();
+        apiResponse.setResult(orderService.getOpenOrderId(areaTableId));
+        return apiResponse;
+    }
+
     @PutMapping("")
     public ApiResponse<UpdateOrderStatusResponse> setOrderStatus(@RequestBody UpdateOrderStatusRequest request) {
         ApiResponse<UpdateOrderStatusResponse> apiResponse = new ApiResponse<>();
@@ -55,4 +72,14 @@ public class OrderController {
         return apiResponse;
     }
 
-}
\ No newline at end of file
+    // recompute stored totals of the branch (default: orders of today) and report the drifted ones
+    @PostMapping("/reconcile/{branchId}")
+    public ApiResponse<List<OrderTotalDriftDTO>> reconcileTotals(@PathVariable UUID branchId,
+                                                                 @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from) {
+        ApiResponse<List<OrderTotalDriftDTO>> apiResponse = new ApiResponse<>();
+        LocalDate fromDate = from != null ? from : LocalDate.now(ZoneId.of("Asia/Ho_Chi_Minh"));
+        apiResponse.setResult(orderService.reconcileTotals(branchId, fromDate));
+        return apiResponse;
+    }
+
+}
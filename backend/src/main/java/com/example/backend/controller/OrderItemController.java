@@ -2,6 +2,8 @@ package com.example.backend.controller;
 
 import com.example.backend.dto.ApiResponse;
 import com.example.backend.dto.OrderItemDTO;
+import com.example.backend.dto.OrderLineDTO;
+import com.example.backend.dto.request.UpdateOrderLineItemsRequest;
 import com.example.backend.service.OrderItemService;
 import org.springframework.web.bind.annotation.*;
 
@@ -28,6 +30,14 @@ public class OrderItemController {
         return apiResponse;
     }
     
+    // all changes of one orderLine at once, waiters receive a single update_orderLine event
+    @PutMapping("/batch")
+    public ApiResponse<OrderLineDTO> updateOrderItems(@RequestBody UpdateOrderLineItemsRequest request) {
+        ApiResponse<OrderLineDTO> apiResponse = new ApiResponse<>();
+        apiResponse.setResult(orderItemService.updateOrderItems(request));
+        return apiResponse;
+    }
+    
     @DeleteMapping("/{orderItemId}")
     public ApiResponse<Boolean> deleteOrderItem(@PathVariable UUID orderItemId) {
         ApiResponse<Boolean> apiResponse = new ApiResponse<>();
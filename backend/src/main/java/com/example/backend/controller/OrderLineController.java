@@ -6,6 +6,8 @@ import com.example.backend.dto.request.CreateOrderLineRequest;
 import com.example.backend.dto.request.UpdateOrderLineStatusRequest;
 import com.example.backend.dto.response.UpdateOrderLineStatusResponse;
 import com.example.backend.entities.OrderLineStatus;
+import com.example.backend.service.IdempotencyService;
+import com.example.backend.service.OrderLinePipelineService;
 import com.example.backend.service.OrderLineService;
 
 import java.util.List;
@@ -18,16 +20,34 @@ import org.springframework.web.bind.annotation.*;
 @RequestMapping("/api/orderlines")
 public class OrderLineController {
 
+    private static final String CREATE_ORDERLINE_SCOPE = "orderline:create";
+
     private final OrderLineService orderLineService;
+    private final OrderLinePipelineService orderLinePipelineService;
+    private final IdempotencyService idempotencyService;
 
-    public OrderLineController(OrderLineService orderLineService) {
+    public OrderLineController(OrderLineService orderLineService,
+                               OrderLinePipelineService orderLinePipelineService,
+                               IdempotencyService idempotencyService) {
         this.orderLineService = orderLineService;
+        this.orderLinePipelineService = orderLinePipelineService;
+        this.idempotencyService = idempotencyService;
     }
 
+    // guests retry on flaky connections: the same Idempotency-Key returns the first result instead of a new orderLine
     @PostMapping("")
-    public ApiResponse<Boolean> createOrderLine(@RequestBody CreateOrderLineRequest createOrderLineRequest) {
+    public ApiResponse<Boolean> createOrderLine(@RequestBody CreateOrderLineRequest createOrderLineRequest,
+                                                @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey) {
         ApiResponse<Boolean> apiResponse = new ApiResponse<>();
-        apiResponse.setResult(orderLineService.createOrderLine(createOrderLineRequest));
+        apiResponse.setResult(idempotencyService.executeOnce(CREATE_ORDERLINE_SCOPE, createOrderLineRequest.getAreaTableId(), idempotencyKey,
+                createOrderLineRequest, Boolean.class, () -> orderLinePipelineService.createOrderLine(createOrderLineRequest)));
+        return apiResponse;
+    }
+
+    @GetMapping("/price-book-version/{areaTableId}")
+    public ApiResponse<Long> getPriceBookVersion(@PathVariable UUID areaTableId) {
+        ApiResponse<Long> apiResponse = new ApiResponse<>();
+        apiResponse.setResult(orderLineService.getPriceBookVersion(areaTableId));
         return apiResponse;
     }
 
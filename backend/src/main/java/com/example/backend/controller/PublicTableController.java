@@ -12,6 +12,7 @@ import org.springframework.web.bind.annotation.RestController;
 
 import com.example.backend.dto.ApiResponse;
 import com.example.backend.dto.response.TableResponse;
+import com.example.backend.service.GuestTableTokenService;
 import com.example.backend.service.TableService;
 
 @RestController
@@ -20,9 +21,11 @@ public class PublicTableController {
 
     private static final Logger logger = LoggerFactory.getLogger(PublicTableController.class);
     private final TableService tableService;
+    private final GuestTableTokenService guestTableTokenService;
 
-    public PublicTableController(TableService tableService) {
+    public PublicTableController(TableService tableService, GuestTableTokenService guestTableTokenService) {
         this.tableService = tableService;
+        this.guestTableTokenService = guestTableTokenService;
     }
 
     // Public endpoint for guest access with branchId and tableId:
@@ -56,6 +59,8 @@ public class PublicTableController {
             
             logger.debug("Parsed UUIDs - branchId: {}, tableId: {}", branchUUID, tableUUID);
             TableResponse tableResponse = tableService.getTableByBranchIdAndTableId(branchUUID, tableUUID);
+            // the scan is what lets the guest look up and follow the open order of this table
+            tableResponse.setGuestToken(guestTableTokenService.issue(tableUUID));
             res.setResult(tableResponse);
             logger.debug("Successfully retrieved table: {}", tableResponse.getId());
             
@@ -0,0 +1,64 @@
+package com.example.backend.controller;
+
+import java.util.UUID;
+
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import com.example.backend.exception.AppException;
+import com.example.backend.exception.ErrorCode;
+import com.example.backend.service.BranchService;
+import com.example.backend.service.GuestTableTokenService;
+import com.example.backend.service.OrderService;
+import com.example.backend.service.RoomEventPublisher;
+import com.example.backend.service.RoomEventStreamService;
+
+// Server-Sent Events twins of the socket.io rooms, served on the HTTP port
+@RestController
+@RequestMapping("/api/realtime")
+public class RealtimeController {
+
+    private final RoomEventStreamService roomEventStreamService;
+    private final OrderService orderService;
+    private final GuestTableTokenService guestTableTokenService;
+    private final BranchService branchService;
+
+    public RealtimeController(RoomEventStreamService roomEventStreamService, OrderService orderService, GuestTableTokenService guestTableTokenService,
+                              BranchService branchService) {
+        this.roomEventStreamService = roomEventStreamService;
+        this.orderService = orderService;
+        this.guestTableTokenService = guestTableTokenService;
+        this.branchService = branchService;
+    }
+
+    // EventSource sends Last-Event-ID by itself on reconnect, lastSeq lets a new page resume from its snapshot
+    @GetMapping(value = "/branches/{branchId}", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamBranch(@PathVariable UUID branchId,
+                                   @RequestHeader(value = "Last-Event-ID", required = false) String lastEventId,
+                                   @RequestParam(required = false) String lastSeq) {
+        // the room is tagged with the branch id in the metrics, unknown branches must not create series
+        if (!branchService.exists(branchId))
+            throw new AppException(ErrorCode.BRANCH_NOTEXISTED);
+        return roomEventStreamService.subscribe(branchId.toString(), lastEventId != null ? lastEventId : lastSeq);
+    }
+
+    // guests only get the stream of the open order of the table they scanned, like the socket.io table room
+    // EventSource cannot send headers, the guest token comes as a parameter
+    @GetMapping(value = "/tables/{areaTableId}/orders/{orderId}", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamTable(@PathVariable UUID areaTableId,
+                                  @PathVariable UUID orderId,
+                                  @RequestParam(required = false) String guestToken,
+                                  @RequestHeader(value = "Last-Event-ID", required = false) String lastEventId,
+                                  @RequestParam(required = false) String lastSeq) {
+        guestTableTokenService.verify(guestToken, areaTableId);
+        if (!orderService.isOpenOrder(areaTableId, orderId))
+            throw new AppException(ErrorCode.ORDER_NOT_EXISTS);
+        return roomEventStreamService.subscribe(RoomEventPublisher.getTableRoom(areaTableId, orderId), lastEventId != null ? lastEventId : lastSeq);
+    }
+}
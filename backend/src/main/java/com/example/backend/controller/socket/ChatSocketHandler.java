@@ -1,39 +1,142 @@
 package com.example.backend.controller.socket;
 
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Component;
 
 import com.corundumstudio.socketio.SocketIOServer;
 import com.corundumstudio.socketio.annotation.OnConnect;
 import com.corundumstudio.socketio.annotation.OnDisconnect;
 import com.corundumstudio.socketio.annotation.OnEvent;
+import com.example.backend.exception.AppException;
+import com.example.backend.service.BranchService;
+import com.example.backend.service.GuestTableTokenService;
+import com.example.backend.service.OrderService;
+import com.example.backend.service.RoomEventLog;
+import com.example.backend.service.RoomEventLog.RoomEvent;
+import com.example.backend.service.RoomEventPublisher;
+import com.example.backend.service.RoomFrameEncoder;
+import com.example.backend.service.SocketClientOutbox;
 
 @Component
+@ConditionalOnProperty(name = "socketio.enabled", havingValue = "true", matchIfMissing = true)
 public class ChatSocketHandler {
 
+    private final Logger logger = LoggerFactory.getLogger(ChatSocketHandler.class);
     private final SocketIOServer server;
+    private final RoomEventLog roomEventLog;
+    private final SocketClientOutbox socketClientOutbox;
+    private final OrderService orderService;
+    private final GuestTableTokenService guestTableTokenService;
+    private final BranchService branchService;
 
-    public ChatSocketHandler(SocketIOServer server) {
+    public ChatSocketHandler(SocketIOServer server, RoomEventLog roomEventLog, SocketClientOutbox socketClientOutbox, OrderService orderService,
+                             GuestTableTokenService guestTableTokenService, BranchService branchService) {
         this.server = server;
+        this.roomEventLog = roomEventLog;
+        this.socketClientOutbox = socketClientOutbox;
+        this.orderService = orderService;
+        this.guestTableTokenService = guestTableTokenService;
+        this.branchService = branchService;
     }
 
     @OnConnect
     public void onConnect(com.corundumstudio.socketio.SocketIOClient client) {
-        System.out.println("Client connected: " + client.getSessionId());
+        logger.debug("Client connected: " + client.getSessionId());
         String branchId = client.getHandshakeData().getSingleUrlParam("branchId");
         if (branchId != null) {
-            client.joinRoom(branchId);
-            System.out.println("Client joined room with branchId: " + branchId);
+            // the room is tagged with the branch id in the metrics, unknown branches must not create series
+            if (!isBranch(branchId)) {
+                client.disconnect();
+                return;
+            }
+            // clients asking for the compact encoding join the compact room of the branch, the others keep receiving JSON
+            boolean compact = RoomFrameEncoder.ENCODING.equals(client.getHandshakeData().getSingleUrlParam("encoding"));
+            socketClientOutbox.register(client, branchId, compact, isAcking(client));
+            client.joinRoom(compact ? RoomEventPublisher.getCompactRoom(branchId) : branchId);
+            logger.debug("Client " + client.getSessionId() + " joined room of branch " + branchId);
+            resume(client, branchId, client.getHandshakeData().getSingleUrlParam("lastSeq"));
+            return;
+        }
+        String guestToken = client.getHandshakeData().getSingleUrlParam("guestToken");
+        String orderId = client.getHandshakeData().getSingleUrlParam("orderId");
+        if (guestToken != null && orderId != null)
+            joinTableRoom(client, guestToken, orderId);
+    }
+
+    private boolean isBranch(String branchId) {
+        try {
+            return branchService.exists(UUID.fromString(branchId));
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    // guests only get the room of the open order of the table they scanned, the table comes from their guest token
+    // a forged or expired token, a closed or foreign order is refused
+    private void joinTableRoom(com.corundumstudio.socketio.SocketIOClient client, String guestToken, String orderId) {
+        UUID tableId;
+        UUID openOrderId;
+        try {
+            tableId = guestTableTokenService.verify(guestToken);
+            openOrderId = UUID.fromString(orderId);
+        } catch (AppException | IllegalArgumentException e) {
+            client.disconnect();
+            return;
+        }
+        if (!orderService.isOpenOrder(tableId, openOrderId)) {
+            client.disconnect();
+            return;
+        }
+        String room = RoomEventPublisher.getTableRoom(tableId, openOrderId);
+        socketClientOutbox.register(client, room, false, isAcking(client));
+        client.joinRoom(room);
+        resume(client, room, client.getHandshakeData().getSingleUrlParam("lastSeq"));
+    }
+
+    // clients that do not announce acks are never held back nor disconnected for a missing acknowledgement
+    private boolean isAcking(com.corundumstudio.socketio.SocketIOClient client) {
+        return "1".equals(client.getHandshakeData().getSingleUrlParam(SocketClientOutbox.ACKS_PARAM));
+    }
+
+    // a reconnecting client sends the last sequence it applied and only gets the events it missed
+    // joined before replaying: an event sent meanwhile may arrive twice, clients skip sequences they already applied
+    private void resume(com.corundumstudio.socketio.SocketIOClient client, String room, String lastSeq) {
+        if (lastSeq == null || lastSeq.isBlank()) {
+            client.sendEvent("room_seq", Map.of("seq", roomEventLog.getCurrentSeq(room)));
+            return;
+        }
+        Optional<List<RoomEvent>> missed;
+        try {
+            missed = roomEventLog.getEventsSince(room, Long.parseLong(lastSeq));
+        } catch (NumberFormatException e) {
+            missed = Optional.empty();
+        }
+        if (missed.isPresent()) {
+            if (!missed.get().isEmpty())
+                // a replay goes to this client only, its outbox encodes it the way the client negotiated
+                socketClientOutbox.offer(client, missed.get(), null);
+        } else {
+            // the gap is larger than the log, the client reloads its snapshot and continues from this sequence
+            client.sendEvent(SocketClientOutbox.RESYNC_EVENT, Map.of("seq", roomEventLog.getCurrentSeq(room)));
         }
     }
 
     @OnDisconnect
     public void onDisconnect(com.corundumstudio.socketio.SocketIOClient client) {
-        System.out.println("Client disconnected: " + client.getSessionId());
+        logger.debug("Client disconnected: " + client.getSessionId());
+        socketClientOutbox.unregister(client);
     }
 
     @OnEvent("chat_message")
     public void onChatMessage(com.corundumstudio.socketio.SocketIOClient client, String data) {
-        System.out.println("Received: " + data);
+        logger.debug("Received: " + data);
         server.getBroadcastOperations().sendEvent("chat_message", "Server: " + data);
     }
 }
\ No newline at end of file
@@ -0,0 +1,44 @@
+package com.example.backend.controller.socket;
+
+import java.util.Collection;
+import java.util.List;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import com.corundumstudio.socketio.SocketIOClient;
+import com.corundumstudio.socketio.SocketIOServer;
+import com.example.backend.service.RoomEventListener;
+import com.example.backend.service.RoomEventLog.RoomEvent;
+import com.example.backend.service.RoomEventPublisher;
+import com.example.backend.service.RoomFrameEncoder;
+import com.example.backend.service.SocketClientOutbox;
+
+// socket.io side of the room frames: every client of the room gets the frame through its outbox
+@Component
+@ConditionalOnProperty(name = "socketio.enabled", havingValue = "true", matchIfMissing = true)
+public class SocketRoomEventListener implements RoomEventListener {
+
+    private final SocketIOServer socketIOServer;
+    private final RoomFrameEncoder roomFrameEncoder;
+    private final SocketClientOutbox socketClientOutbox;
+
+    public SocketRoomEventListener(SocketIOServer socketIOServer, RoomFrameEncoder roomFrameEncoder, SocketClientOutbox socketClientOutbox) {
+        this.socketIOServer = socketIOServer;
+        this.roomFrameEncoder = roomFrameEncoder;
+        this.socketClientOutbox = socketClientOutbox;
+    }
+
+    @Override
+    public void onRoomEvents(String room, List<RoomEvent> events) {
+        for (SocketIOClient client : socketIOServer.getRoomOperations(room).getClients())
+            socketClientOutbox.offer(client, events, null);
+        Collection<SocketIOClient> compactClients = socketIOServer.getRoomOperations(RoomEventPublisher.getCompactRoom(room)).getClients();
+        if (compactClients.isEmpty())
+            return;
+        // encoded once, only clients with a backlog encode their own merged frame later
+        byte[] encoded = roomFrameEncoder.encode(events);
+        for (SocketIOClient client : compactClients)
+            socketClientOutbox.offer(client, events, encoded);
+    }
+}
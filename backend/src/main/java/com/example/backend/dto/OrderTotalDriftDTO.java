@@ -0,0 +1,65 @@
+package com.example.backend.dto;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+// one stored total that did not match the total recomputed from its rows
+public class OrderTotalDriftDTO {
+    // ORDER or ORDER_LINE
+    private String scope;
+    private UUID orderId;
+    private UUID orderLineId;
+    private BigDecimal storedTotal;
+    private BigDecimal computedTotal;
+
+    public OrderTotalDriftDTO() {
+    }
+
+    public OrderTotalDriftDTO(String scope, UUID orderId, UUID orderLineId, BigDecimal storedTotal, BigDecimal computedTotal) {
+        this.scope = scope;
+        this.orderId = orderId;
+        this.orderLineId = orderLineId;
+        this.storedTotal = storedTotal;
+        this.computedTotal = computedTotal;
+    }
+
+    public String getScope() {
+        return scope;
+    }
+
+    public void setScope(String scope) {
+        this.scope = scope;
+    }
+
+    public UUID getOrderId() {
+        return orderId;
+    }
+
+    public void setOrderId(UUID orderId) {
+        this.orderId = orderId;
+    }
+
+    public UUID getOrderLineId() {
+        return orderLineId;
+    }
+
+    public void setOrderLineId(UUID orderLineId) {
+        this.orderLineId = orderLineId;
+    }
+
+    public BigDecimal getStoredTotal() {
+        return storedTotal;
+    }
+
+    public void setStoredTotal(BigDecimal storedTotal) {
+        this.storedTotal = storedTotal;
+    }
+
+    public BigDecimal getComputedTotal() {
+        return computedTotal;
+    }
+
+    public void setComputedTotal(BigDecimal computedTotal) {
+        this.computedTotal = computedTotal;
+    }
+}
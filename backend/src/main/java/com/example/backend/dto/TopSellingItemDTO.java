@@ -6,13 +6,14 @@ import java.util.UUID;
 public class TopSellingItemDTO {
     private UUID menuItemId;
     private String menuItemName;
-    private int quantitySold;
+    // null when the in-memory top sellers only know a part of it
+    private Integer quantitySold;
     private BigDecimal totalRevenue;
 
     public TopSellingItemDTO() {
     }
 
-    public TopSellingItemDTO(UUID menuItemId, String menuItemName, int quantitySold, BigDecimal totalRevenue) {
+    public TopSellingItemDTO(UUID menuItemId, String menuItemName, Integer quantitySold, BigDecimal totalRevenue) {
         this.menuItemId = menuItemId;
         this.menuItemName = menuItemName;
         this.quantitySold = quantitySold;
@@ -35,11 +36,11 @@ public class TopSellingItemDTO {
         this.menuItemName = menuItemName;
     }
 
-    public int getQuantitySold() {
+    public Integer getQuantitySold() {
         return quantitySold;
     }
 
-    public void setQuantitySold(int quantitySold) {
+    public void setQuantitySold(Integer quantitySold) {
         this.quantitySold = quantitySold;
     }
 
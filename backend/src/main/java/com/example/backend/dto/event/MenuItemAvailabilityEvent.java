@@ -0,0 +1,35 @@
+package com.example.backend.dto.event;
+
+import java.util.UUID;
+
+// "menuItem_availability" socket event sent to the branch room: a menu item was made available or unavailable in the branch
+public class MenuItemAvailabilityEvent {
+    public static final String NAME = "menuItem_availability";
+
+    private UUID menuItemId;
+    private boolean available;
+
+    public MenuItemAvailabilityEvent() {
+    }
+
+    public MenuItemAvailabilityEvent(UUID menuItemId, boolean available) {
+        this.menuItemId = menuItemId;
+        this.available = available;
+    }
+
+    public UUID getMenuItemId() {
+        return menuItemId;
+    }
+
+    public void setMenuItemId(UUID menuItemId) {
+        this.menuItemId = menuItemId;
+    }
+
+    public boolean isAvailable() {
+        return available;
+    }
+
+    public void setAvailable(boolean available) {
+        this.available = available;
+    }
+}
@@ -0,0 +1,38 @@
+package com.example.backend.dto.event;
+
+import com.example.backend.entities.OrderLineStatus;
+
+import java.util.UUID;
+
+// "orderLine_status" socket event sent to the branch room: current status of an orderLine (kitchen ticket)
+// it carries the state and not the transition, the events of an orderLine are merged into the latest on the way
+public class OrderLineStatusEvent {
+    public static final String NAME = "orderLine_status";
+
+    private UUID orderLineId;
+    private OrderLineStatus orderLineStatus;
+
+    public OrderLineStatusEvent() {
+    }
+
+    public OrderLineStatusEvent(UUID orderLineId, OrderLineStatus orderLineStatus) {
+        this.orderLineId = orderLineId;
+        this.orderLineStatus = orderLineStatus;
+    }
+
+    public UUID getOrderLineId() {
+        return orderLineId;
+    }
+
+    public void setOrderLineId(UUID orderLineId) {
+        this.orderLineId = orderLineId;
+    }
+
+    public OrderLineStatus getOrderLineStatus() {
+        return orderLineStatus;
+    }
+
+    public void setOrderLineStatus(OrderLineStatus orderLineStatus) {
+        this.orderLineStatus = orderLineStatus;
+    }
+}
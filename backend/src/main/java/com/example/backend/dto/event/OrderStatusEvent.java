@@ -0,0 +1,57 @@
+package com.example.backend.dto.event;
+
+import com.example.backend.entities.OrderStatus;
+
+import java.util.UUID;
+
+// "order_status" socket event sent to the branch room: status change of an order, COMPLETED once it is billed
+public class OrderStatusEvent {
+    public static final String NAME = "order_status";
+
+    private UUID orderId;
+    private UUID areaTableId;
+    private OrderStatus previousStatus;
+    private OrderStatus newStatus;
+
+    public OrderStatusEvent() {
+    }
+
+    public OrderStatusEvent(UUID orderId, UUID areaTableId, OrderStatus previousStatus, OrderStatus newStatus) {
+        this.orderId = orderId;
+        this.areaTableId = areaTableId;
+        this.previousStatus = previousStatus;
+        this.newStatus = newStatus;
+    }
+
+    public UUID getOrderId() {
+        return orderId;
+    }
+
+    public void setOrderId(UUID orderId) {
+        this.orderId = orderId;
+    }
+
+    public UUID getAreaTableId() {
+        return areaTableId;
+    }
+
+    public void setAreaTableId(UUID areaTableId) {
+        this.areaTableId = areaTableId;
+    }
+
+    public OrderStatus getPreviousStatus() {
+        return previousStatus;
+    }
+
+    public void setPreviousStatus(OrderStatus previousStatus) {
+        this.previousStatus = previousStatus;
+    }
+
+    public OrderStatus getNewStatus() {
+        return newStatus;
+    }
+
+    public void setNewStatus(OrderStatus newStatus) {
+        this.newStatus = newStatus;
+    }
+}
@@ -0,0 +1,47 @@
+package com.example.backend.dto.event;
+
+import com.example.backend.entities.TableStatus;
+
+import java.util.UUID;
+
+// "table_status" socket event sent to the branch room: status change of a table of the branch
+public class TableStatusEvent {
+    public static final String NAME = "table_status";
+
+    private UUID areaTableId;
+    private String tag;
+    private TableStatus status;
+
+    public TableStatusEvent() {
+    }
+
+    public TableStatusEvent(UUID areaTableId, String tag, TableStatus status) {
+        this.areaTableId = areaTableId;
+        this.tag = tag;
+        this.status = status;
+    }
+
+    public UUID getAreaTableId() {
+        return areaTableId;
+    }
+
+    public void setAreaTableId(UUID areaTableId) {
+        this.areaTableId = areaTableId;
+    }
+
+    public String getTag() {
+        return tag;
+    }
+
+    public void setTag(String tag) {
+        this.tag = tag;
+    }
+
+    public TableStatus getStatus() {
+        return status;
+    }
+
+    public void setStatus(TableStatus status) {
+        this.status = status;
+    }
+}
@@ -0,0 +1,36 @@
+package com.example.backend.dto.request;
+
+import java.util.UUID;
+
+import com.example.backend.entities.PaymentMethod;
+
+public class CheckoutRequest {
+
+    private UUID orderId;
+    private PaymentMethod paymentMethod = PaymentMethod.CASH;
+    private String note;
+
+    public UUID getOrderId() {
+        return orderId;
+    }
+
+    public void setOrderId(UUID orderId) {
+        this.orderId = orderId;
+    }
+
+    public PaymentMethod getPaymentMethod() {
+        return paymentMethod;
+    }
+
+    public void setPaymentMethod(PaymentMethod paymentMethod) {
+        this.paymentMethod = paymentMethod;
+    }
+
+    public String getNote() {
+        return note;
+    }
+
+    public void setNote(String note) {
+        this.note = note;
+    }
+}
@@ -14,6 +14,8 @@ public class CreateOrderLineRequest {
     private OrderLineStatus orderLineStatus = OrderLineStatus.PENDING;
     private List<CreateOrderItemRequest> orderItems;
     private BigDecimal totalPrice;
+    // version of the price book the menu was shown with, optional; an outdated one rejects the order
+    private Long priceBookVersion;
 
     // public UUID getOrderId() {
     //     return orderId;
@@ -54,5 +56,13 @@ public class CreateOrderLineRequest {
     public void setAreaTableId(UUID areaTableId) {
         this.areaTableId = areaTableId;
     }
+
+    public Long getPriceBookVersion() {
+        return priceBookVersion;
+    }
+
+    public void setPriceBookVersion(Long priceBookVersion) {
+        this.priceBookVersion = priceBookVersion;
+    }
     
 }
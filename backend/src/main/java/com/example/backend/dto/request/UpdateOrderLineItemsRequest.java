@@ -0,0 +1,41 @@
+package com.example.backend.dto.request;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import com.example.backend.dto.OrderItemDTO;
+
+// every change a waiter makes on one orderLine, applied together by PUT /api/order-items/batch
+public class UpdateOrderLineItemsRequest {
+
+    private UUID orderLineId;
+    // edited orderItems, same shape as PUT /api/order-items: customization with quantity 0 is removed
+    private List<OrderItemDTO> orderItems = new ArrayList<>();
+    // soft deleted orderItems
+    private List<UUID> deletedOrderItemIds = new ArrayList<>();
+
+    public UUID getOrderLineId() {
+        return orderLineId;
+    }
+
+    public void setOrderLineId(UUID orderLineId) {
+        this.orderLineId = orderLineId;
+    }
+
+    public List<OrderItemDTO> getOrderItems() {
+        return orderItems;
+    }
+
+    public void setOrderItems(List<OrderItemDTO> orderItems) {
+        this.orderItems = orderItems;
+    }
+
+    public List<UUID> getDeletedOrderItemIds() {
+        return deletedOrderItemIds;
+    }
+
+    public void setDeletedOrderItemIds(List<UUID> deletedOrderItemIds) {
+        this.deletedOrderItemIds = deletedOrderItemIds;
+    }
+}
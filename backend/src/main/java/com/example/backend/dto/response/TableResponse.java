@@ -11,6 +11,7 @@ public class TableResponse {
     private UUID areaId; // THÊM nếu cần
     private String areaName; // THÊM nếu cần
     private UUID branchId; // ADD for short URL support
+    private String guestToken; // only set for a QR scan, see GuestTableTokenService
 
     public TableResponse(UUID id, String tag, int capacity, TableStatus status,
             UUID areaId, String areaName) {
@@ -94,4 +95,12 @@ public class TableResponse {
     public void setBranchId(UUID branchId) {
         this.branchId = branchId;
     }
+
+    public String getGuestToken() {
+        return guestToken;
+    }
+
+    public void setGuestToken(String guestToken) {
+        this.guestToken = guestToken;
+    }
 }
\ No newline at end of file
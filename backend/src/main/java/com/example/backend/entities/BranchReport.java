@@ -46,7 +46,7 @@ public class BranchReport {
     @Column(name = "cancelled_order")
     private int cancelledOrder;
 
-    @Column(name = "total_revenue", precision = 10, scale = 2, nullable = false)
+    @Column(name = "total_revenue", precision = 18, scale = 2, nullable = false)
     private BigDecimal totalRevenue = BigDecimal.ZERO;
 
     public UUID getBranchReportId() {
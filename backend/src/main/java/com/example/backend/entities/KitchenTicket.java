@@ -0,0 +1,85 @@
+package com.example.backend.entities;
+
+import java.time.Instant;
+import java.util.UUID;
+
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
+
+import jakarta.persistence.*;
+
+// denormalized read model of an orderLine for the kitchen and waiter boards, written with the orderLine itself
+// payload is the OrderLineDTO served by the status endpoints, so reading it never touches order, table or items
+@Entity
+@Table(name = "kitchen_ticket")
+public class KitchenTicket {
+
+    @Id
+    @Column(name = "order_line_id", nullable = false)
+    private UUID orderLineId;
+
+    @Column(name = "branch_id", nullable = false)
+    private UUID branchId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status", nullable = false)
+    private OrderLineStatus status;
+
+    @JdbcTypeCode(SqlTypes.JSON)
+    @Column(name = "payload", nullable = false, columnDefinition = "jsonb")
+    private String payload;
+
+    @Column(name = "created_at", nullable = false)
+    private Instant createdAt;
+
+    @Column(name = "updated_at", nullable = false)
+    private Instant updatedAt;
+
+    public UUID getOrderLineId() {
+        return orderLineId;
+    }
+
+    public void setOrderLineId(UUID orderLineId) {
+        this.orderLineId = orderLineId;
+    }
+
+    public UUID getBranchId() {
+        return branchId;
+    }
+
+    public void setBranchId(UUID branchId) {
+        this.branchId = branchId;
+    }
+
+    public OrderLineStatus getStatus() {
+        return status;
+    }
+
+    public void setStatus(OrderLineStatus status) {
+        this.status = status;
+    }
+
+    public String getPayload() {
+        return payload;
+    }
+
+    public void setPayload(String payload) {
+        this.payload = payload;
+    }
+
+    public Instant getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(Instant createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public Instant getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(Instant updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+}
@@ -8,9 +8,12 @@ import java.util.UUID;
 
 import jakarta.persistence.*;
 import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.DynamicUpdate;
 import org.hibernate.annotations.UpdateTimestamp;
 
 @Entity
+// total_price is maintained with atomic increments, only write the columns that actually changed
+@DynamicUpdate
 @Table(name = "order_line")
 public class OrderLine {
 
@@ -49,10 +49,10 @@ public class RestaurantReport {
     @Column(name = "cancelled_order")
     private int cancelledOrder;
 
-    @Column(name = "total_revenue", precision = 10, scale = 2, nullable = false)
+    @Column(name = "total_revenue", precision = 18, scale = 2, nullable = false)
     private BigDecimal totalRevenue = BigDecimal.ZERO;
 
-    @Column(name = "avg_revenue", precision = 10, scale = 2, nullable = false)
+    @Column(name = "avg_revenue", precision = 18, scale = 2, nullable = false)
     private BigDecimal avgRevenue = BigDecimal.ZERO;
 
     public UUID getRestaurantReportId() {
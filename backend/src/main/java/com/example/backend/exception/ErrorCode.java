@@ -77,6 +77,14 @@ public enum ErrorCode {
     ORDER_ALREADY_COMPLETED(5004, "Order already completed", HttpStatus.BAD_REQUEST),
     ORDERITEM_NOT_EXISTS(5005, "OrderItem not exists", HttpStatus.NOT_FOUND),
     ORDERITEM_CUSTOMIZATION_NOT_EXISTS(5005, "OrderItemCustomization not exists", HttpStatus.NOT_FOUND),
+    IDEMPOTENT_REQUEST_IN_PROGRESS(5006, "A request with this Idempotency-Key is still being processed", HttpStatus.CONFLICT),
+    ORDER_PIPELINE_FULL(5007, "Too many orders at the moment, please try again", HttpStatus.SERVICE_UNAVAILABLE),
+    PRICE_BOOK_STALE(5008, "Menu prices have changed, please reload the menu", HttpStatus.CONFLICT),
+    BILL_NOT_FOUND(5009, "Bill not found", HttpStatus.NOT_FOUND),
+    OPEN_ORDER_CONFLICT(5010, "The table is being ordered from at the same time, please try again", HttpStatus.CONFLICT),
+    IDEMPOTENCY_KEY_REUSED(5011, "This Idempotency-Key was already used for a different request", HttpStatus.UNPROCESSABLE_ENTITY),
+    ORDER_PIPELINE_STOPPED(5012, "The server is restarting, please try again", HttpStatus.SERVICE_UNAVAILABLE),
+    GUEST_TABLE_TOKEN_INVALID(5013, "Please scan the QR code of your table again", HttpStatus.FORBIDDEN),
 
     // Reservation errors
     RESERVATION_NOT_FOUND(5001, "Reservation not found", HttpStatus.NOT_FOUND),
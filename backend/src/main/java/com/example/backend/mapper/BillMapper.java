@@ -8,8 +8,10 @@ import java.util.List;
 @Mapper(componentModel = "spring")
 public interface BillMapper {
 
-    // @Mapping(source = "order.orderId", target = "orderId")
-    // BillDTO toBillDTO(Bill bill);
+    @Mapping(source = "order.orderId", target = "orderId")
+    @Mapping(source = "branch.address", target = "branchAddress")
+    @Mapping(target = "paidDate", ignore = true)
+    BillDTO toBillDTO(Bill bill);
 
-    // List<BillDTO> toDtoList(List<Bill> bills);
+    List<BillDTO> toDtoList(List<Bill> bills);
 }
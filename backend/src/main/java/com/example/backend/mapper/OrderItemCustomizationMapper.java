@@ -2,6 +2,7 @@ package com.example.backend.mapper;
 
 import org.mapstruct.Mapper;
 import org.mapstruct.Mapping;
+import org.mapstruct.Named;
 
 import com.example.backend.dto.OrderItemCustomizationDTO;
 import com.example.backend.dto.request.CreateOrderItemCustomizationRequest;
@@ -15,6 +16,12 @@ public interface OrderItemCustomizationMapper {
     @Mapping(target = "customizationId", source = "customization.customizationId")
     OrderItemCustomizationDTO toOrderItemCustomizationDTO(OrderItemCustomization entity);
 
+    // customization is only a reference when priced from the price book, its name is filled by the caller
+    @Named("toPricedOrderItemCustomizationDTO")
+    @Mapping(target = "customizationName", ignore = true)
+    @Mapping(target = "customizationId", source = "customization.customizationId")
+    OrderItemCustomizationDTO toPricedOrderItemCustomizationDTO(OrderItemCustomization entity);
+
     @Mapping(target = "customization", ignore = true)
     @Mapping(target = "orderItem", ignore = true)
     OrderItemCustomization createOrderItemCustomization(CreateOrderItemCustomizationRequest createOrderItemCustomizationRequest);
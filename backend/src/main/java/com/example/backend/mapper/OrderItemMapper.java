@@ -13,6 +13,13 @@ public interface OrderItemMapper {
     @Mapping(target = "menuItemId", source = "menuItem.menuItemId")
     OrderItemDTO toOrderItemDTO(OrderItem orderItem);
 
+    // menuItem is only a reference when priced from the price book, its name is filled by the caller
+    @Named("toPricedOrderItemDTO")
+    @Mapping(target = "customizations", source = "orderItemCustomizations", qualifiedByName = "toPricedOrderItemCustomizationDTO")
+    @Mapping(target = "menuItemName", ignore = true)
+    @Mapping(target = "menuItemId", source = "menuItem.menuItemId")
+    OrderItemDTO toPricedOrderItemDTO(OrderItem orderItem);
+
     // manually handled in servcie
     @Mapping(target = "menuItem", ignore = true)
     @Mapping(target = "orderItemCustomizations", ignore = true)
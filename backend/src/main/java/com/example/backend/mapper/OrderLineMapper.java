@@ -2,6 +2,7 @@ package com.example.backend.mapper;
 
 import org.mapstruct.Mapper;
 import org.mapstruct.Mapping;
+import org.mapstruct.Named;
 
 import com.example.backend.dto.OrderLineDTO;
 import com.example.backend.entities.OrderLine;
@@ -13,4 +14,11 @@ public interface OrderLineMapper {
     @Mapping(target = "areaName", ignore = true)
     OrderLineDTO toOrderLineDTO(OrderLine orderLine);
 
+    // used right after a guest order is priced from the price book, see OrderLineService.persistOrderLine
+    @Named("toPricedOrderLineDTO")
+    @Mapping(target = "tableTag", ignore = true)
+    @Mapping(target = "areaName", ignore = true)
+    @Mapping(target = "orderItems", qualifiedByName = "toPricedOrderItemDTO")
+    OrderLineDTO toPricedOrderLineDTO(OrderLine orderLine);
+
 }
@@ -24,6 +24,7 @@ public interface TableMapper {
     @Mapping(source = "status", target = "status")
     @Mapping(source = "area.areaId", target = "areaId")
     @Mapping(source = "area.name", target = "areaName")
+    @Mapping(target = "guestToken", ignore = true) // chỉ PublicTableController set khi quét QR
     TableResponse toTableResponse(AreaTable table);
 
     /**
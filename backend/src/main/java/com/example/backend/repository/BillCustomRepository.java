@@ -0,0 +1,19 @@
+package com.example.backend.repository;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.UUID;
+
+import com.example.backend.dto.BillDTO;
+import com.example.backend.entities.PaymentMethod;
+
+public interface BillCustomRepository {
+
+    // the bill and the table it freed, for the socket events of the branch
+    // orderCreatedAt and itemsSold feed the live today's stats of the branch
+    record CheckoutResult(BillDTO bill, UUID branchId, UUID areaTableId, String tableTag, Instant orderCreatedAt, long itemsSold) {
+    }
+
+    Optional<CheckoutResult> checkout(UUID orderId, PaymentMethod paymentMethod, String note, LocalDateTime paidTime, Instant now);
+}
@@ -0,0 +1,90 @@
+package com.example.backend.repository;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import org.springframework.stereotype.Repository;
+
+import com.example.backend.dto.BillDTO;
+import com.example.backend.entities.PaymentMethod;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+
+@Repository
+public class BillCustomRepositoryImpl implements BillCustomRepository {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    /**
+     * Close an EATING order in one statement: mark it COMPLETED, bill its stored running total and free its table.
+     * Leaving the EATING status also releases uq_orders_open_per_table, so the next guest scan opens a new order.
+     * Only one concurrent checkout of the same order can match status = 'EATING', the others get an empty result.
+     */
+    @Override
+    public Optional<CheckoutResult> checkout(UUID orderId, PaymentMethod paymentMethod, String note, LocalDateTime paidTime, Instant now) {
+        String sql = """
+            WITH closed AS (
+                UPDATE orders o
+                SET status = 'COMPLETED', updated_at = :now
+                WHERE o.order_id = :orderId
+                  AND o.status = 'EATING'
+                RETURNING o.order_id, o.area_table_id, o.total_price, o.created_at
+            ),
+            located AS (
+                SELECT c.order_id, c.area_table_id, c.total_price, c.created_at, t.tag, a.branch_id, b.address
+                FROM closed c
+                JOIN area_table t ON t.area_table_id = c.area_table_id
+                JOIN area a ON a.area_id = t.area_id
+                JOIN branch b ON b.branch_id = a.branch_id
+            ),
+            freed AS (
+                UPDATE area_table t
+                SET status = 'FREE', updated_at = :now
+                FROM located l
+                WHERE t.area_table_id = l.area_table_id
+            ),
+            inserted AS (
+                INSERT INTO bill (bill_id, order_id, branch_id, final_price, created_at, updated_at, note, payment_method, paid_time)
+                SELECT gen_random_uuid(), l.order_id, l.branch_id, l.total_price, :now, :now, CAST(:note AS VARCHAR), :paymentMethod, :paidTime
+                FROM located l
+                RETURNING bill_id, order_id, final_price, note, payment_method, paid_time
+            )
+            SELECT i.bill_id, i.order_id, i.final_price, i.note, i.payment_method, i.paid_time, l.address,
+                   l.branch_id, l.area_table_id, l.tag, l.created_at,
+                   (SELECT COALESCE(SUM(oi.quantity), 0)
+                    FROM order_line ol
+                    JOIN order_item oi ON oi.order_line_id = ol.order_line_id
+                    WHERE ol.order_id = l.order_id)
+            FROM inserted i
+            JOIN located l ON l.order_id = i.order_id
+            """;
+
+        List<?> rows = entityManager.createNativeQuery(sql)
+                .setParameter("orderId", orderId)
+                .setParameter("paymentMethod", paymentMethod.name())
+                .setParameter("note", note)
+                .setParameter("paidTime", paidTime)
+                .setParameter("now", now)
+                .getResultList();
+        if (rows.isEmpty())
+            return Optional.empty();
+        Object[] row = (Object[]) rows.get(0);
+        BillDTO bill = new BillDTO();
+        bill.setBillId((UUID) row[0]);
+        bill.setOrderId((UUID) row[1]);
+        bill.setFinalPrice((BigDecimal) row[2]);
+        bill.setNote((String) row[3]);
+        bill.setPaymentMethod(PaymentMethod.valueOf((String) row[4]));
+        bill.setPaidTime(row[5] instanceof Timestamp timestamp ? timestamp.toLocalDateTime() : (LocalDateTime) row[5]);
+        bill.setBranchAddress((String) row[6]);
+        Instant orderCreatedAt = row[10] instanceof Timestamp timestamp ? timestamp.toInstant() : (Instant) row[10];
+        return Optional.of(new CheckoutResult(bill, (UUID) row[7], (UUID) row[8], (String) row[9], orderCreatedAt, ((Number) row[11]).longValue()));
+    }
+}
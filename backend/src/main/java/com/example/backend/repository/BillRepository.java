@@ -0,0 +1,46 @@
+package com.example.backend.repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import com.example.backend.entities.Bill;
+
+public interface BillRepository extends JpaRepository<Bill, UUID>, BillCustomRepository {
+
+    Optional<Bill> findByOrder_OrderId(UUID orderId);
+
+    /**
+     * Bills of a branch paid in [from, to), newest first. Served by idx_bill_branch_paid_time
+     */
+    @Query("""
+        SELECT b FROM Bill b
+        WHERE b.branch.branchId = :branchId
+          AND b.paidTime >= :from
+          AND b.paidTime < :to
+        ORDER BY b.paidTime DESC
+    """)
+    List<Bill> findAllByBranchAndPaidTime(@Param("branchId") UUID branchId,
+                                          @Param("from") LocalDateTime from,
+                                          @Param("to") LocalDateTime to);
+
+    /**
+     * Cash-up of a branch in [from, to): payment method, number of bills, total amount
+     */
+    @Query("""
+        SELECT b.paymentMethod, COUNT(b), COALESCE(SUM(b.finalPrice), 0)
+        FROM Bill b
+        WHERE b.branch.branchId = :branchId
+          AND b.paidTime >= :from
+          AND b.paidTime < :to
+        GROUP BY b.paymentMethod
+    """)
+    List<Object[]> sumByPaymentMethod(@Param("branchId") UUID branchId,
+                                      @Param("from") LocalDateTime from,
+                                      @Param("to") LocalDateTime to);
+}
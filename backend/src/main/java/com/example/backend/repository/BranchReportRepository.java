@@ -1,55 +1,22 @@
 package com.example.backend.repository;
 
 import com.example.backend.entities.BranchReport;
-import com.example.backend.entities.OrderStatus;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.math.BigDecimal;
 import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.UUID;
 
 @Repository
 public interface BranchReportRepository extends JpaRepository<BranchReport, UUID> {
 
-    // Query directly from orders table for branch analytics
-    @Query("""
-        SELECT COUNT(o) 
-        FROM Order o 
-        JOIN o.areaTable at 
-        JOIN at.area a 
-        WHERE a.branch.branchId = :branchId 
-        AND o.status = :status 
-        AND o.createdAt >= :startDate 
-        AND o.createdAt < :endDate
-        """)
-    int countOrdersByBranchAndStatusAndTimeframe(
-        @Param("branchId") UUID branchId,
-        @Param("status") OrderStatus status,
-        @Param("startDate") Instant startDate,
-        @Param("endDate") Instant endDate
-    );
-
-    @Query("""
-        SELECT COALESCE(SUM(o.totalPrice), 0) 
-        FROM Order o 
-        JOIN o.areaTable at 
-        JOIN at.area a 
-        WHERE a.branch.branchId = :branchId 
-        AND o.status = :status 
-        AND o.createdAt >= :startDate 
-        AND o.createdAt < :endDate
-        """)
-    BigDecimal sumRevenueByBranchAndTimeframe(
-        @Param("branchId") UUID branchId,
-        @Param("status") OrderStatus status,
-        @Param("startDate") Instant startDate,
-        @Param("endDate") Instant endDate
-    );
-
     // Query for restaurant-wide branch performance
     @Query(value = """
         SELECT 
@@ -74,69 +41,128 @@ public interface BranchReportRepository extends JpaRepository<BranchReport, UUID
         @Param("endDate") Instant endDate
     );
 
-    // Today's stats queries
-    @Query("""
-        SELECT COALESCE(SUM(o.totalPrice), 0) 
-        FROM Order o 
-        JOIN o.areaTable at 
-        JOIN at.area a 
-        WHERE a.branch.branchId = :branchId 
-        AND o.status = 'COMPLETED' 
-        AND o.createdAt >= :startDate 
-        AND o.createdAt < :endDate
-        """)
-    BigDecimal getTodayRevenue(
-        @Param("branchId") UUID branchId,
+    // totals of the live counters of BranchLiveStatsService, same filters as the per-branch today's stats queries it replaced
+    interface LiveTotals {
+        UUID getBranchId();
+        long getTotalOrders();
+        long getCompletedOrders();
+        BigDecimal getCompletedRevenue();
+        long getItemsSold();
+    }
+
+    /**
+     * Today's totals of several branches in one pass over their orders, the items sold are summed per order.
+     * Branches without any order in the timeframe have no row.
+     */
+    @Query(value = """
+        SELECT a.branch_id AS "branchId",
+               COUNT(o.order_id) AS "totalOrders",
+               COUNT(o.order_id) FILTER (WHERE o.status = 'COMPLETED') AS "completedOrders",
+               COALESCE(SUM(o.total_price) FILTER (WHERE o.status = 'COMPLETED'), 0) AS "completedRevenue",
+               COALESCE(SUM(items.quantity) FILTER (WHERE o.status = 'COMPLETED'), 0) AS "itemsSold"
+        FROM orders o
+        JOIN area_table at ON at.area_table_id = o.area_table_id
+        JOIN area a ON a.area_id = at.area_id
+        LEFT JOIN LATERAL (
+            SELECT SUM(oi.quantity) AS quantity
+            FROM order_line ol
+            JOIN order_item oi ON oi.order_line_id = ol.order_line_id
+            WHERE ol.order_id = o.order_id
+        ) items ON true
+        WHERE a.branch_id IN (:branchIds)
+          AND o.created_at >= :startDate
+          AND o.created_at < :endDate
+        GROUP BY a.branch_id
+        """, nativeQuery = true)
+    List<LiveTotals> getLiveTotals(
+        @Param("branchIds") Collection<UUID> branchIds,
         @Param("startDate") Instant startDate,
         @Param("endDate") Instant endDate
     );
 
-    @Query("""
-        SELECT COUNT(o) 
-        FROM Order o 
-        JOIN o.areaTable at 
-        JOIN at.area a 
-        WHERE a.branch.branchId = :branchId 
-        AND o.createdAt >= :startDate 
-        AND o.createdAt < :endDate
-        """)
-    int getTodayTotalOrders(
-        @Param("branchId") UUID branchId,
+    /**
+     * Write the DAY row of every active branch for one closed day, zero rows included so that
+     * the latest DAY row tells up to which day a branch is rolled up. Counts follow the filters of
+     * OrderRepository.aggregateOrdersByBranchAndTimeframe so rollups and raw deltas add up.
+     */
+    @Modifying
+    @Query(value = """
+        INSERT INTO branch_report (branch_report_id, branch_id, report_type, create_date,
+                                   total_order, completed_order, cancelled_order, total_revenue)
+        SELECT gen_random_uuid(), b.branch_id, 'DAY', :day,
+               COUNT(o.order_id),
+               COUNT(o.order_id) FILTER (WHERE o.status = 'COMPLETED'),
+               COUNT(o.order_id) FILTER (WHERE o.status = 'CANCELLED'),
+               COALESCE(SUM(o.total_price) FILTER (WHERE o.status = 'COMPLETED'), 0)
+        FROM branch b
+        LEFT JOIN area a ON a.branch_id = b.branch_id AND a.status = true
+        LEFT JOIN area_table t ON t.area_id = a.area_id
+        LEFT JOIN orders o ON o.area_table_id = t.area_table_id
+            AND o.created_at >= :startDate
+            AND o.created_at < :endDate
+        WHERE b.is_active = true
+        GROUP BY b.branch_id
+        ON CONFLICT (branch_id, report_type, create_date) DO UPDATE
+        SET total_order = EXCLUDED.total_order,
+            completed_order = EXCLUDED.completed_order,
+            cancelled_order = EXCLUDED.cancelled_order,
+            total_revenue = EXCLUDED.total_revenue
+        """, nativeQuery = true)
+    int rollUpDay(
+        @Param("day") LocalDateTime day,
         @Param("startDate") Instant startDate,
         @Param("endDate") Instant endDate
     );
 
-    @Query("""
-        SELECT COUNT(o) 
-        FROM Order o 
-        JOIN o.areaTable at 
-        JOIN at.area a 
-        WHERE a.branch.branchId = :branchId 
-        AND o.status = 'COMPLETED' 
-        AND o.createdAt >= :startDate 
-        AND o.createdAt < :endDate
-        """)
-    int getTodayCompletedOrders(
-        @Param("branchId") UUID branchId,
-        @Param("startDate") Instant startDate,
-        @Param("endDate") Instant endDate
+    /**
+     * Write the MONTH or YEAR row starting at periodStart from the DAY rows in [periodStart, periodEnd)
+     */
+    @Modifying
+    @Query(value = """
+        INSERT INTO branch_report (branch_report_id, branch_id, report_type, create_date,
+                                   total_order, completed_order, cancelled_order, total_revenue)
+        SELECT gen_random_uuid(), r.branch_id, :reportType, :periodStart,
+               SUM(r.total_order), SUM(r.completed_order), SUM(r.cancelled_order), SUM(r.total_revenue)
+        FROM branch_report r
+        WHERE r.report_type = 'DAY'
+        AND r.create_date >= :periodStart
+        AND r.create_date < :periodEnd
+        GROUP BY r.branch_id
+        ON CONFLICT (branch_id, report_type, create_date) DO UPDATE
+        SET total_order = EXCLUDED.total_order,
+            completed_order = EXCLUDED.completed_order,
+            cancelled_order = EXCLUDED.cancelled_order,
+            total_revenue = EXCLUDED.total_revenue
+        """, nativeQuery = true)
+    int rollUpPeriod(
+        @Param("reportType") String reportType,
+        @Param("periodStart") LocalDateTime periodStart,
+        @Param("periodEnd") LocalDateTime periodEnd
     );
 
-    @Query("""
-        SELECT COALESCE(SUM(oi.quantity), 0) 
-        FROM OrderItem oi 
-        JOIN oi.orderLine ol 
-        JOIN ol.order o 
-        JOIN o.areaTable at 
-        JOIN at.area a 
-        WHERE a.branch.branchId = :branchId 
-        AND o.status = 'COMPLETED' 
-        AND o.createdAt >= :startDate 
-        AND o.createdAt < :endDate
-        """)
-    int getTotalMenuItemsSold(
+    @Query(value = "SELECT MAX(create_date) FROM branch_report WHERE report_type = 'DAY'", nativeQuery = true)
+    LocalDateTime findLatestRolledUpDay();
+
+    @Query(value = "SELECT MAX(create_date) FROM branch_report WHERE branch_id = :branchId AND report_type = 'DAY'", nativeQuery = true)
+    LocalDateTime findLatestRolledUpDay(@Param("branchId") UUID branchId);
+
+    /**
+     * Totals of the DAY rows of a branch in [fromDay, toDay), orders still eating when the day was rolled up count as eating
+     */
+    @Query(value = """
+        SELECT COALESCE(SUM(r.total_order - r.completed_order - r.cancelled_order), 0) AS "eatingOrders",
+               COALESCE(SUM(r.completed_order), 0) AS "completedOrders",
+               COALESCE(SUM(r.cancelled_order), 0) AS "cancelledOrders",
+               COALESCE(SUM(r.total_revenue), 0) AS "completedRevenue"
+        FROM branch_report r
+        WHERE r.branch_id = :branchId
+        AND r.report_type = 'DAY'
+        AND r.create_date >= :fromDay
+        AND r.create_date < :toDay
+        """, nativeQuery = true)
+    OrderRepository.OrderTotals sumDays(
         @Param("branchId") UUID branchId,
-        @Param("startDate") Instant startDate,
-        @Param("endDate") Instant endDate
+        @Param("fromDay") LocalDateTime fromDay,
+        @Param("toDay") LocalDateTime toDay
     );
 }
@@ -2,6 +2,8 @@ package com.example.backend.repository;
 
 import com.example.backend.entities.Customization;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import java.util.List;
 import java.util.UUID;
@@ -11,4 +13,14 @@ public interface CustomizationRepository extends JpaRepository<Customization, UU
     long countByCategories_CategoryIdAndStatusTrue(UUID categoryId);
     List<Customization> findAllByCategories_CategoryIdAndStatusTrue(UUID categoryId);
 
+    /**
+     * Rows of the price book: customizationId, name, price, status
+     */
+    @Query("""
+            SELECT c.customizationId, c.name, c.price, c.status
+            FROM Customization c
+            WHERE c.restaurant.restaurantId = :restaurantId
+            """)
+    List<Object[]> findPriceRowsByRestaurantId(@Param("restaurantId") UUID restaurantId);
+
 }
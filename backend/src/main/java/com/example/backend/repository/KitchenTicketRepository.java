@@ -0,0 +1,77 @@
+package com.example.backend.repository;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import com.example.backend.entities.KitchenTicket;
+
+public interface KitchenTicketRepository extends JpaRepository<KitchenTicket, UUID> {
+
+    /**
+     * Insert the ticket of an orderLine or replace its content, created_at is kept from the first write
+     */
+    @Modifying
+    @Query(value = """
+        INSERT INTO kitchen_ticket (order_line_id, branch_id, status, payload, created_at, updated_at)
+        VALUES (:orderLineId, :branchId, :status, CAST(:payload AS jsonb), :createdAt, :now)
+        ON CONFLICT (order_line_id) DO UPDATE
+        SET status = EXCLUDED.status,
+            payload = EXCLUDED.payload,
+            updated_at = EXCLUDED.updated_at
+    """, nativeQuery = true)
+    int upsert(@Param("orderLineId") UUID orderLineId,
+               @Param("branchId") UUID branchId,
+               @Param("status") String status,
+               @Param("payload") String payload,
+               @Param("createdAt") Instant createdAt,
+               @Param("now") Instant now);
+
+    /**
+     * Move a ticket to another status without rebuilding its payload
+     */
+    @Modifying
+    @Query(value = """
+        UPDATE kitchen_ticket
+        SET status = :status,
+            payload = jsonb_set(payload, '{orderLineStatus}', to_jsonb(CAST(:status AS text))),
+            updated_at = :now
+        WHERE order_line_id = :orderLineId
+    """, nativeQuery = true)
+    int updateStatus(@Param("orderLineId") UUID orderLineId,
+                     @Param("status") String status,
+                     @Param("now") Instant now);
+
+    /**
+     * Payloads of a branch board, newest first. Served by idx_kitchen_ticket_branch_status_created
+     */
+    @Query(value = """
+        SELECT CAST(payload AS text)
+        FROM kitchen_ticket
+        WHERE branch_id = :branchId
+          AND status = :status
+          AND created_at >= :from
+          AND created_at < :to
+        ORDER BY created_at DESC
+    """, nativeQuery = true)
+    List<String> findPayloads(@Param("branchId") UUID branchId,
+                              @Param("status") String status,
+                              @Param("from") Instant from,
+                              @Param("to") Instant to);
+
+    /**
+     * OrderLines created since the given instant that have no ticket yet (written before the read model existed)
+     */
+    @Query(value = """
+        SELECT ol.order_line_id
+        FROM order_line ol
+        WHERE ol.created_at >= :from
+          AND NOT EXISTS (SELECT 1 FROM kitchen_ticket k WHERE k.order_line_id = ol.order_line_id)
+    """, nativeQuery = true)
+    List<UUID> findOrderLineIdsWithoutTicket(@Param("from") Instant from);
+}
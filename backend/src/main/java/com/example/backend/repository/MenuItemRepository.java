@@ -3,6 +3,8 @@ package com.example.backend.repository;
 import com.example.backend.entities.MenuItem;
 import com.example.backend.entities.MenuItemStatus;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import java.util.List;
 import java.util.UUID;
@@ -11,4 +13,15 @@ public interface MenuItemRepository extends JpaRepository<MenuItem, UUID> {
     List<MenuItem> findAllByRestaurant_RestaurantIdAndStatus(UUID restaurantId, MenuItemStatus status);
     List<MenuItem> findAllByRestaurant_RestaurantIdAndStatusIn(UUID restaurantId, List<MenuItemStatus> statuses);
     long countByRestaurant_RestaurantIdAndStatusNot(UUID restaurantId, MenuItemStatus status);
+
+    /**
+     * Rows of the price book: menuItemId, name, price, status (deleted items are left out)
+     */
+    @Query("""
+            SELECT m.menuItemId, m.name, m.price, m.status
+            FROM MenuItem m
+            WHERE m.restaurant.restaurantId = :restaurantId
+              AND m.status <> com.example.backend.entities.MenuItemStatus.DELETED
+            """)
+    List<Object[]> findPriceRowsByRestaurantId(@Param("restaurantId") UUID restaurantId);
 }
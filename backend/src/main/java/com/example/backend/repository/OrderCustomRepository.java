@@ -0,0 +1,17 @@
+package com.example.backend.repository;
+
+import com.example.backend.dto.OrderTotalDriftDTO;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+public interface OrderCustomRepository {
+    // created tells whether this call opened the order
+    record OpenOrder(UUID orderId, boolean created) {
+    }
+
+    Optional<OpenOrder> allocateOpenOrder(UUID areaTableId);
+    List<OrderTotalDriftDTO> reconcileTotals(UUID branchId, Instant from);
+}
@@ -0,0 +1,139 @@
+package com.example.backend.repository;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.stereotype.Repository;
+
+import com.example.backend.dto.OrderTotalDriftDTO;
+import com.example.backend.entities.AreaTable;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Query;
+
+@Repository
+public class OrderCustomRepositoryImpl implements OrderCustomRepository {
+
+    // a concurrent allocator can commit between our snapshot and our insert, one more attempt always sees it
+    private static final int MAX_ATTEMPTS = 3;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    /**
+     * Return the EATING order of the table, creating it if there is none.
+     * uq_orders_open_per_table guarantees a single open order per table, so concurrent scans
+     * of the same table end up on the same order without any application lock.
+     * Empty when the table does not exist, a ConcurrencyFailureException when every attempt lost the race,
+     * the caller can retry the whole request.
+     */
+    @Override
+    public Optional<OpenOrder> allocateOpenOrder(UUID areaTableId) {
+        String sql = """
+            WITH inserted AS (
+                INSERT INTO orders (order_id, area_table_id, status, total_price, created_at, updated_at)
+                SELECT gen_random_uuid(), t.area_table_id, 'EATING', 0, :now, :now
+                FROM area_table t
+                WHERE t.area_table_id = :areaTableId
+                ON CONFLICT (area_table_id) WHERE status = 'EATING' DO NOTHING
+                RETURNING order_id
+            )
+            SELECT order_id, true FROM inserted
+            UNION ALL
+            SELECT o.order_id, false
+            FROM orders o
+            WHERE o.area_table_id = :areaTableId
+              AND o.status = 'EATING'
+            LIMIT 1
+            """;
+
+        for (int attempt = 0; attempt < MAX_ATTEMPTS; attempt++) {
+            Query query = entityManager.createNativeQuery(sql)
+                    .setParameter("areaTableId", areaTableId)
+                    .setParameter("now", Instant.now());
+            List<?> result = query.getResultList();
+            if (!result.isEmpty()) {
+                Object[] row = (Object[]) result.get(0);
+                return Optional.of(new OpenOrder((UUID) row[0], (Boolean) row[1]));
+            }
+            // nothing inserted and nothing visible: either the table does not exist
+            // or the conflicting order was committed after this statement took its snapshot
+            if (entityManager.find(AreaTable.class, areaTableId) == null)
+                return Optional.empty();
+        }
+        throw new ConcurrencyFailureException("Open order of table " + areaTableId + " still contended after " + MAX_ATTEMPTS + " attempts");
+    }
+
+    /**
+     * Recompute order line and order totals of a branch from their items in one statement,
+     * write back the ones that drifted and return what was fixed.
+     * A line counts its active items, an order counts its non cancelled lines.
+     */
+    @Override
+    public List<OrderTotalDriftDTO> reconcileTotals(UUID branchId, Instant from) {
+        String sql = """
+            WITH branch_orders AS (
+                SELECT o.order_id, o.total_price
+                FROM orders o
+                JOIN area_table t ON t.area_table_id = o.area_table_id
+                JOIN area a ON a.area_id = t.area_id
+                WHERE a.branch_id = :branchId
+                  AND o.created_at >= :from
+            ),
+            line_totals AS (
+                SELECT ol.order_line_id, ol.order_id, ol.order_line_status, ol.total_price AS stored,
+                       COALESCE(SUM(oi.total_price) FILTER (WHERE oi.status), 0) AS computed
+                FROM order_line ol
+                JOIN branch_orders bo ON bo.order_id = ol.order_id
+                LEFT JOIN order_item oi ON oi.order_line_id = ol.order_line_id
+                GROUP BY ol.order_line_id, ol.order_id, ol.order_line_status, ol.total_price
+            ),
+            order_totals AS (
+                SELECT bo.order_id, bo.total_price AS stored,
+                       COALESCE(SUM(lt.computed) FILTER (WHERE lt.order_line_status IS DISTINCT FROM 'CANCELLED'), 0) AS computed
+                FROM branch_orders bo
+                LEFT JOIN line_totals lt ON lt.order_id = bo.order_id
+                GROUP BY bo.order_id, bo.total_price
+            ),
+            fixed_lines AS (
+                UPDATE order_line ol
+                SET total_price = lt.computed
+                FROM line_totals lt
+                WHERE ol.order_line_id = lt.order_line_id
+                  AND lt.stored <> lt.computed
+                RETURNING ol.order_id, ol.order_line_id, lt.stored, lt.computed
+            ),
+            fixed_orders AS (
+                UPDATE orders o
+                SET total_price = ot.computed
+                FROM order_totals ot
+                WHERE o.order_id = ot.order_id
+                  AND ot.stored <> ot.computed
+                RETURNING o.order_id, ot.stored, ot.computed
+            )
+            SELECT 'ORDER_LINE', order_id, order_line_id, stored, computed FROM fixed_lines
+            UNION ALL
+            SELECT 'ORDER', order_id, NULL, stored, computed FROM fixed_orders
+            """;
+
+        List<?> rows = entityManager.createNativeQuery(sql)
+                .setParameter("branchId", branchId)
+                .setParameter("from", from)
+                .getResultList();
+        return rows.stream()
+                .map(row -> (Object[]) row)
+                .map(row -> new OrderTotalDriftDTO(
+                        (String) row[0],
+                        (UUID) row[1],
+                        (UUID) row[2],
+                        (BigDecimal) row[3],
+                        (BigDecimal) row[4]))
+                .toList();
+    }
+
+}
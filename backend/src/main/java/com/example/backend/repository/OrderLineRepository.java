@@ -5,11 +5,14 @@ import com.example.backend.entities.OrderLine;
 import com.example.backend.entities.OrderLineStatus;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
+import java.math.BigDecimal;
 import java.time.Instant;
 import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
 
 public interface OrderLineRepository extends JpaRepository<OrderLine, UUID> {
@@ -30,4 +33,52 @@ public interface OrderLineRepository extends JpaRepository<OrderLine, UUID> {
             @Param("startOfDay") Instant startOfDay,
             @Param("endOfDay") Instant endOfDay
     );
+
+    /**
+     * OrderLine with its table, area, orderItems and customizations in one query, for a batch edit and its DTO
+     */
+    @Query("""
+        SELECT DISTINCT ol FROM OrderLine ol
+        JOIN FETCH ol.order o
+        JOIN FETCH o.areaTable t
+        JOIN FETCH t.area
+        LEFT JOIN FETCH ol.orderItems oi
+        LEFT JOIN FETCH oi.menuItem
+        LEFT JOIN FETCH oi.orderItemCustomizations oic
+        LEFT JOIN FETCH oic.customization
+        WHERE ol.orderLineId = :orderLineId
+    """)
+    Optional<OrderLine> findByIdWithOrderItems(@Param("orderLineId") UUID orderLineId);
+
+    /**
+     * Branch, table and order of an orderLine without loading them, to address its socket events
+     */
+    @Query("""
+        SELECT b.branchId AS branchId, t.areaTableId AS areaTableId, o.orderId AS orderId
+        FROM OrderLine ol
+        JOIN ol.order o
+        JOIN o.areaTable t
+        JOIN t.area a
+        JOIN a.branch b
+        WHERE ol.orderLineId = :orderLineId
+    """)
+    Optional<OrderLineOwner> findOwnerByOrderLineId(@Param("orderLineId") UUID orderLineId);
+
+    interface OrderLineOwner {
+        UUID getBranchId();
+
+        UUID getAreaTableId();
+
+        UUID getOrderId();
+    }
+
+    @Modifying
+    @Query("""
+        UPDATE OrderLine ol
+        SET ol.totalPrice = ol.totalPrice + :delta, ol.updatedAt = :now
+        WHERE ol.orderLineId = :orderLineId
+    """)
+    int addToTotalPrice(@Param("orderLineId") UUID orderLineId,
+                        @Param("delta") BigDecimal delta,
+                        @Param("now") Instant now);
 }
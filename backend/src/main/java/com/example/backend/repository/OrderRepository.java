@@ -1,10 +1,15 @@
 package com.example.backend.repository;
 
+import com.example.backend.dto.BranchAnalyticsDTO;
 import com.example.backend.dto.OrderDistributionDTO;
 import com.example.backend.dto.TopSellingItemDTO;
 import com.example.backend.entities.Order;
 import com.example.backend.entities.OrderStatus;
+import com.example.backend.entities.ReportType;
+import com.example.backend.utils.Money;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
@@ -14,7 +19,7 @@ import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
-public interface OrderRepository extends JpaRepository<Order, UUID> {
+public interface OrderRepository extends JpaRepository<Order, UUID>, OrderCustomRepository {
 
     @Query("""
         SELECT o
@@ -28,14 +33,76 @@ public interface OrderRepository extends JpaRepository<Order, UUID> {
     List<Order> findAllByBranchIdAndStatus(@Param("branchId") UUID branchId,
                                            @Param("status") OrderStatus status);
     Optional<Order> findTopByAreaTable_AreaTableIdAndStatusOrderByUpdatedAtDesc(UUID areaTableId, OrderStatus status);
+    boolean existsByAreaTable_AreaTableIdAndStatusAndOrderIdNot(UUID areaTableId, OrderStatus status, UUID orderId);
+    boolean existsByOrderIdAndAreaTable_AreaTableIdAndStatus(UUID orderId, UUID areaTableId, OrderStatus status);
+
+    /**
+     * Open (EATING) order of a table, at most one because of uq_orders_open_per_table
+     */
+    @Query("""
+        SELECT o.orderId FROM Order o
+        WHERE o.areaTable.areaTableId = :areaTableId
+        AND o.status = com.example.backend.entities.OrderStatus.EATING
+    """)
+    Optional<UUID> findOpenOrderIdByAreaTableId(@Param("areaTableId") UUID areaTableId);
+
+    // Running totals: applied as atomic increments so concurrent edits never lose an update
+
+    @Modifying
+    @Query("""
+        UPDATE Order o
+        SET o.totalPrice = o.totalPrice + :delta, o.updatedAt = :now
+        WHERE o.orderId = :orderId
+    """)
+    int addToTotalPrice(@Param("orderId") UUID orderId,
+                        @Param("delta") BigDecimal delta,
+                        @Param("now") Instant now);
+
+    /**
+     * Apply a delta of an order line to its order, ignored when the order line is cancelled
+     * because a cancelled order line is already removed from the order total
+     */
+    @Modifying
+    @Query("""
+        UPDATE Order o
+        SET o.totalPrice = o.totalPrice + :delta, o.updatedAt = :now
+        WHERE o.orderId IN (
+            SELECT ol.order.orderId
+            FROM OrderLine ol
+            WHERE ol.orderLineId = :orderLineId
+            AND ol.orderLineStatus <> com.example.backend.entities.OrderLineStatus.CANCELLED
+        )
+    """)
+    int addOrderLineDeltaToTotalPrice(@Param("orderLineId") UUID orderLineId,
+                                      @Param("delta") BigDecimal delta,
+                                      @Param("now") Instant now);
+
+    /**
+     * Add (sign = 1) or remove (sign = -1) the stored total of an order line from its order
+     */
+    @Modifying
+    @Query(value = """
+        UPDATE orders o
+        SET total_price = o.total_price + :sign * ol.total_price, updated_at = :now
+        FROM order_line ol
+        WHERE ol.order_line_id = :orderLineId
+        AND o.order_id = ol.order_id
+    """, nativeQuery = true)
+    int applyOrderLineTotal(@Param("orderLineId") UUID orderLineId,
+                            @Param("sign") int sign,
+                            @Param("now") Instant now);
 
     // Analytics query methods
 
     /**
-     * Count orders by branch, status, and timeframe
+     * Order counts per status and completed revenue of a branch in one pass over its orders of the timeframe.
+     * Orders of deactivated areas are left out, like the restaurant totals they add up to.
      */
     @Query("""
-        SELECT COUNT(o)
+        SELECT COUNT(o) FILTER (WHERE o.status = com.example.backend.entities.OrderStatus.EATING) AS eatingOrders,
+               COUNT(o) FILTER (WHERE o.status = com.example.backend.entities.OrderStatus.COMPLETED) AS completedOrders,
+               COUNT(o) FILTER (WHERE o.status = com.example.backend.entities.OrderStatus.CANCELLED) AS cancelledOrders,
+               COALESCE(SUM(o.totalPrice) FILTER (WHERE o.status = com.example.backend.entities.OrderStatus.COMPLETED), 0) AS completedRevenue
         FROM Order o
         JOIN o.areaTable at
         JOIN at.area a
@@ -43,43 +110,103 @@ public interface OrderRepository extends JpaRepository<Order, UUID> {
         WHERE b.branchId = :branchId
         AND b.isActive = true
         AND a.status = true
-        AND o.status = :status
         AND o.createdAt >= :startDate
         AND o.createdAt < :endDate
     """)
-    int countOrdersByBranchAndStatusAndTimeframe(
+    OrderTotals aggregateOrdersByBranchAndTimeframe(
             @Param("branchId") UUID branchId,
-            @Param("status") OrderStatus status,
             @Param("startDate") Instant startDate,
             @Param("endDate") Instant endDate
     );
 
     /**
-     * Calculate total revenue by branch and timeframe (COMPLETED orders only)
+     * Same totals over every active branch of a restaurant
      */
     @Query("""
-        SELECT COALESCE(SUM(o.totalPrice), 0)
+        SELECT COUNT(o) FILTER (WHERE o.status = com.example.backend.entities.OrderStatus.EATING) AS eatingOrders,
+               COUNT(o) FILTER (WHERE o.status = com.example.backend.entities.OrderStatus.COMPLETED) AS completedOrders,
+               COUNT(o) FILTER (WHERE o.status = com.example.backend.entities.OrderStatus.CANCELLED) AS cancelledOrders,
+               COALESCE(SUM(o.totalPrice) FILTER (WHERE o.status = com.example.backend.entities.OrderStatus.COMPLETED), 0) AS completedRevenue
         FROM Order o
         JOIN o.areaTable at
         JOIN at.area a
         JOIN a.branch b
-        WHERE b.branchId = :branchId
+        WHERE b.restaurant.restaurantId = :restaurantId
         AND b.isActive = true
         AND a.status = true
-        AND o.status = :status
         AND o.createdAt >= :startDate
         AND o.createdAt < :endDate
     """)
-    BigDecimal sumRevenueByBranchAndTimeframe(
-            @Param("branchId") UUID branchId,
-            @Param("status") OrderStatus status,
+    OrderTotals aggregateOrdersByRestaurantAndTimeframe(
+            @Param("restaurantId") UUID restaurantId,
             @Param("startDate") Instant startDate,
             @Param("endDate") Instant endDate
     );
 
+    /**
+     * First day with orders, where a rollup of an empty report table starts
+     */
+    @Query("SELECT MIN(o.createdAt) FROM Order o")
+    Instant findEarliestCreatedAt();
+
+    /**
+     * Menu items of an order, every item counted like the items sold of the today's stats
+     */
+    @Query("SELECT COALESCE(SUM(oi.quantity), 0) FROM OrderItem oi WHERE oi.orderLine.order.orderId = :orderId")
+    long sumItemQuantity(@Param("orderId") UUID orderId);
+
+    interface OrderTotals {
+        long getEatingOrders();
+
+        long getCompletedOrders();
+
+        long getCancelledOrders();
+
+        BigDecimal getCompletedRevenue();
+
+        // rolled up days plus the raw orders after them
+        default OrderTotals plus(OrderTotals other) {
+            long eatingOrders = getEatingOrders() + other.getEatingOrders();
+            long completedOrders = getCompletedOrders() + other.getCompletedOrders();
+            long cancelledOrders = getCancelledOrders() + other.getCancelledOrders();
+            BigDecimal completedRevenue = Money.of(getCompletedRevenue()).plus(Money.of(other.getCompletedRevenue())).toBigDecimal();
+            return new OrderTotals() {
+                public long getEatingOrders() {
+                    return eatingOrders;
+                }
+
+                public long getCompletedOrders() {
+                    return completedOrders;
+                }
+
+                public long getCancelledOrders() {
+                    return cancelledOrders;
+                }
+
+                public BigDecimal getCompletedRevenue() {
+                    return completedRevenue;
+                }
+            };
+        }
+
+        // average over completed orders only, zero when none completed
+        default BranchAnalyticsDTO toAnalytics(ReportType timeframe) {
+            int completedOrders = (int) getCompletedOrders();
+            Money revenue = Money.of(getCompletedRevenue());
+            BranchAnalyticsDTO dto = new BranchAnalyticsDTO();
+            dto.setTotalRevenue(revenue.toBigDecimal());
+            dto.setTotalOrders((int) (getEatingOrders() + getCompletedOrders() + getCancelledOrders()));
+            dto.setCompletedOrders(completedOrders);
+            dto.setCancelledOrders((int) getCancelledOrders());
+            dto.setAvgOrderValue(completedOrders > 0 ? revenue.dividedBy(completedOrders).toBigDecimal() : BigDecimal.ZERO);
+            dto.setTimeframe(timeframe);
+            return dto;
+        }
+    }
+
     /**
      * Find top selling items by branch and timeframe
-     * Note: Limiting is handled in the service layer
+     * Only the first page is read: the database sorts and cuts, the other menu items never leave it
      */
     @Query("""
         SELECT new com.example.backend.dto.TopSellingItemDTO(
@@ -103,15 +230,34 @@ public interface OrderRepository extends JpaRepository<Order, UUID> {
         AND o.createdAt < :endDate
         AND oi.status = true
         GROUP BY mi.menuItemId, mi.name
-        ORDER BY SUM(oi.totalPrice) DESC
+        ORDER BY SUM(oi.totalPrice) DESC, mi.menuItemId
     """)
     List<TopSellingItemDTO> findTopSellingItemsByBranch(
             @Param("branchId") UUID branchId,
             @Param("status") OrderStatus status,
             @Param("startDate") Instant startDate,
-            @Param("endDate") Instant endDate
+            @Param("endDate") Instant endDate,
+            Pageable pageable
     );
 
+    /**
+     * Menu items sold by one order, in the shape of the top selling items so they can be added to them
+     */
+    @Query("""
+        SELECT new com.example.backend.dto.TopSellingItemDTO(
+            mi.menuItemId,
+            mi.name,
+            CAST(SUM(oi.quantity) AS int),
+            SUM(oi.totalPrice)
+        )
+        FROM OrderItem oi
+        JOIN oi.menuItem mi
+        WHERE oi.orderLine.order.orderId = :orderId
+        AND oi.status = true
+        GROUP BY mi.menuItemId, mi.name
+    """)
+    List<TopSellingItemDTO> findSoldItemsByOrderId(@Param("orderId") UUID orderId);
+
     /**
      * Get order distribution by hour for a specific date
      */
@@ -139,7 +285,7 @@ public interface OrderRepository extends JpaRepository<Order, UUID> {
     );
 
     /**
-     * Find top selling items by restaurant and timeframe (aggregated from all branches)
+     * Find top selling items by restaurant and timeframe (aggregated from all branches), first page only
      */
     @Query("""
         SELECT new com.example.backend.dto.TopSellingItemDTO(
@@ -163,13 +309,14 @@ public interface OrderRepository extends JpaRepository<Order, UUID> {
         AND o.createdAt < :endDate
         AND oi.status = true
         GROUP BY mi.menuItemId, mi.name
-        ORDER BY SUM(oi.totalPrice) DESC
+        ORDER BY SUM(oi.totalPrice) DESC, mi.menuItemId
     """)
     List<TopSellingItemDTO> findTopSellingItemsByRestaurant(
             @Param("restaurantId") UUID restaurantId,
             @Param("status") OrderStatus status,
             @Param("startDate") Instant startDate,
-            @Param("endDate") Instant endDate
+            @Param("endDate") Instant endDate,
+            Pageable pageable
     );
 
     /**
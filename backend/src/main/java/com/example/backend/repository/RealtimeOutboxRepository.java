@@ -0,0 +1,98 @@
+package com.example.backend.repository;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import org.springframework.stereotype.Repository;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+
+/**
+ * realtime_outbox has no entity: rows are only appended by writers and claimed by the dispatcher in bulk.
+ */
+@Repository
+public class RealtimeOutboxRepository {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    public record OutboxRow(long id, String room, String event, String eventKey, String payload, int attempts, Instant createdAt) {
+    }
+
+    public void append(String room, String event, String eventKey, String payload, Instant now) {
+        entityManager.createNativeQuery("""
+                INSERT INTO realtime_outbox (room, event, event_key, payload, created_at, next_attempt_at)
+                VALUES (:room, :event, CAST(:eventKey AS VARCHAR), CAST(:payload AS jsonb), :now, :now)
+                """)
+                .setParameter("room", room)
+                .setParameter("event", event)
+                .setParameter("eventKey", eventKey)
+                .setParameter("payload", payload)
+                .setParameter("now", now)
+                .executeUpdate();
+    }
+
+    /**
+     * Remove and return the oldest due rows. Rows claimed by another node are skipped instead of waited for,
+     * and stay deleted only if the claiming transaction commits.
+     * A row is only claimed once every earlier row of its room is claimed with it: a row waiting for its retry
+     * or held by another node keeps the newer events of its room in the table, so a room never sends out of order.
+     */
+    public List<OutboxRow> claim(int limit, Instant now) {
+        List<?> rows = entityManager.createNativeQuery("""
+                WITH candidates AS (
+                    SELECT o.id, o.room FROM realtime_outbox o
+                    WHERE o.next_attempt_at <= :now
+                      AND NOT EXISTS (
+                          SELECT 1 FROM realtime_outbox w
+                          WHERE w.room = o.room AND w.id < o.id AND w.next_attempt_at > :now
+                      )
+                    ORDER BY o.id
+                    LIMIT :limit
+                    FOR UPDATE OF o SKIP LOCKED
+                )
+                DELETE FROM realtime_outbox r
+                USING candidates c
+                WHERE r.id = c.id
+                  AND NOT EXISTS (
+                      SELECT 1 FROM realtime_outbox e
+                      WHERE e.room = c.room AND e.id < c.id
+                        AND e.id NOT IN (SELECT id FROM candidates)
+                  )
+                RETURNING r.id, r.room, r.event, r.event_key, CAST(r.payload AS text), r.attempts, r.created_at
+                """)
+                .setParameter("now", now)
+                .setParameter("limit", limit)
+                .getResultList();
+        List<OutboxRow> claimed = new ArrayList<>(rows.size());
+        for (Object result : rows) {
+            Object[] row = (Object[]) result;
+            claimed.add(new OutboxRow(((Number) row[0]).longValue(), (String) row[1], (String) row[2], (String) row[3],
+                    (String) row[4], ((Number) row[5]).intValue(), row[6] instanceof Timestamp timestamp ? timestamp.toInstant() : (Instant) row[6]));
+        }
+        // RETURNING gives no order, events of a room must leave in the order they were written
+        claimed.sort(Comparator.comparingLong(OutboxRow::id));
+        return claimed;
+    }
+
+    // a failed row goes back under its own id so it keeps its place before the newer events of its room
+    public void reschedule(OutboxRow row, Instant nextAttemptAt) {
+        entityManager.createNativeQuery("""
+                INSERT INTO realtime_outbox (id, room, event, event_key, payload, attempts, created_at, next_attempt_at)
+                VALUES (:id, :room, :event, CAST(:eventKey AS VARCHAR), CAST(:payload AS jsonb), :attempts, :createdAt, :nextAttemptAt)
+                """)
+                .setParameter("id", row.id())
+                .setParameter("room", row.room())
+                .setParameter("event", row.event())
+                .setParameter("eventKey", row.eventKey())
+                .setParameter("payload", row.payload())
+                .setParameter("attempts", row.attempts() + 1)
+                .setParameter("createdAt", row.createdAt())
+                .setParameter("nextAttemptAt", nextAttemptAt)
+                .executeUpdate();
+    }
+}
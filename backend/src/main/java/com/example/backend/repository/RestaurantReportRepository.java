@@ -0,0 +1,95 @@
+package com.example.backend.repository;
+
+import com.example.backend.entities.RestaurantReport;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+@Repository
+public interface RestaurantReportRepository extends JpaRepository<RestaurantReport, UUID> {
+
+    /**
+     * Write the DAY row of every restaurant with an active branch from the branch DAY rows of that day,
+     * avg_revenue is the average completed order
+     */
+    @Modifying
+    @Query(value = """
+        INSERT INTO restaurant_report (restaurant_report_id, restaurant_id, report_type, create_date, total_branches,
+                                       total_order, completed_order, cancelled_order, total_revenue, avg_revenue)
+        SELECT gen_random_uuid(), b.restaurant_id, 'DAY', :day, COUNT(*),
+               SUM(r.total_order), SUM(r.completed_order), SUM(r.cancelled_order), SUM(r.total_revenue),
+               COALESCE(ROUND(SUM(r.total_revenue) / NULLIF(SUM(r.completed_order), 0), 2), 0)
+        FROM branch_report r
+        JOIN branch b ON b.branch_id = r.branch_id
+        WHERE r.report_type = 'DAY'
+        AND r.create_date = :day
+        AND b.is_active = true
+        GROUP BY b.restaurant_id
+        ON CONFLICT (restaurant_id, report_type, create_date) DO UPDATE
+        SET total_branches = EXCLUDED.total_branches,
+            total_order = EXCLUDED.total_order,
+            completed_order = EXCLUDED.completed_order,
+            cancelled_order = EXCLUDED.cancelled_order,
+            total_revenue = EXCLUDED.total_revenue,
+            avg_revenue = EXCLUDED.avg_revenue
+        """, nativeQuery = true)
+    int rollUpDay(@Param("day") LocalDateTime day);
+
+    /**
+     * Write the MONTH or YEAR row starting at periodStart from the DAY rows in [periodStart, periodEnd),
+     * total_branches is the most branches open on one day of the period
+     */
+    @Modifying
+    @Query(value = """
+        INSERT INTO restaurant_report (restaurant_report_id, restaurant_id, report_type, create_date, total_branches,
+                                       total_order, completed_order, cancelled_order, total_revenue, avg_revenue)
+        SELECT gen_random_uuid(), r.restaurant_id, :reportType, :periodStart, MAX(r.total_branches),
+               SUM(r.total_order), SUM(r.completed_order), SUM(r.cancelled_order), SUM(r.total_revenue),
+               COALESCE(ROUND(SUM(r.total_revenue) / NULLIF(SUM(r.completed_order), 0), 2), 0)
+        FROM restaurant_report r
+        WHERE r.report_type = 'DAY'
+        AND r.create_date >= :periodStart
+        AND r.create_date < :periodEnd
+        GROUP BY r.restaurant_id
+        ON CONFLICT (restaurant_id, report_type, create_date) DO UPDATE
+        SET total_branches = EXCLUDED.total_branches,
+            total_order = EXCLUDED.total_order,
+            completed_order = EXCLUDED.completed_order,
+            cancelled_order = EXCLUDED.cancelled_order,
+            total_revenue = EXCLUDED.total_revenue,
+            avg_revenue = EXCLUDED.avg_revenue
+        """, nativeQuery = true)
+    int rollUpPeriod(
+        @Param("reportType") String reportType,
+        @Param("periodStart") LocalDateTime periodStart,
+        @Param("periodEnd") LocalDateTime periodEnd
+    );
+
+    @Query(value = "SELECT MAX(create_date) FROM restaurant_report WHERE restaurant_id = :restaurantId AND report_type = 'DAY'", nativeQuery = true)
+    LocalDateTime findLatestRolledUpDay(@Param("restaurantId") UUID restaurantId);
+
+    /**
+     * Totals of the DAY rows of a restaurant in [fromDay, toDay)
+     */
+    @Query(value = """
+        SELECT COALESCE(SUM(r.total_order - r.completed_order - r.cancelled_order), 0) AS "eatingOrders",
+               COALESCE(SUM(r.completed_order), 0) AS "completedOrders",
+               COALESCE(SUM(r.cancelled_order), 0) AS "cancelledOrders",
+               COALESCE(SUM(r.total_revenue), 0) AS "completedRevenue"
+        FROM restaurant_report r
+        WHERE r.restaurant_id = :restaurantId
+        AND r.report_type = 'DAY'
+        AND r.create_date >= :fromDay
+        AND r.create_date < :toDay
+        """, nativeQuery = true)
+    OrderRepository.OrderTotals sumDays(
+        @Param("restaurantId") UUID restaurantId,
+        @Param("fromDay") LocalDateTime fromDay,
+        @Param("toDay") LocalDateTime toDay
+    );
+}
@@ -165,4 +165,22 @@ public interface TableRepository extends JpaRepository<AreaTable, UUID> {
                   AND a.status = true
             """)
     Optional<AreaTable> findByAreaNameAndTagIgnoreCase(@Param("areaName") String areaName, @Param("tag") String tag);
-}
\ No newline at end of file
+
+    /**
+     * Lấy branchId và restaurantId của table (không load entity)
+     */
+    @Query("""
+                SELECT b.branchId AS branchId, b.restaurant.restaurantId AS restaurantId
+                FROM AreaTable t
+                JOIN t.area a
+                JOIN a.branch b
+                WHERE t.areaTableId = :tableId
+            """)
+    Optional<TableOwner> findOwnerByAreaTableId(@Param("tableId") UUID tableId);
+
+    interface TableOwner {
+        UUID getBranchId();
+
+        UUID getRestaurantId();
+    }
+}
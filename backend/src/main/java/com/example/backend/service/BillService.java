@@ -0,0 +1,111 @@
+package com.example.backend.service;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.example.backend.dto.BillDTO;
+import com.example.backend.dto.event.OrderStatusEvent;
+import com.example.backend.dto.event.TableStatusEvent;
+import com.example.backend.dto.request.CheckoutRequest;
+import com.example.backend.entities.OrderStatus;
+import com.example.backend.entities.PaymentMethod;
+import com.example.backend.entities.TableStatus;
+import com.example.backend.exception.AppException;
+import com.example.backend.exception.ErrorCode;
+import com.example.backend.mapper.BillMapper;
+import com.example.backend.repository.BillRepository;
+import com.example.backend.repository.BillCustomRepository.CheckoutResult;
+import com.example.backend.repository.OrderRepository;
+import com.example.backend.utils.Money;
+
+@Service
+public class BillService {
+
+    private static final ZoneId VIETNAM_TIMEZONE = ZoneId.of("Asia/Ho_Chi_Minh");
+
+    private final Logger logger = LoggerFactory.getLogger(BillService.class);
+    private final BillRepository billRepository;
+    private final OrderRepository orderRepository;
+    private final BillMapper billMapper;
+    private final RoomEventEmitter roomEventEmitter;
+    private final BranchLiveStatsService branchLiveStatsService;
+    private final ReportCacheService reportCacheService;
+    private final BranchTopSellersService branchTopSellersService;
+
+    public BillService(BillRepository billRepository,
+                       OrderRepository orderRepository,
+                       BillMapper billMapper,
+                       RoomEventEmitter roomEventEmitter,
+                       BranchLiveStatsService branchLiveStatsService,
+                       ReportCacheService reportCacheService,
+                       BranchTopSellersService branchTopSellersService) {
+        this.billRepository = billRepository;
+        this.orderRepository = orderRepository;
+        this.billMapper = billMapper;
+        this.roomEventEmitter = roomEventEmitter;
+        this.branchLiveStatsService = branchLiveStatsService;
+        this.reportCacheService = reportCacheService;
+        this.branchTopSellersService = branchTopSellersService;
+    }
+
+    // close the table: the order is billed from its stored running total, the order graph is never loaded
+    @Transactional
+    public BillDTO checkout(CheckoutRequest request) {
+        UUID orderId = request.getOrderId();
+        // an explicit null in the body bypasses the default of CheckoutRequest
+        PaymentMethod paymentMethod = request.getPaymentMethod() != null ? request.getPaymentMethod() : PaymentMethod.CASH;
+        CheckoutResult result = billRepository.checkout(orderId, paymentMethod, request.getNote(), LocalDateTime.now(VIETNAM_TIMEZONE), Instant.now())
+                                     .orElseThrow(() -> orderRepository.existsById(orderId)
+                                             ? new AppException(ErrorCode.ORDER_ALREADY_COMPLETED)
+                                             : new AppException(ErrorCode.ORDER_NOT_EXISTS));
+        BillDTO bill = result.bill();
+        String room = result.branchId().toString();
+        OrderStatusEvent statusEvent = new OrderStatusEvent(orderId, result.areaTableId(), OrderStatus.EATING, OrderStatus.COMPLETED);
+        roomEventEmitter.emitAfterCommit(room, OrderStatusEvent.NAME, orderId, statusEvent);
+        // the guests of the table learn that their order is closed
+        roomEventEmitter.emitAfterCommit(RoomEventPublisher.getTableRoom(result.areaTableId(), orderId), OrderStatusEvent.NAME, orderId, statusEvent);
+        roomEventEmitter.emitAfterCommit(room, TableStatusEvent.NAME, result.areaTableId(),
+                new TableStatusEvent(result.areaTableId(), result.tableTag(), TableStatus.FREE));
+        branchLiveStatsService.orderStatusChanged(result.branchId(), result.orderCreatedAt(), OrderStatus.EATING, OrderStatus.COMPLETED,
+                Money.of(bill.getFinalPrice()), result.itemsSold());
+        reportCacheService.orderChanged(result.branchId());
+        branchTopSellersService.orderCompleted(result.branchId(), orderId, result.orderCreatedAt());
+        logger.info("Order " + orderId + " checked out, bill " + bill.getBillId() + " of " + bill.getFinalPrice());
+        return bill;
+    }
+
+    public BillDTO getBillByOrder(UUID orderId) {
+        return billMapper.toBillDTO(billRepository.findByOrder_OrderId(orderId).orElseThrow(() -> new AppException(ErrorCode.BILL_NOT_FOUND)));
+    }
+
+    // bills of one business day of the branch, paid_time is stored in Vietnam local time
+    public List<BillDTO> getBillsByBranch(UUID branchId, LocalDate date) {
+        return billMapper.toDtoList(billRepository.findAllByBranchAndPaidTime(branchId, date.atStartOfDay(), date.plusDays(1).atStartOfDay()));
+    }
+
+    // end-of-day cash-up: number of bills and amount per payment method
+    public List<Map<String, Object>> getCashUp(UUID branchId, LocalDate date) {
+        List<Map<String, Object>> cashUp = new ArrayList<>();
+        for (Object[] row : billRepository.sumByPaymentMethod(branchId, date.atStartOfDay(), date.plusDays(1).atStartOfDay())) {
+            Map<String, Object> paymentMethodData = new HashMap<>();
+            paymentMethodData.put("paymentMethod", row[0] != null ? row[0].toString() : "UNKNOWN");
+            paymentMethodData.put("billCount", ((Number) row[1]).intValue());
+            paymentMethodData.put("totalAmount", (BigDecimal) row[2]);
+            cashUp.add(paymentMethodData);
+        }
+        return cashUp;
+    }
+}
@@ -0,0 +1,187 @@
+package com.example.backend.service;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.example.backend.entities.OrderStatus;
+import com.example.backend.entities.ReportType;
+import com.example.backend.repository.BranchReportRepository;
+import com.example.backend.repository.BranchReportRepository.LiveTotals;
+import com.example.backend.repository.OrderRepository.OrderTotals;
+import com.example.backend.service.ReportRollupService.Period;
+import com.example.backend.utils.Money;
+import com.example.backend.utils.TransactionUtils;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Today's stats of the branches whose dashboard is open, kept in memory.
+ * A branch is loaded from the database on its first read of the day, then its counters follow the orders opened,
+ * checked out and changing status once their transaction commits. Every reconcile-ms the counters of all tracked
+ * branches are reloaded by a single query: it repairs what no hook sees (items edited on a closed order, writes
+ * committed on another node, a commit racing the reload) and counts the drift it finds.
+ * Yesterday's revenue never changes during the day, it is read once from the rollup.
+ */
+@Service
+public class BranchLiveStatsService {
+
+    private static final ZoneId VIETNAM_TIMEZONE = ZoneId.of("Asia/Ho_Chi_Minh");
+
+    private final BranchReportRepository branchReportRepository;
+    private final ReportRollupService reportRollupService;
+    private final long idleEvictMs;
+    private final Map<UUID, BranchCounters> counters = new ConcurrentHashMap<>();
+
+    private final Counter driftCounter;
+
+    public BranchLiveStatsService(BranchReportRepository branchReportRepository,
+                                  ReportRollupService reportRollupService,
+                                  MeterRegistry meterRegistry,
+                                  @Value("${schedule.live-stats.idle-evict-ms}") long idleEvictMs) {
+        this.branchReportRepository = branchReportRepository;
+        this.reportRollupService = reportRollupService;
+        this.idleEvictMs = idleEvictMs;
+
+        Gauge.builder("branch.live_stats.branches", counters, Map::size)
+                .description("Branches whose today's stats are kept in memory on this node")
+                .register(meterRegistry);
+        this.driftCounter = Counter.builder("branch.live_stats.drift")
+                .description("Tracked branches whose counters differed from the database at reconciliation")
+                .register(meterRegistry);
+    }
+
+    public record LiveStats(long totalOrders, long completedOrders, Money completedRevenue, long itemsSold, Money yesterdayRevenue) {
+    }
+
+    private static final class BranchCounters {
+        private final LocalDate day;
+        private final Money yesterdayRevenue;
+        private final LongAdder totalOrders = new LongAdder();
+        private final LongAdder completedOrders = new LongAdder();
+        private final LongAdder completedRevenueMinorUnits = new LongAdder();
+        private final LongAdder itemsSold = new LongAdder();
+        private volatile long lastReadAt;
+
+        private BranchCounters(LocalDate day, Money yesterdayRevenue) {
+            this.day = day;
+            this.yesterdayRevenue = yesterdayRevenue;
+        }
+
+        private void set(LiveTotals totals) {
+            add(totals.getTotalOrders(), totals.getCompletedOrders(), Money.of(totals.getCompletedRevenue()).getMinorUnits(), totals.getItemsSold());
+        }
+
+        private void add(long orders, long completed, long revenueMinorUnits, long items) {
+            totalOrders.add(orders);
+            completedOrders.add(completed);
+            completedRevenueMinorUnits.add(revenueMinorUnits);
+            itemsSold.add(items);
+        }
+
+        private boolean isEmpty() {
+            return totalOrders.sum() == 0L && completedOrders.sum() == 0L && completedRevenueMinorUnits.sum() == 0L && itemsSold.sum() == 0L;
+        }
+
+        private boolean matches(LiveTotals totals) {
+            return totalOrders.sum() == totals.getTotalOrders()
+                    && completedOrders.sum() == totals.getCompletedOrders()
+                    && completedRevenueMinorUnits.sum() == Money.of(totals.getCompletedRevenue()).getMinorUnits()
+                    && itemsSold.sum() == totals.getItemsSold();
+        }
+    }
+
+    public LiveStats getTodayStats(UUID branchId) {
+        LocalDate today = LocalDate.now(VIETNAM_TIMEZONE);
+        BranchCounters branchCounters = counters.get(branchId);
+        if (branchCounters == null || !branchCounters.day.equals(today)) {
+            // loaded under the map lock of the branch: concurrent first readers wait for a single load
+            branchCounters = counters.compute(branchId, (id, current) ->
+                    current != null && current.day.equals(today) ? current : load(id, today));
+        }
+        branchCounters.lastReadAt = System.currentTimeMillis();
+        return new LiveStats(branchCounters.totalOrders.sum(), branchCounters.completedOrders.sum(),
+                Money.ofMinorUnits(branchCounters.completedRevenueMinorUnits.sum()), branchCounters.itemsSold.sum(),
+                branchCounters.yesterdayRevenue);
+    }
+
+    // an order opened by a guest scan, its creation day is today
+    public void orderOpened(UUID branchId) {
+        TransactionUtils.afterCommit(() -> apply(branchId, LocalDate.now(VIETNAM_TIMEZONE), 1, 0, 0L, 0));
+    }
+
+    // any status change of an order, only a move in or out of COMPLETED changes the completed figures
+    public void orderStatusChanged(UUID branchId, Instant orderCreatedAt, OrderStatus previousStatus, OrderStatus newStatus,
+                                   Money totalPrice, long itemsSold) {
+        int sign = (newStatus == OrderStatus.COMPLETED ? 1 : 0) - (previousStatus == OrderStatus.COMPLETED ? 1 : 0);
+        if (sign == 0 || orderCreatedAt == null)
+            return;
+        // stats are by creation day: an order opened before midnight and paid after it belongs to yesterday
+        LocalDate day = LocalDate.ofInstant(orderCreatedAt, VIETNAM_TIMEZONE);
+        TransactionUtils.afterCommit(() -> apply(branchId, day, 0, sign, sign * totalPrice.getMinorUnits(), sign * itemsSold));
+    }
+
+    private void apply(UUID branchId, LocalDate day, long orders, long completed, long revenueMinorUnits, long items) {
+        // untracked branches are loaded with these changes included on their first read
+        BranchCounters branchCounters = counters.get(branchId);
+        if (branchCounters != null && branchCounters.day.equals(day))
+            branchCounters.add(orders, completed, revenueMinorUnits, items);
+    }
+
+    @Scheduled(fixedDelayString = "${schedule.live-stats.reconcile-ms}")
+    public void reconcile() {
+        long now = System.currentTimeMillis();
+        LocalDate today = LocalDate.now(VIETNAM_TIMEZONE);
+        // dashboards closed for a while and yesterday's counters are dropped, not reloaded
+        counters.entrySet().removeIf(entry -> !entry.getValue().day.equals(today) || now - entry.getValue().lastReadAt > idleEvictMs);
+        if (counters.isEmpty())
+            return;
+        Map<UUID, LiveTotals> totals = new HashMap<>();
+        for (LiveTotals branchTotals : branchReportRepository.getLiveTotals(counters.keySet(), toInstant(today), toInstant(today.plusDays(1))))
+            totals.put(branchTotals.getBranchId(), branchTotals);
+        for (UUID branchId : List.copyOf(counters.keySet())) {
+            BranchCounters current = counters.get(branchId);
+            if (current == null)
+                continue;
+            LiveTotals branchTotals = totals.get(branchId);
+            if (branchTotals == null ? current.isEmpty() : current.matches(branchTotals))
+                continue;
+            driftCounter.increment();
+            BranchCounters reloaded = new BranchCounters(today, current.yesterdayRevenue);
+            if (branchTotals != null)
+                reloaded.set(branchTotals);
+            reloaded.lastReadAt = current.lastReadAt;
+            counters.replace(branchId, current, reloaded);
+        }
+    }
+
+    private BranchCounters load(UUID branchId, LocalDate today) {
+        BranchCounters branchCounters = new BranchCounters(today, getYesterdayRevenue(branchId, today));
+        List<LiveTotals> totals = branchReportRepository.getLiveTotals(List.of(branchId), toInstant(today), toInstant(today.plusDays(1)));
+        if (!totals.isEmpty())
+            branchCounters.set(totals.get(0));
+        return branchCounters;
+    }
+
+    // DAY row of yesterday once it is rolled up, its raw orders before that
+    private Money getYesterdayRevenue(UUID branchId, LocalDate today) {
+        OrderTotals yesterday = reportRollupService.getBranchTotals(branchId, Period.of(ReportType.DAY, today.minusDays(1)));
+        return yesterday == null ? Money.ZERO : Money.of(yesterday.getCompletedRevenue());
+    }
+
+    private static Instant toInstant(LocalDate day) {
+        return day.atStartOfDay(VIETNAM_TIMEZONE).toInstant();
+    }
+}
@@ -1,6 +1,7 @@
 package com.example.backend.service;
 
 import com.example.backend.dto.BranchMenuItemDTO;
+import com.example.backend.dto.event.MenuItemAvailabilityEvent;
 import com.example.backend.dto.response.GuestBranchMenuItemDTO;
 import com.example.backend.entities.BranchMenuItem;
 import com.example.backend.entities.MenuItem;
@@ -26,19 +27,22 @@ public class BranchMenuItemService {
     private final BranchRepository branchRepository;
     private final MediaService mediaService;
     private final BranchMenuItemMapper branchMenuItemMapper;
+    private final RoomEventEmitter roomEventEmitter;
 
     public BranchMenuItemService(
             BranchMenuItemRepository branchMenuItemRepository,
             MenuItemRepository menuItemRepository,
             BranchRepository branchRepository,
             MediaService mediaService,
-            BranchMenuItemMapper branchMenuItemMapper
+            BranchMenuItemMapper branchMenuItemMapper,
+            RoomEventEmitter roomEventEmitter
     ) {
         this.branchMenuItemRepository = branchMenuItemRepository;
         this.menuItemRepository = menuItemRepository;
         this.branchRepository = branchRepository;
         this.mediaService = mediaService;
         this.branchMenuItemMapper = branchMenuItemMapper;
+        this.roomEventEmitter = roomEventEmitter;
     }
 
     public List<BranchMenuItemDTO> getMenuItemsByBranch(UUID branchId) {
@@ -97,6 +101,8 @@ public class BranchMenuItemService {
 
         entity.setAvailable(available);
         branchMenuItemRepository.save(entity);
+        roomEventEmitter.emitAfterCommit(branchId.toString(), MenuItemAvailabilityEvent.NAME, menuItemId,
+                new MenuItemAvailabilityEvent(menuItemId, available));
     }
 
     public List<GuestBranchMenuItemDTO> getListBranchMenuItems(UUID branchId) {
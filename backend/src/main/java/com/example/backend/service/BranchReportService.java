@@ -1,9 +1,13 @@
 package com.example.backend.service;
 
 import com.example.backend.dto.BranchAnalyticsDTO;
-import com.example.backend.entities.OrderStatus;
 import com.example.backend.entities.ReportType;
 import com.example.backend.repository.BranchReportRepository;
+import com.example.backend.service.BranchLiveStatsService.LiveStats;
+import com.example.backend.service.ReportCacheService.Scope;
+import com.example.backend.service.ReportRollupService.Period;
+import com.example.backend.utils.Money;
+import com.fasterxml.jackson.core.type.TypeReference;
 import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
@@ -21,64 +25,26 @@ public class BranchReportService {
     private static final ZoneId VIETNAM_TIMEZONE = ZoneId.of("Asia/Ho_Chi_Minh");
 
     private final BranchReportRepository branchReportRepository;
-
-    public BranchReportService(BranchReportRepository branchReportRepository) {
+    private final ReportRollupService reportRollupService;
+    private final BranchLiveStatsService branchLiveStatsService;
+    private final ReportCacheService reportCacheService;
+
+    public BranchReportService(BranchReportRepository branchReportRepository,
+                               ReportRollupService reportRollupService,
+                               BranchLiveStatsService branchLiveStatsService,
+                               ReportCacheService reportCacheService) {
         this.branchReportRepository = branchReportRepository;
+        this.reportRollupService = reportRollupService;
+        this.branchLiveStatsService = branchLiveStatsService;
+        this.reportCacheService = reportCacheService;
     }
 
     public BranchAnalyticsDTO getBranchAnalytics(UUID branchId, ReportType reportType, LocalDate date) {
-        // Calculate date range based on report type
-        ZonedDateTime zonedDate = date.atStartOfDay(VIETNAM_TIMEZONE);
-        Instant startDate;
-        Instant endDate;
-
-        switch (reportType) {
-            case DAY:
-                startDate = zonedDate.toInstant();
-                endDate = zonedDate.plusDays(1).toInstant();
-                break;
-            case MONTH:
-                startDate = zonedDate.with(TemporalAdjusters.firstDayOfMonth()).toInstant();
-                endDate = zonedDate.with(TemporalAdjusters.firstDayOfNextMonth()).toInstant();
-                break;
-            case YEAR:
-                startDate = zonedDate.with(TemporalAdjusters.firstDayOfYear()).toInstant();
-                endDate = zonedDate.with(TemporalAdjusters.firstDayOfNextYear()).toInstant();
-                break;
-            default:
-                throw new IllegalArgumentException("Invalid report type");
-        }
-
-        // Get order counts by status
-        int eatingOrders = branchReportRepository.countOrdersByBranchAndStatusAndTimeframe(
-                branchId, OrderStatus.EATING, startDate, endDate);
-        int completedOrders = branchReportRepository.countOrdersByBranchAndStatusAndTimeframe(
-                branchId, OrderStatus.COMPLETED, startDate, endDate);
-        int cancelledOrders = branchReportRepository.countOrdersByBranchAndStatusAndTimeframe(
-                branchId, OrderStatus.CANCELLED, startDate, endDate);
-        
-        int totalOrders = eatingOrders + completedOrders + cancelledOrders;
-
-        // Get total revenue (COMPLETED orders only)
-        BigDecimal totalRevenue = branchReportRepository.sumRevenueByBranchAndTimeframe(
-                branchId, OrderStatus.COMPLETED, startDate, endDate);
-
-        // Calculate average order value
-        BigDecimal avgOrderValue = BigDecimal.ZERO;
-        if (completedOrders > 0) {
-            avgOrderValue = totalRevenue.divide(
-                    BigDecimal.valueOf(completedOrders), 2, RoundingMode.HALF_UP);
-        }
-
-        BranchAnalyticsDTO dto = new BranchAnalyticsDTO();
-        dto.setTotalRevenue(totalRevenue);
-        dto.setTotalOrders(totalOrders);
-        dto.setCompletedOrders(completedOrders);
-        dto.setCancelledOrders(cancelledOrders);
-        dto.setAvgOrderValue(avgOrderValue);
-        dto.setTimeframe(reportType);
-
-        return dto;
+        // rolled up days plus the raw orders of the days after them, same totals as the restaurant dashboard
+        Period period = Period.of(reportType, date);
+        return reportCacheService.get("branch-analytics", Scope.BRANCH, branchId, reportType, period, null,
+                new TypeReference<BranchAnalyticsDTO>() {},
+                () -> reportRollupService.getBranchTotals(branchId, period).toAnalytics(reportType));
     }
 
     public List<Map<String, Object>> getRestaurantBranchPerformance(
@@ -86,6 +52,12 @@ public class BranchReportService {
         ReportType reportType, 
         LocalDate date
     ) {
+        return reportCacheService.get("branch-performance", Scope.RESTAURANT, restaurantId, reportType, Period.of(reportType, date), null,
+                new TypeReference<List<Map<String, Object>>>() {},
+                () -> computeRestaurantBranchPerformance(restaurantId, reportType, date));
+    }
+
+    private List<Map<String, Object>> computeRestaurantBranchPerformance(UUID restaurantId, ReportType reportType, LocalDate date) {
         // Calculate date range
         ZonedDateTime zonedDate = date.atStartOfDay(VIETNAM_TIMEZONE);
         Instant startDate;
@@ -115,13 +87,14 @@ public class BranchReportService {
         );
 
         List<Map<String, Object>> branchPerformanceList = new ArrayList<>();
-        BigDecimal totalRevenue = BigDecimal.ZERO;
+        Money totalRevenueMoney = Money.ZERO;
 
         // Calculate total revenue first
         for (Object[] row : results) {
             BigDecimal revenue = row[2] != null ? new BigDecimal(row[2].toString()) : BigDecimal.ZERO;
-            totalRevenue = totalRevenue.add(revenue);
+            totalRevenueMoney = totalRevenueMoney.plus(Money.of(revenue));
         }
+        BigDecimal totalRevenue = totalRevenueMoney.toBigDecimal();
 
         // Build response with percentage
         for (Object[] row : results) {
@@ -147,23 +120,12 @@ public class BranchReportService {
         return branchPerformanceList;
     }
 
+    // served from the in-memory counters of the branch, no query once they are loaded
     public Map<String, Object> getTodayStats(UUID branchId) {
         Map<String, Object> stats = new HashMap<>();
-
-        // Get today's date range
-        ZonedDateTime now = ZonedDateTime.now(VIETNAM_TIMEZONE);
-        Instant todayStart = now.toLocalDate().atStartOfDay(VIETNAM_TIMEZONE).toInstant();
-        Instant todayEnd = now.toLocalDate().plusDays(1).atStartOfDay(VIETNAM_TIMEZONE).toInstant();
-        
-        // Get yesterday's date range
-        Instant yesterdayStart = now.toLocalDate().minusDays(1).atStartOfDay(VIETNAM_TIMEZONE).toInstant();
-        Instant yesterdayEnd = todayStart;
-
-        BigDecimal todayRevenue = branchReportRepository.getTodayRevenue(branchId, todayStart, todayEnd);
-        BigDecimal yesterdayRevenue = branchReportRepository.getTodayRevenue(branchId, yesterdayStart, yesterdayEnd);
-        int todayOrders = branchReportRepository.getTodayTotalOrders(branchId, todayStart, todayEnd);
-        int todayCompletedOrders = branchReportRepository.getTodayCompletedOrders(branchId, todayStart, todayEnd);
-        int totalMenuItemsSold = branchReportRepository.getTotalMenuItemsSold(branchId, todayStart, todayEnd);
+        LiveStats liveStats = branchLiveStatsService.getTodayStats(branchId);
+        BigDecimal todayRevenue = liveStats.completedRevenue().toBigDecimal();
+        BigDecimal yesterdayRevenue = liveStats.yesterdayRevenue().toBigDecimal();
 
         stats.put("todayRevenue", todayRevenue.doubleValue());
         stats.put("yesterdayRevenue", yesterdayRevenue.doubleValue());
@@ -178,15 +140,13 @@ public class BranchReportService {
         }
         stats.put("revenueChangePercent", revenueChangePercent);
         
-        stats.put("totalOrders", todayOrders);
-        stats.put("totalMenuItemsSold", totalMenuItemsSold);
+        stats.put("totalOrders", Math.toIntExact(liveStats.totalOrders()));
+        stats.put("totalMenuItemsSold", Math.toIntExact(liveStats.itemsSold()));
         
         // Calculate average order value
         double avgOrderValue = 0.0;
-        if (todayCompletedOrders > 0) {
-            avgOrderValue = todayRevenue.divide(
-                BigDecimal.valueOf(todayCompletedOrders), 2, RoundingMode.HALF_UP
-            ).doubleValue();
+        if (liveStats.completedOrders() > 0) {
+            avgOrderValue = liveStats.completedRevenue().dividedBy(liveStats.completedOrders()).toBigDecimal().doubleValue();
         }
         stats.put("averageOrderValue", avgOrderValue);
 
@@ -129,6 +129,11 @@ public class BranchService {
                 .stream().map(branchMapper::toDto).toList();
     }
 
+    @Transactional(readOnly = true)
+    public boolean exists(UUID branchId) {
+        return branchRepository.existsById(branchId);
+    }
+
     @Transactional(readOnly = true)
     public UUID getRestaurantIdByBranchId(UUID branchId) {
         return branchRepository.findRestaurantIdByBranchId(branchId)
@@ -0,0 +1,173 @@
+package com.example.backend.service;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import com.example.backend.dto.TopSellingItemDTO;
+import com.example.backend.entities.OrderStatus;
+import com.example.backend.repository.OrderRepository;
+import com.example.backend.utils.Money;
+import com.example.backend.utils.TransactionUtils;
+
+/**
+ * Today's best sellers of the branches being watched, answered from memory.
+ * Each branch keeps a Space-Saving summary of at most capacity menu items weighted by revenue: a sold item
+ * already monitored adds to its count, a new one replaces the smallest and inherits its count as error.
+ * The revenue reported is an overestimate by at most that error, exact as long as the branch sold no more
+ * distinct menu items than the capacity, which is the usual case. Units sold before an item entered are unknown
+ * and not bounded by the error, so no quantity is reported for an item that entered by replacement.
+ * The summary is built by the top items query on its first read of the day, follows the orders checked out on
+ * this node, and is rebuilt after rebuild-ms to take in the other nodes, or on the next read after an order
+ * left COMPLETED since counts cannot be taken back.
+ */
+@Service
+public class BranchTopSellersService {
+
+    private static final ZoneId VIETNAM_TIMEZONE = ZoneId.of("Asia/Ho_Chi_Minh");
+
+    private final OrderRepository orderRepository;
+    private final int capacity;
+    private final long rebuildMs;
+    private final Map<UUID, TopSellers> branches = new ConcurrentHashMap<>();
+
+    public BranchTopSellersService(OrderRepository orderRepository,
+                                   @Value("${top-sellers.capacity}") int capacity,
+                                   @Value("${top-sellers.rebuild-ms}") long rebuildMs) {
+        this.orderRepository = orderRepository;
+        this.capacity = capacity;
+        this.rebuildMs = rebuildMs;
+    }
+
+    // count is the revenue the ranking is made on, error the part of it inherited on replacement,
+    // quantity only the units seen since monitored
+    private static final class Seller {
+        private final UUID menuItemId;
+        private String name;
+        private Money count = Money.ZERO;
+        private Money error = Money.ZERO;
+        private long quantity;
+
+        private Seller(UUID menuItemId) {
+            this.menuItemId = menuItemId;
+        }
+    }
+
+    private static final class TopSellers {
+        private final LocalDate day;
+        private final long builtAt;
+        private final Map<UUID, Seller> sellers = new HashMap<>();
+        private volatile boolean stale;
+
+        private TopSellers(LocalDate day, long builtAt) {
+            this.day = day;
+            this.builtAt = builtAt;
+        }
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    // limit must not exceed the capacity, a longer ranking is not known by the summary
+    public List<TopSellingItemDTO> getTopSellingItems(UUID branchId, int limit) {
+        LocalDate today = LocalDate.now(VIETNAM_TIMEZONE);
+        TopSellers topSellers = branches.get(branchId);
+        if (isOutdated(topSellers, today)) {
+            // built under the map lock of the branch: concurrent readers wait for a single build
+            topSellers = branches.compute(branchId, (id, current) -> isOutdated(current, today) ? build(id, today) : current);
+        }
+        synchronized (topSellers) {
+            List<Seller> ranking = new ArrayList<>(topSellers.sellers.values());
+            ranking.sort(Comparator.comparing((Seller seller) -> seller.count).reversed()
+                    .thenComparing(seller -> seller.menuItemId));
+            if (ranking.size() > limit)
+                ranking = ranking.subList(0, limit);
+            List<TopSellingItemDTO> items = new ArrayList<>(ranking.size());
+            for (Seller seller : ranking)
+                items.add(new TopSellingItemDTO(seller.menuItemId, seller.name,
+                        seller.error.isZero() ? Integer.valueOf(Math.toIntExact(seller.quantity)) : null,
+                        seller.count.toBigDecimal()));
+            return items;
+        }
+    }
+
+    // must run in the transaction that completed the order, its items are read there and counted after commit
+    public void orderCompleted(UUID branchId, UUID orderId, Instant orderCreatedAt) {
+        TopSellers topSellers = getTracked(branchId, orderCreatedAt);
+        if (topSellers == null)
+            return;
+        List<TopSellingItemDTO> items = orderRepository.findSoldItemsByOrderId(orderId);
+        TransactionUtils.afterCommit(() -> {
+            synchronized (topSellers) {
+                for (TopSellingItemDTO item : items)
+                    add(topSellers, item);
+            }
+        });
+    }
+
+    // an order leaving COMPLETED, the summary of its day is rebuilt on the next read
+    public void orderReopened(UUID branchId, Instant orderCreatedAt) {
+        TopSellers topSellers = getTracked(branchId, orderCreatedAt);
+        if (topSellers != null)
+            TransactionUtils.afterCommit(() -> topSellers.stale = true);
+    }
+
+    // orders count on the day they were created, like the top items query; untracked branches are built with them included
+    private TopSellers getTracked(UUID branchId, Instant orderCreatedAt) {
+        TopSellers topSellers = branches.get(branchId);
+        if (topSellers == null || orderCreatedAt == null || !topSellers.day.equals(LocalDate.ofInstant(orderCreatedAt, VIETNAM_TIMEZONE)))
+            return null;
+        return topSellers;
+    }
+
+    private boolean isOutdated(TopSellers topSellers, LocalDate today) {
+        return topSellers == null || topSellers.stale || !topSellers.day.equals(today)
+                || System.currentTimeMillis() - topSellers.builtAt > rebuildMs;
+    }
+
+    private TopSellers build(UUID branchId, LocalDate today) {
+        TopSellers topSellers = new TopSellers(today, System.currentTimeMillis());
+        // the top capacity items are exact, the ones below them enter later as replacements
+        List<TopSellingItemDTO> items = orderRepository.findTopSellingItemsByBranch(branchId, OrderStatus.COMPLETED,
+                today.atStartOfDay(VIETNAM_TIMEZONE).toInstant(), today.plusDays(1).atStartOfDay(VIETNAM_TIMEZONE).toInstant(),
+                PageRequest.of(0, capacity));
+        for (TopSellingItemDTO item : items)
+            add(topSellers, item);
+        return topSellers;
+    }
+
+    private void add(TopSellers topSellers, TopSellingItemDTO item) {
+        Seller seller = topSellers.sellers.get(item.getMenuItemId());
+        if (seller == null) {
+            seller = new Seller(item.getMenuItemId());
+            if (topSellers.sellers.size() >= capacity) {
+                // O(capacity) scan for the smallest, the summary is small and updated once per checkout
+                Seller smallest = null;
+                for (Seller candidate : topSellers.sellers.values()) {
+                    if (smallest == null || candidate.count.compareTo(smallest.count) < 0)
+                        smallest = candidate;
+                }
+                topSellers.sellers.remove(smallest.menuItemId);
+                // the newcomer inherits the count of the item it replaces, its possible overestimate
+                seller.count = smallest.count;
+                seller.error = smallest.count;
+            }
+            topSellers.sellers.put(seller.menuItemId, seller);
+        }
+        seller.name = item.getMenuItemName();
+        seller.count = seller.count.plus(Money.of(item.getTotalRevenue()));
+        seller.quantity += item.getQuantitySold();
+    }
+}
@@ -29,6 +29,7 @@ public class CustomizationService {
     private final MenuItemRepository menuItemRepository;
     private final CategoryRepository categoryRepository;
     private final FeatureLimitCheckerService featureLimitCheckerService;
+    private final PriceBookService priceBookService;
 
 
     public CustomizationService(CustomizationRepository customizationRepository,
@@ -36,13 +37,15 @@ public class CustomizationService {
                                 RestaurantRepository restaurantRepository,
                                 MenuItemRepository menuItemRepository,
                                 CategoryRepository categoryRepository,
-                                FeatureLimitCheckerService featureLimitCheckerService) {
+                                FeatureLimitCheckerService featureLimitCheckerService,
+                                PriceBookService priceBookService) {
         this.customizationRepository = customizationRepository;
         this.customizationMapper = customizationMapper;
         this.restaurantRepository = restaurantRepository;
         this.menuItemRepository = menuItemRepository;
         this.categoryRepository = categoryRepository;
         this.featureLimitCheckerService = featureLimitCheckerService;
+        this.priceBookService = priceBookService;
     }
 
     public List<CustomizationDTO> getAllByRestaurant(UUID restaurantId) {
@@ -84,7 +87,9 @@ public class CustomizationService {
             customization.getMenuItems().add(menuItem);
         }
 
-        return customizationMapper.toCustomizationDTO(customizationRepository.save(customization));
+        Customization saved = customizationRepository.save(customization);
+        priceBookService.bumpVersion(restaurant.getRestaurantId());
+        return customizationMapper.toCustomizationDTO(saved);
     }
 
     @Transactional
@@ -94,7 +99,10 @@ public class CustomizationService {
                     exist.setName(dto.getName());
                     exist.setPrice(dto.getPrice());
                     exist.setUpdatedAt(Instant.now());
-                    return customizationMapper.toCustomizationDTO(customizationRepository.save(exist));
+                    Customization saved = customizationRepository.save(exist);
+                    // guests are priced against a new price book
+                    priceBookService.bumpVersion(saved.getRestaurant().getRestaurantId());
+                    return customizationMapper.toCustomizationDTO(saved);
                 })
                 .orElseThrow(() -> new AppException(ErrorCode.CUSTOMIZATION_NOT_FOUND));
     }
@@ -104,6 +112,7 @@ public class CustomizationService {
         customizationRepository.findById(id).ifPresent(customization -> {
             customization.setStatus(false);
             customizationRepository.save(customization);
+            priceBookService.bumpVersion(customization.getRestaurant().getRestaurantId());
         });
     }
 
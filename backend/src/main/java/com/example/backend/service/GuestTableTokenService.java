@@ -0,0 +1,88 @@
+package com.example.backend.service;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.Base64;
+import java.util.UUID;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.example.backend.exception.AppException;
+import com.example.backend.exception.ErrorCode;
+
+/**
+ * Proof that a guest opened the QR code page of a table, issued by the public table endpoint and required to look up
+ * the open order of the table and to follow it live. It binds a table and an expiry with an HMAC-SHA256:
+ * base64url(areaTableId, expiresAt) + "." + base64url(mac).
+ * The key is derived from jwt.signer-key for this purpose only, the token is not a JWT and never passes as a bearer token.
+ */
+@Service
+public class GuestTableTokenService {
+
+    private static final String ALGORITHM = "HmacSHA256";
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    private final SecretKeySpec key;
+    private final long ttlMs;
+
+    public GuestTableTokenService(@Value("${jwt.signer-key}") String signerKey,
+                                  @Value("${guest-table-token.ttl-minutes}") long ttlMinutes) {
+        this.key = new SecretKeySpec(mac(new SecretKeySpec(signerKey.getBytes(StandardCharsets.UTF_8), ALGORITHM),
+                "guest-table-token".getBytes(StandardCharsets.UTF_8)), ALGORITHM);
+        this.ttlMs = ttlMinutes * 60 * 1000;
+    }
+
+    public String issue(UUID areaTableId) {
+        byte[] claims = ByteBuffer.allocate(24)
+                .putLong(areaTableId.getMostSignificantBits())
+                .putLong(areaTableId.getLeastSignificantBits())
+                .putLong(System.currentTimeMillis() + ttlMs)
+                .array();
+        return ENCODER.encodeToString(claims) + "." + ENCODER.encodeToString(mac(key, claims));
+    }
+
+    // the table the token was issued for, GUEST_TABLE_TOKEN_INVALID when it is missing, forged or expired
+    public UUID verify(String token) {
+        if (token == null)
+            throw new AppException(ErrorCode.GUEST_TABLE_TOKEN_INVALID);
+        int dot = token.indexOf('.');
+        byte[] claims;
+        byte[] signature;
+        try {
+            claims = DECODER.decode(token.substring(0, Math.max(dot, 0)));
+            signature = DECODER.decode(token.substring(dot + 1));
+        } catch (IllegalArgumentException e) {
+            throw new AppException(ErrorCode.GUEST_TABLE_TOKEN_INVALID);
+        }
+        if (dot < 0 || claims.length != 24 || !MessageDigest.isEqual(mac(key, claims), signature))
+            throw new AppException(ErrorCode.GUEST_TABLE_TOKEN_INVALID);
+        ByteBuffer buffer = ByteBuffer.wrap(claims);
+        UUID areaTableId = new UUID(buffer.getLong(), buffer.getLong());
+        if (buffer.getLong() < System.currentTimeMillis())
+            throw new AppException(ErrorCode.GUEST_TABLE_TOKEN_INVALID);
+        return areaTableId;
+    }
+
+    public void verify(String token, UUID areaTableId) {
+        if (!verify(token).equals(areaTableId))
+            throw new AppException(ErrorCode.GUEST_TABLE_TOKEN_INVALID);
+    }
+
+    private static byte[] mac(SecretKeySpec key, byte[] data) {
+        try {
+            // Mac instances are not thread safe, one per call
+            Mac mac = Mac.getInstance(ALGORITHM);
+            mac.init(key);
+            return mac.doFinal(data);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
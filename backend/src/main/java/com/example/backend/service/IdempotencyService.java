@@ -0,0 +1,93 @@
+package com.example.backend.service;
+
+import java.time.Duration;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Service;
+
+import com.example.backend.exception.AppException;
+import com.example.backend.exception.ErrorCode;
+import com.example.backend.utils.TokenUtils;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+@Service
+public class IdempotencyService {
+
+    private static final String IDEMPOTENCY_PREFIX = "idempotency:";
+    private static final String IN_PROGRESS = "IN_PROGRESS";
+    private static final int MAX_KEY_LENGTH = 128;
+
+    private final StringRedisTemplate stringRedisTemplate;
+    private final ObjectMapper objectMapper;
+
+    @Value("${idempotency.ttl-seconds}")
+    private long ttlSeconds;
+
+    public IdempotencyService(StringRedisTemplate stringRedisTemplate, ObjectMapper objectMapper) {
+        this.stringRedisTemplate = stringRedisTemplate;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Run the action once per idempotency key, a retry with the same key gets the stored result
+     * straight from redis. Without a key the action just runs.
+     * The key is bound to the target (table, order...) the request acts on and to a hash of its payload:
+     * the same key sent for another target starts its own entry, sent with another payload it is rejected
+     * with 422 instead of answering the first result for a request it does not belong to.
+     */
+    public <T> T executeOnce(String scope, Object targetId, String idempotencyKey, Object payload, Class<T> resultType, Supplier<T> action) {
+        if (idempotencyKey == null || idempotencyKey.isBlank())
+            return action.get();
+        if (idempotencyKey.length() > MAX_KEY_LENGTH)
+            throw new AppException(ErrorCode.INVALID_REQUEST);
+
+        String key = IDEMPOTENCY_PREFIX + scope + ":" + targetId + ":" + idempotencyKey;
+        // stored as <payload hash>:<IN_PROGRESS or result json>
+        String payloadHash = TokenUtils.sha256Hex(toJson(payload)) + ":";
+        Duration ttl = Duration.ofSeconds(ttlSeconds);
+        Boolean acquired = stringRedisTemplate.opsForValue().setIfAbsent(key, payloadHash + IN_PROGRESS, ttl);
+        if (!Boolean.TRUE.equals(acquired)) {
+            String stored = stringRedisTemplate.opsForValue().get(key);
+            // the first request is still running (or the key just expired), the client should retry later
+            if (stored == null)
+                throw new AppException(ErrorCode.IDEMPOTENT_REQUEST_IN_PROGRESS);
+            if (!stored.startsWith(payloadHash))
+                throw new AppException(ErrorCode.IDEMPOTENCY_KEY_REUSED);
+            String storedResult = stored.substring(payloadHash.length());
+            if (IN_PROGRESS.equals(storedResult))
+                throw new AppException(ErrorCode.IDEMPOTENT_REQUEST_IN_PROGRESS);
+            return readResult(storedResult, resultType);
+        }
+
+        T result;
+        try {
+            result = action.get();
+        } catch (RuntimeException e) {
+            // a failed request did not change anything, let the retry run again
+            stringRedisTemplate.delete(key);
+            throw e;
+        }
+        stringRedisTemplate.opsForValue().set(key, payloadHash + toJson(result), ttl);
+        return result;
+    }
+
+    private <T> T readResult(String stored, Class<T> resultType) {
+        try {
+            return objectMapper.readValue(stored, resultType);
+        } catch (JsonProcessingException e) {
+            throw new AppException(ErrorCode.WE_COOKED);
+        }
+    }
+
+    private String toJson(Object result) {
+        try {
+            return objectMapper.writeValueAsString(result);
+        } catch (JsonProcessingException e) {
+            throw new AppException(ErrorCode.WE_COOKED);
+        }
+    }
+
+}
@@ -0,0 +1,127 @@
+package com.example.backend.service;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.example.backend.dto.OrderItemDTO;
+import com.example.backend.dto.OrderLineDTO;
+import com.example.backend.entities.AreaTable;
+import com.example.backend.entities.OrderLine;
+import com.example.backend.entities.OrderLineStatus;
+import com.example.backend.exception.AppException;
+import com.example.backend.exception.ErrorCode;
+import com.example.backend.mapper.OrderLineMapper;
+import com.example.backend.repository.KitchenTicketRepository;
+import com.example.backend.repository.OrderLineRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Keeps the kitchen_ticket read model in step with orderLine writes and serves the kitchen and waiter boards from it.
+ * Every write runs in the transaction of the orderLine change, so a ticket is never ahead of or behind its orderLine;
+ * a board read is one indexed query returning ready-made OrderLineDTO payloads.
+ */
+@Service
+public class KitchenTicketService {
+
+    private static final ZoneId VIETNAM_TIMEZONE = ZoneId.of("Asia/Ho_Chi_Minh");
+
+    private final Logger logger = LoggerFactory.getLogger(KitchenTicketService.class);
+    private final KitchenTicketRepository kitchenTicketRepository;
+    private final OrderLineRepository orderLineRepository;
+    private final OrderLineMapper orderLineMapper;
+    private final ObjectMapper objectMapper;
+
+    public KitchenTicketService(KitchenTicketRepository kitchenTicketRepository,
+                                OrderLineRepository orderLineRepository,
+                                OrderLineMapper orderLineMapper,
+                                ObjectMapper objectMapper) {
+        this.kitchenTicketRepository = kitchenTicketRepository;
+        this.orderLineRepository = orderLineRepository;
+        this.orderLineMapper = orderLineMapper;
+        this.objectMapper = objectMapper;
+    }
+
+    // the DTO must already carry tableTag and areaName, it is stored as it will be served
+    public void upsert(UUID branchId, OrderLineDTO orderLineDTO, Instant createdAt) {
+        kitchenTicketRepository.upsert(orderLineDTO.getOrderLineId(), branchId, orderLineDTO.getOrderLineStatus().name(),
+                                       toJson(orderLineDTO), createdAt, Instant.now());
+    }
+
+    public void updateStatus(UUID orderLineId, OrderLineStatus orderLineStatus) {
+        kitchenTicketRepository.updateStatus(orderLineId, orderLineStatus.name(), Instant.now());
+    }
+
+    public record Ticket(UUID branchId, OrderLineDTO orderLine) {
+    }
+
+    // rebuild the ticket of an orderLine after its orderItems changed
+    public Ticket refresh(UUID orderLineId) {
+        OrderLine orderLine = orderLineRepository.findByIdWithOrderItems(orderLineId).orElseThrow(() -> new AppException(ErrorCode.ORDERLINE_NOT_EXISTS));
+        OrderLineDTO orderLineDTO = orderLineMapper.toOrderLineDTO(orderLine);
+        // totals are moved by bulk updates that do not refresh a loaded orderLine, the counted orderItems are always current
+        orderLineDTO.setTotalPrice(getCountedPrice(orderLineDTO.getOrderItems()));
+        AreaTable table = orderLine.getOrder().getAreaTable();
+        orderLineDTO.setTableTag(table.getTag());
+        orderLineDTO.setAreaName(table.getArea().getName());
+        UUID branchId = table.getArea().getBranch().getBranchId();
+        upsert(branchId, orderLineDTO, orderLine.getCreatedAt());
+        return new Ticket(branchId, orderLineDTO);
+    }
+
+    public List<OrderLineDTO> getTickets(UUID branchId, OrderLineStatus orderLineStatus, Instant from, Instant to) {
+        List<OrderLineDTO> orderLineDTOs = new ArrayList<>();
+        for (String payload : kitchenTicketRepository.findPayloads(branchId, orderLineStatus.name(), from, to))
+            orderLineDTOs.add(fromJson(payload));
+        return orderLineDTOs;
+    }
+
+    // orderLines of today written before this read model existed (or by an instance without it) get their ticket at startup
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional
+    public void backfillToday() {
+        Instant startOfDay = LocalDate.now(VIETNAM_TIMEZONE).atStartOfDay(VIETNAM_TIMEZONE).toInstant();
+        List<UUID> orderLineIds = kitchenTicketRepository.findOrderLineIdsWithoutTicket(startOfDay);
+        for (UUID orderLineId : orderLineIds)
+            refresh(orderLineId);
+        if (!orderLineIds.isEmpty())
+            logger.info("Backfilled " + orderLineIds.size() + " kitchen tickets");
+    }
+
+    private BigDecimal getCountedPrice(List<OrderItemDTO> orderItems) {
+        BigDecimal total = BigDecimal.ZERO;
+        for (OrderItemDTO orderItem : orderItems) {
+            if (orderItem.isStatus())
+                total = total.add(orderItem.getTotalPrice());
+        }
+        return total;
+    }
+
+    private String toJson(OrderLineDTO orderLineDTO) {
+        try {
+            return objectMapper.writeValueAsString(orderLineDTO);
+        } catch (JsonProcessingException e) {
+            throw new AppException(ErrorCode.WE_COOKED);
+        }
+    }
+
+    private OrderLineDTO fromJson(String payload) {
+        try {
+            return objectMapper.readValue(payload, OrderLineDTO.class);
+        } catch (JsonProcessingException e) {
+            throw new AppException(ErrorCode.WE_COOKED);
+        }
+    }
+}
@@ -30,13 +30,15 @@ public class MenuItemService {
     private final MediaService mediaService;
     private final FeatureLimitCheckerService featureLimitCheckerService;
     private final CustomizationMapper customizationMapper;
+    private final PriceBookService priceBookService;
 
     public MenuItemService(MenuItemRepository menuItemRepository, MenuItemMapper menuItemMapper,
                            RestaurantRepository restaurantRepository, CategoryRepository categoryRepository,
                            CustomizationRepository customizationRepository, BranchMenuItemRepository branchMenuItemRepository,
                            MediaService mediaService,
                            FeatureLimitCheckerService featureLimitCheckerService,
-                           CustomizationMapper customizationMapper) {
+                           CustomizationMapper customizationMapper,
+                           PriceBookService priceBookService) {
         this.menuItemRepository = menuItemRepository;
         this.menuItemMapper = menuItemMapper;
         this.restaurantRepository = restaurantRepository;
@@ -46,6 +48,7 @@ public class MenuItemService {
         this.mediaService = mediaService;
         this.featureLimitCheckerService = featureLimitCheckerService;
         this.customizationMapper = customizationMapper;
+        this.priceBookService = priceBookService;
     }
 
     public List<MenuItemDTO> getAllByRestaurant(UUID restaurantId) {
@@ -98,6 +101,7 @@ public class MenuItemService {
         }
 
         MenuItem savedItem = menuItemRepository.save(item);
+        priceBookService.bumpVersion(restaurant.getRestaurantId());
 
         if (imageFile != null && !imageFile.isEmpty()) {
             mediaService.saveMediaForTarget(imageFile, savedItem.getMenuItemId(), "MENU_ITEM_IMAGE");
@@ -146,6 +150,8 @@ public class MenuItemService {
         }
 
         MenuItem updated = menuItemRepository.save(existing);
+        // price, name or customizations changed -> guests are priced against a new price book
+        priceBookService.bumpVersion(updated.getRestaurant().getRestaurantId());
 
         if (imageFile != null && !imageFile.isEmpty()) {
             mediaService.deleteAllMediaForTarget(updated.getMenuItemId(), "MENU_ITEM_IMAGE");
@@ -166,6 +172,7 @@ public class MenuItemService {
         item.setUpdatedAt(Instant.now());
 
         MenuItem updated = menuItemRepository.save(item);
+        priceBookService.bumpVersion(updated.getRestaurant().getRestaurantId());
         return menuItemMapper.toMenuItemDTO(updated);
     }
 
@@ -177,6 +184,7 @@ public class MenuItemService {
         item.setStatus(MenuItemStatus.DELETED);
         item.setUpdatedAt(Instant.now());
         menuItemRepository.save(item);
+        priceBookService.bumpVersion(item.getRestaurant().getRestaurantId());
 
         mediaService.deleteAllMediaForTarget(id, "MENU_ITEM_IMAGE");
 
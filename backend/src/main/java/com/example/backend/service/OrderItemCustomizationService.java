@@ -11,14 +11,22 @@ import com.example.backend.mapper.OrderItemCustomizationMapper;
 import com.example.backend.repository.CustomizationRepository;
 import com.example.backend.repository.OrderItemCustomizationRepository;
 import com.example.backend.repository.OrderItemRepository;
+import com.example.backend.service.PriceBookService.PriceBook;
+import com.example.backend.service.PriceBookService.PriceEntry;
+import com.example.backend.utils.Money;
 
 import org.springframework.stereotype.Service;
 
-import java.math.BigDecimal;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.UUID;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
@@ -39,19 +47,57 @@ public class OrderItemCustomizationService {
         this.orderItemRepository = orderItemRepository;
     }
 
-    public Set<OrderItemCustomization> createOrderItemCustomization(OrderItem orderItem, List<CreateOrderItemCustomizationRequest> createOrderItemCustomizationRequestList) {
-        List<OrderItemCustomization> orderItemCustomizations = new ArrayList<>();
+    // build and price the customizations of an orderItem against the price book, the caller is responsible for saving them
+    public Set<OrderItemCustomization> createOrderItemCustomization(OrderItem orderItem, List<CreateOrderItemCustomizationRequest> createOrderItemCustomizationRequestList, PriceBook priceBook) {
+        Set<OrderItemCustomization> orderItemCustomizations = new LinkedHashSet<>();
+        if (createOrderItemCustomizationRequestList == null)
+            return orderItemCustomizations;
         for (CreateOrderItemCustomizationRequest createOrderItemCustomizationRequest : createOrderItemCustomizationRequestList) {
             OrderItemCustomization orderItemCustomization = orderItemCustomizationMapper.createOrderItemCustomization(createOrderItemCustomizationRequest);
-            // orderItem is already saved in db
             orderItemCustomization.setOrderItem(orderItem);
-            Customization customization = customizationRepository.findById(createOrderItemCustomizationRequest.getCustomizationId()).orElseThrow(() -> new AppException(ErrorCode.CUSTOMIZATION_NOT_FOUND));
-            orderItemCustomization.setCustomization(customization);
+            UUID customizationId = createOrderItemCustomizationRequest.getCustomizationId();
+            PriceEntry customization = priceBook.getCustomization(customizationId);
+            // the id is known to exist, a reference is enough for the foreign key
+            orderItemCustomization.setCustomization(customizationRepository.getReferenceById(customizationId));
             // recalculate the price from front end
-            orderItemCustomization.setTotalPrice(customization.getPrice().multiply(BigDecimal.valueOf(createOrderItemCustomizationRequest.getQuantity())));
+            orderItemCustomization.setTotalPrice(customization.price().times(createOrderItemCustomizationRequest.getQuantity()).toBigDecimal());
             orderItemCustomizations.add(orderItemCustomization);
         }
-        return orderItemCustomizationRepository.saveAll(orderItemCustomizations).stream().collect(Collectors.toSet());
+        return orderItemCustomizations;
+    }
+
+    // used by OrderItemService to resolve every customization added by a batch edit with a single lookup
+    public Map<UUID, Customization> findCustomizations(Collection<UUID> customizationIds) {
+        if (customizationIds.isEmpty())
+            return Collections.emptyMap();
+        return customizationRepository.findAllById(customizationIds).stream().collect(Collectors.toMap(Customization::getCustomizationId, Function.identity()));
+    }
+
+    // used by OrderItemService, flushed together with the rest of a batch edit
+    public void saveOrderItemCustomizations(List<OrderItemCustomization> orderItemCustomizations) {
+        if (!orderItemCustomizations.isEmpty())
+            orderItemCustomizationRepository.saveAll(orderItemCustomizations);
+    }
+
+    public void deleteOrderItemCustomizations(List<OrderItemCustomization> orderItemCustomizations) {
+        if (!orderItemCustomizations.isEmpty())
+            orderItemCustomizationRepository.deleteAll(orderItemCustomizations);
+    }
+
+    // used by OrderLineService, orderItems must be persisted in the same transaction before this is flushed
+    public void saveOrderItemCustomizations(Collection<OrderItem> orderItems) {
+        List<OrderItemCustomization> orderItemCustomizations = new ArrayList<>();
+        for (OrderItem orderItem : orderItems)
+            orderItemCustomizations.addAll(orderItem.getOrderItemCustomizations());
+        if (!orderItemCustomizations.isEmpty())
+            orderItemCustomizationRepository.saveAll(orderItemCustomizations);
+    }
+
+    // unit price at order time, the total was priced as unit price * quantity so the division is exact
+    // a customization kept at 0 has no unit price left and is priced at the customization price
+    public Money getUnitPrice(OrderItemCustomization orderItemCustomization) {
+        return Money.of(orderItemCustomization.getTotalPrice()).perUnit(orderItemCustomization.getQuantity(),
+                () -> Money.of(orderItemCustomization.getCustomization().getPrice()));
     }
 
     // used by OrderItemService
@@ -63,8 +109,8 @@ public class OrderItemCustomizationService {
         {
             // update current customization
             OrderItemCustomization orderItemCustomization = optionalCustomization.get();
-            BigDecimal oldQuantity = BigDecimal.valueOf(orderItemCustomization.getQuantity());
-            orderItemCustomization.setTotalPrice(orderItemCustomization.getTotalPrice().divide(oldQuantity).multiply(BigDecimal.valueOf(orderItemCustomizationDTO.getQuantity())));
+            Money unitPrice = getUnitPrice(orderItemCustomization);
+            orderItemCustomization.setTotalPrice(unitPrice.times(orderItemCustomizationDTO.getQuantity()).toBigDecimal());
             orderItemCustomization.setQuantity(orderItemCustomizationDTO.getQuantity());
             return orderItemCustomizationRepository.save(orderItemCustomization);
         }
@@ -76,7 +122,7 @@ public class OrderItemCustomizationService {
             Customization customization = customizationRepository.findById(orderItemCustomizationDTO.getCustomizationId()).orElseThrow(() -> new AppException(ErrorCode.CUSTOMIZATION_NOT_FOUND));
             newOrderItemCustomization.setCustomization(customization);
             newOrderItemCustomization.setOrderItem(orderItem);
-            newOrderItemCustomization.setTotalPrice(BigDecimal.valueOf(newOrderItemCustomization.getQuantity()).multiply(customization.getPrice()));
+            newOrderItemCustomization.setTotalPrice(Money.of(customization.getPrice()).times(newOrderItemCustomization.getQuantity()).toBigDecimal());
             return orderItemCustomizationRepository.save(newOrderItemCustomization);
         }
     }
@@ -1,9 +1,12 @@
 package com.example.backend.service;
 
+import com.example.backend.dto.OrderItemCustomizationDTO;
 import com.example.backend.dto.OrderItemDTO;
 import com.example.backend.dto.OrderLineDTO;
 import com.example.backend.dto.request.CreateOrderItemRequest;
-import com.example.backend.entities.MenuItem;
+import com.example.backend.dto.request.UpdateOrderLineItemsRequest;
+import com.example.backend.entities.AreaTable;
+import com.example.backend.entities.Customization;
 import com.example.backend.entities.Order;
 import com.example.backend.entities.OrderItem;
 import com.example.backend.entities.OrderItemCustomization;
@@ -16,15 +19,26 @@ import com.example.backend.repository.MenuItemRepository;
 import com.example.backend.repository.OrderItemRepository;
 import com.example.backend.repository.OrderLineRepository;
 import com.example.backend.repository.OrderRepository;
+import com.example.backend.service.KitchenTicketService.Ticket;
+import com.example.backend.service.PriceBookService.PriceBook;
+import com.example.backend.service.PriceBookService.PriceEntry;
+import com.example.backend.utils.Money;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
 import java.util.stream.Collectors;
@@ -39,6 +53,8 @@ public class OrderItemService {
     private final OrderLineMapper orderLineMapper;
     private final OrderLineRepository orderLineRepository;
     private final OrderRepository orderRepository;
+    private final RoomEventEmitter roomEventEmitter;
+    private final KitchenTicketService kitchenTicketService;
     private Logger logger = LoggerFactory.getLogger(getClass());
 
     public OrderItemService(OrderItemRepository orderItemRepository,
@@ -47,7 +63,9 @@ public class OrderItemService {
                             OrderItemMapper orderItemMapper,
                             OrderLineMapper orderLineMapper,
                             OrderLineRepository orderLineRepository,
-                            OrderRepository orderRepository) {
+                            OrderRepository orderRepository,
+                            RoomEventEmitter roomEventEmitter,
+                            KitchenTicketService kitchenTicketService) {
         this.orderItemRepository = orderItemRepository;
         this.menuItemRepository = menuItemRepository;
         this.orderItemCustomizationService = orderItemCustomizationService;
@@ -55,43 +73,50 @@ public class OrderItemService {
         this.orderLineMapper = orderLineMapper;
         this.orderLineRepository = orderLineRepository;
         this.orderRepository = orderRepository;
+        this.roomEventEmitter = roomEventEmitter;
+        this.kitchenTicketService = kitchenTicketService;
     }
 
     // called by OrderLineService, when customer create a request -> no response back to customer
-    public Set<OrderItem> createOrderItem(List<CreateOrderItemRequest> createOrderItemRequestList, OrderLine orderLine) {
+    // menu items and customizations are priced against the restaurant price book, no query is sent here
+    // nothing is saved here: OrderLineService persists the orderLine (cascade to orderItems) and the customizations in one flush
+    public Set<OrderItem> createOrderItem(List<CreateOrderItemRequest> createOrderItemRequestList, OrderLine orderLine, PriceBook priceBook) {
         Set<OrderItem> orderItems = new LinkedHashSet<>();
         for (CreateOrderItemRequest createOrderItemRequest : createOrderItemRequestList) {
             OrderItem orderItem = orderItemMapper.createOrderItem(createOrderItemRequest);
-            MenuItem menuItem = menuItemRepository.findById(createOrderItemRequest.getMenuItemId()).orElseThrow(() -> new AppException(ErrorCode.MENUITEM_NOT_FOUND));
-            orderItem.setMenuItem(menuItem);
+            UUID menuItemId = createOrderItemRequest.getMenuItemId();
+            PriceEntry menuItem = priceBook.getMenuItem(menuItemId);
+            // the id is known to exist, a reference is enough for the foreign key
+            orderItem.setMenuItem(menuItemRepository.getReferenceById(menuItemId));
             orderItem.setOrderLine(orderLine);
-            OrderItem savedOrderItem = orderItemRepository.save(orderItem);
-            // save the orderItem first then fetch it and use in orderItemCustomizationService.createOrderItemCustomization 
-            savedOrderItem.setOrderItemCustomizations(orderItemCustomizationService.createOrderItemCustomization(savedOrderItem, createOrderItemRequest.getCustomizations()));
-            BigDecimal basePrice = menuItem.getPrice().multiply(BigDecimal.valueOf(createOrderItemRequest.getQuantity()));
-            savedOrderItem.setTotalPrice(basePrice.add(getCustomizationPrice(savedOrderItem.getOrderItemCustomizations())));
-            orderItems.add(orderItemRepository.save(savedOrderItem));
+            orderItem.setOrderItemCustomizations(orderItemCustomizationService.createOrderItemCustomization(orderItem, createOrderItemRequest.getCustomizations(), priceBook));
+            Money basePrice = menuItem.price().times(createOrderItemRequest.getQuantity());
+            orderItem.setTotalPrice(basePrice.plus(getCustomizationPrice(orderItem.getOrderItemCustomizations())).toBigDecimal());
+            orderItems.add(orderItem);
         }
         return orderItems;
     }
 
-    private BigDecimal getCustomizationPrice(Set<OrderItemCustomization> orderItemCustomizations) {
-        BigDecimal customizationTotal = BigDecimal.ZERO;
+    private Money getCustomizationPrice(Set<OrderItemCustomization> orderItemCustomizations) {
+        Money customizationTotal = Money.ZERO;
         for (OrderItemCustomization orderItemCustomization : orderItemCustomizations) {
-            customizationTotal = customizationTotal.add(orderItemCustomization.getTotalPrice());
+            customizationTotal = customizationTotal.plus(Money.of(orderItemCustomization.getTotalPrice()));
         }
         return customizationTotal;
     }
 
     // waiter action
     // update orderItem: increase quantity or remove an orderItem, change customization for an orderItem
+    // totals of orderLine and order are moved by the price difference of this orderItem with atomic sql increments
+    @Transactional
     public OrderItemDTO updateOrderItem(OrderItemDTO orderItemDTO) {
         OrderItem orderItem = orderItemRepository.findById(orderItemDTO.getOrderItemId()).orElseThrow(() -> new AppException(ErrorCode.ORDERITEM_NOT_EXISTS));
         OrderItem orderItemClone = orderItem;
+        Money oldOrderItemPrice = getCountedPrice(orderItem);
         
         // old customization handling
         Set<OrderItemCustomization> oldCustomization = orderItem.getOrderItemCustomizations();
-        BigDecimal oldCustomizationPrice = getCustomizationPrice(oldCustomization);
+        Money oldCustomizationPrice = getCustomizationPrice(oldCustomization);
         
         // new customization handling
         // this will update orderItemCustomization in db, not just create shallow copy of orderItemCustomization
@@ -99,7 +124,7 @@ public class OrderItemService {
         Set<OrderItemCustomization> newCustomization = orderItemDTO.getCustomizations().stream().filter(customization -> customization.getQuantity() != 0)
                                                                                                 .map(customization -> orderItemCustomizationService.udpateOrderItemCustomization(customization, orderItemClone))
                                                                                                 .collect(Collectors.toSet());
-        BigDecimal newCustomizationPrice = getCustomizationPrice(newCustomization);
+        Money newCustomizationPrice = getCustomizationPrice(newCustomization);
         // delete customization -> quantity must be 0
         orderItemDTO.getCustomizations().stream().filter(customization -> customization.getQuantity() == 0).forEach(orderItemCustomizationService::deleteOrderItemCustomization);
         
@@ -107,8 +132,8 @@ public class OrderItemService {
         orderItem.setOrderItemCustomizations(newCustomization);
         int oldQuantity = orderItem.getQuantity();
         orderItem.setQuantity(orderItemDTO.getQuantity());
-        BigDecimal basePrice = orderItem.getTotalPrice().subtract(oldCustomizationPrice).divide(BigDecimal.valueOf(oldQuantity));
-        orderItem.setTotalPrice(basePrice.multiply(BigDecimal.valueOf(orderItem.getQuantity())).add(newCustomizationPrice));
+        Money basePrice = getUnitPrice(orderItem, oldCustomizationPrice, oldQuantity);
+        orderItem.setTotalPrice(basePrice.times(orderItem.getQuantity()).plus(newCustomizationPrice).toBigDecimal());
 
         // update note and status
         orderItem.setNote(orderItemDTO.getNote());
@@ -116,54 +141,165 @@ public class OrderItemService {
         
         orderItem = orderItemRepository.save(orderItem);
         
-        // re-calculate totalPrice of orderLine after update orderItem
-        OrderLine orderLine = orderItem.getOrderLine();
-        BigDecimal oldOrderLinePrice = orderLine.getTotalPrice();
-        BigDecimal newOrderLinePrice = reCalculateOrderLinePrice(orderLine);
-
-        // may need to re-calculate totalPrice of order
-        Order order = orderLine.getOrder();
-        reCalculateOrderPrice(order, oldOrderLinePrice, newOrderLinePrice);
+        // re-calculate totalPrice of orderLine and order after update orderItem
+        applyOrderLineDelta(orderItem.getOrderLine().getOrderLineId(), getCountedPrice(orderItem).minus(oldOrderItemPrice));
+        publishOrderLine(orderItem.getOrderLine().getOrderLineId());
 
         return orderItemMapper.toOrderItemDTO(orderItem);
     }
 
-    private BigDecimal getOrderLinePrice(Set<OrderItem> orderItems) {
-        BigDecimal orderLinePrice = BigDecimal.ZERO;
-        for (OrderItem orderItem : orderItems) {
-            if (orderItem.isStatus())
-                orderLinePrice = orderLinePrice.add(orderItem.getTotalPrice());
+    // waiter action, every edit, deletion and customization change of one orderLine in one transaction
+    // the orderLine and its orderItems are loaded with one query, added customizations resolved with one lookup
+    // and the totals of orderLine and order are moved once by the difference of the whole orderLine
+    @Transactional
+    public OrderLineDTO updateOrderItems(UpdateOrderLineItemsRequest request) {
+        OrderLine orderLine = orderLineRepository.findByIdWithOrderItems(request.getOrderLineId()).orElseThrow(() -> new AppException(ErrorCode.ORDERLINE_NOT_EXISTS));
+        Map<UUID, OrderItem> orderItems = new HashMap<>();
+        for (OrderItem orderItem : orderLine.getOrderItems())
+            orderItems.put(orderItem.getOrderItemId(), orderItem);
+        Money oldOrderLinePrice = getCountedPrice(orderItems.values());
+
+        Set<UUID> addedCustomizationIds = new HashSet<>();
+        for (OrderItemDTO orderItemDTO : request.getOrderItems()) {
+            Set<UUID> existingIds = getOrderItem(orderItems, orderItemDTO.getOrderItemId()).getOrderItemCustomizations().stream()
+                                                                                           .map(OrderItemCustomization::getOrderItemCustomizationId)
+                                                                                           .collect(Collectors.toSet());
+            for (OrderItemCustomizationDTO customizationDTO : getCustomizations(orderItemDTO)) {
+                if (customizationDTO.getQuantity() != 0 && !existingIds.contains(customizationDTO.getOrderItemCustomizationId()))
+                    addedCustomizationIds.add(customizationDTO.getCustomizationId());
+            }
+        }
+        Map<UUID, Customization> customizations = orderItemCustomizationService.findCustomizations(addedCustomizationIds);
+
+        List<OrderItemCustomization> savedCustomizations = new ArrayList<>();
+        List<OrderItemCustomization> deletedCustomizations = new ArrayList<>();
+        for (OrderItemDTO orderItemDTO : request.getOrderItems())
+            applyOrderItemChange(getOrderItem(orderItems, orderItemDTO.getOrderItemId()), orderItemDTO, customizations, savedCustomizations, deletedCustomizations);
+        for (UUID deletedOrderItemId : request.getDeletedOrderItemIds()) {
+            OrderItem orderItem = getOrderItem(orderItems, deletedOrderItemId);
+            orderItem.setStatus(false);
+            deletedCustomizations.addAll(orderItem.getOrderItemCustomizations());
+            orderItem.getOrderItemCustomizations().clear();
+        }
+        orderItemCustomizationService.deleteOrderItemCustomizations(deletedCustomizations);
+        orderItemCustomizationService.saveOrderItemCustomizations(savedCustomizations);
+
+        Money delta = getCountedPrice(orderItems.values()).minus(oldOrderLinePrice);
+        applyOrderLineDelta(orderLine.getOrderLineId(), delta);
+
+        OrderLineDTO orderLineDTO = orderLineMapper.toOrderLineDTO(orderLine);
+        // the bulk update above does not refresh the loaded orderLine
+        orderLineDTO.setTotalPrice(Money.of(orderLine.getTotalPrice()).plus(delta).toBigDecimal());
+        AreaTable table = orderLine.getOrder().getAreaTable();
+        orderLineDTO.setTableTag(table.getTag());
+        orderLineDTO.setAreaName(table.getArea().getName());
+        UUID branchId = table.getArea().getBranch().getBranchId();
+        kitchenTicketService.upsert(branchId, orderLineDTO, orderLine.getCreatedAt());
+        // one event for the whole batch, only once it is committed
+        roomEventEmitter.emitAfterCommit(branchId.toString(), "update_orderLine", orderLineDTO.getOrderLineId(), orderLineDTO);
+        return orderLineDTO;
+    }
+
+    private OrderItem getOrderItem(Map<UUID, OrderItem> orderItems, UUID orderItemId) {
+        OrderItem orderItem = orderItems.get(orderItemId);
+        if (orderItem == null)
+            throw new AppException(ErrorCode.ORDERITEM_NOT_EXISTS);
+        return orderItem;
+    }
+
+    private List<OrderItemCustomizationDTO> getCustomizations(OrderItemDTO orderItemDTO) {
+        return orderItemDTO.getCustomizations() == null ? Collections.emptyList() : orderItemDTO.getCustomizations();
+    }
+
+    // same rules as updateOrderItem, customizations not listed in orderItemDTO are kept as they are
+    private void applyOrderItemChange(OrderItem orderItem, OrderItemDTO orderItemDTO, Map<UUID, Customization> customizations,
+                                      List<OrderItemCustomization> savedCustomizations, List<OrderItemCustomization> deletedCustomizations) {
+        Map<UUID, OrderItemCustomization> current = new HashMap<>();
+        for (OrderItemCustomization orderItemCustomization : orderItem.getOrderItemCustomizations())
+            current.put(orderItemCustomization.getOrderItemCustomizationId(), orderItemCustomization);
+        Money basePrice = getUnitPrice(orderItem, getCustomizationPrice(orderItem.getOrderItemCustomizations()), orderItem.getQuantity());
+
+        for (OrderItemCustomizationDTO customizationDTO : getCustomizations(orderItemDTO)) {
+            OrderItemCustomization orderItemCustomization = current.get(customizationDTO.getOrderItemCustomizationId());
+            if (customizationDTO.getQuantity() == 0) {
+                // delete customization -> quantity must be 0
+                if (orderItemCustomization != null) {
+                    orderItem.getOrderItemCustomizations().remove(orderItemCustomization);
+                    deletedCustomizations.add(orderItemCustomization);
+                }
+            } else if (orderItemCustomization != null) {
+                Money unitPrice = orderItemCustomizationService.getUnitPrice(orderItemCustomization);
+                orderItemCustomization.setQuantity(customizationDTO.getQuantity());
+                orderItemCustomization.setTotalPrice(unitPrice.times(customizationDTO.getQuantity()).toBigDecimal());
+            } else {
+                Customization customization = customizations.get(customizationDTO.getCustomizationId());
+                if (customization == null)
+                    throw new AppException(ErrorCode.CUSTOMIZATION_NOT_FOUND);
+                OrderItemCustomization added = new OrderItemCustomization();
+                added.setOrderItem(orderItem);
+                added.setCustomization(customization);
+                added.setQuantity(customizationDTO.getQuantity());
+                added.setTotalPrice(Money.of(customization.getPrice()).times(customizationDTO.getQuantity()).toBigDecimal());
+                orderItem.getOrderItemCustomizations().add(added);
+                savedCustomizations.add(added);
+            }
         }
-        return orderLinePrice;
+
+        orderItem.setQuantity(orderItemDTO.getQuantity());
+        orderItem.setTotalPrice(basePrice.times(orderItem.getQuantity()).plus(getCustomizationPrice(orderItem.getOrderItemCustomizations())).toBigDecimal());
+        orderItem.setNote(orderItemDTO.getNote());
+        orderItem.setStatus(orderItemDTO.isStatus());
+    }
+
+    // unit price at order time, the customizations are taken out before dividing by the quantity and the quotient
+    // is rounded to the minor unit; an orderItem set to 0 before has no unit price left and is priced at the menu item price
+    private Money getUnitPrice(OrderItem orderItem, Money customizationPrice, int quantity) {
+        return Money.of(orderItem.getTotalPrice()).minus(customizationPrice).perUnit(quantity, () -> Money.of(orderItem.getMenuItem().getPrice()));
     }
 
     // implement soft delete
+    @Transactional
     public boolean deleteOrderItem(UUID orderItemId) {
         OrderItem orderItem = orderItemRepository.findById(orderItemId).orElseThrow(() -> new AppException(ErrorCode.ORDERITEM_NOT_EXISTS));
+        Money oldOrderItemPrice = getCountedPrice(orderItem);
         orderItem.setStatus(false);
         // delete orderItemCustomization
         orderItem.getOrderItemCustomizations().forEach(customization -> orderItemCustomizationService.deleteOrderItemCustomization(customization));
         orderItem.setOrderItemCustomizations(Collections.emptySet());
         orderItem = orderItemRepository.save(orderItem);
         
-        // re-calculate totalPrice of orderLine after update orderItem
-        OrderLine orderLine = orderItem.getOrderLine();
-        BigDecimal oldOrderLinePrice = orderLine.getTotalPrice();
-        BigDecimal newOrderLinePrice = reCalculateOrderLinePrice(orderLine);
-
-        // may need to re-calculate totalPrice of order
-        Order order = orderLine.getOrder();
-        return reCalculateOrderPrice(order, oldOrderLinePrice, newOrderLinePrice);
+        // re-calculate totalPrice of orderLine and order after update orderItem
+        boolean updated = applyOrderLineDelta(orderItem.getOrderLine().getOrderLineId(), oldOrderItemPrice.negate());
+        publishOrderLine(orderItem.getOrderLine().getOrderLineId());
+        return updated;
+    }
+
+    // rebuild the kitchen ticket and push the whole orderLine to the branch, screens replace their copy
+    private void publishOrderLine(UUID orderLineId) {
+        Ticket ticket = kitchenTicketService.refresh(orderLineId);
+        roomEventEmitter.emitAfterCommit(ticket.branchId().toString(), "update_orderLine", orderLineId, ticket.orderLine());
+    }
+
+    // soft deleted orderItems are not part of the orderLine total
+    private Money getCountedPrice(OrderItem orderItem) {
+        return orderItem.isStatus() ? Money.of(orderItem.getTotalPrice()) : Money.ZERO;
     }
 
-    private BigDecimal reCalculateOrderLinePrice(OrderLine orderLine) {
-        orderLine.setTotalPrice(getOrderLinePrice(orderLine.getOrderItems()));
-        orderLine = orderLineRepository.save(orderLine);
-        return orderLine.getTotalPrice();
+    private Money getCountedPrice(Collection<OrderItem> orderItems) {
+        Money total = Money.ZERO;
+        for (OrderItem orderItem : orderItems)
+            total = total.plus(getCountedPrice(orderItem));
+        return total;
     }
 
-    private boolean reCalculateOrderPrice(Order order, BigDecimal oldOrderLinePrice, BigDecimal newOrderLinePrice) {
-        order.setTotalPrice(order.getTotalPrice().subtract(oldOrderLinePrice).add(newOrderLinePrice));
-        return orderRepository.save(order) != null;
+    // total_price = total_price + delta on orderLine and on its order, without loading orderLine.orderItems
+    private boolean applyOrderLineDelta(UUID orderLineId, Money delta) {
+        if (delta.isZero())
+            return true;
+        Instant now = Instant.now();
+        BigDecimal amount = delta.toBigDecimal();
+        boolean updated = orderLineRepository.addToTotalPrice(orderLineId, amount, now) == 1;
+        orderRepository.addOrderLineDeltaToTotalPrice(orderLineId, amount, now);
+        return updated;
     }
 }
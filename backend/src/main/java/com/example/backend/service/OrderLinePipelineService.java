@@ -0,0 +1,222 @@
+package com.example.backend.service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.backend.dto.request.CreateOrderLineRequest;
+import com.example.backend.exception.AppException;
+import com.example.backend.exception.ErrorCode;
+import com.example.backend.service.OrderLineService.PreparedOrderLine;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Optional write-behind mode for guest order submission.
+ * The request only validates and prices the orderLine, appends it to a bounded queue and returns.
+ * A writer drains the queue in batches, groups them per branch and persists each group
+ * in one transaction on a virtual thread.
+ */
+@Service
+public class OrderLinePipelineService {
+
+    private final Logger logger = LoggerFactory.getLogger(OrderLinePipelineService.class);
+    private final OrderLineService orderLineService;
+    private final TransactionTemplate transactionTemplate;
+
+    private final boolean enabled;
+    private final int batchSize;
+    private final long pollTimeoutMs;
+    private final BlockingQueue<PreparedOrderLine> queue;
+
+    private final Counter acceptedCounter;
+    private final Counter rejectedCounter;
+    private final Counter persistedCounter;
+    private final Counter failedCounter;
+    private final DistributionSummary batchSizeSummary;
+    private final Timer batchTimer;
+    private final Timer queueLatencyTimer;
+
+    private ExecutorService branchWriters;
+    private Thread writerThread;
+    private volatile boolean running;
+    private final ReadWriteLock stateLock = new ReentrantReadWriteLock();
+
+    public OrderLinePipelineService(OrderLineService orderLineService,
+                                    PlatformTransactionManager transactionManager,
+                                    MeterRegistry meterRegistry,
+                                    @Value("${order.pipeline.enabled}") boolean enabled,
+                                    @Value("${order.pipeline.queue-capacity}") int queueCapacity,
+                                    @Value("${order.pipeline.batch-size}") int batchSize,
+                                    @Value("${order.pipeline.poll-timeout-ms}") long pollTimeoutMs) {
+        this.orderLineService = orderLineService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.enabled = enabled;
+        this.batchSize = batchSize;
+        this.pollTimeoutMs = pollTimeoutMs;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+
+        Gauge.builder("order.pipeline.queue.depth", queue, BlockingQueue::size)
+                .description("Order lines accepted but not persisted yet")
+                .register(meterRegistry);
+        Gauge.builder("order.pipeline.queue.remaining", queue, BlockingQueue::remainingCapacity)
+                .description("Free slots before the pipeline starts rejecting order lines")
+                .register(meterRegistry);
+        this.acceptedCounter = Counter.builder("order.pipeline.accepted").register(meterRegistry);
+        this.rejectedCounter = Counter.builder("order.pipeline.rejected")
+                .description("Order lines rejected because the queue was full")
+                .register(meterRegistry);
+        this.persistedCounter = Counter.builder("order.pipeline.persisted").register(meterRegistry);
+        this.failedCounter = Counter.builder("order.pipeline.failed").register(meterRegistry);
+        this.batchSizeSummary = DistributionSummary.builder("order.pipeline.batch.size").register(meterRegistry);
+        this.batchTimer = Timer.builder("order.pipeline.batch.duration")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.queueLatencyTimer = Timer.builder("order.pipeline.queue.latency")
+                .description("Time between acknowledging an order line and persisting it")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    // entry point of POST /api/orderlines, persists synchronously when write-behind is disabled
+    public boolean createOrderLine(CreateOrderLineRequest createOrderLineRequest) {
+        if (!enabled)
+            return orderLineService.createOrderLine(createOrderLineRequest);
+        PreparedOrderLine preparedOrderLine = orderLineService.prepareOrderLine(createOrderLineRequest);
+        // shared with other requests, exclusive for stop(): once it returned the writer drains a queue that can only shrink
+        stateLock.readLock().lock();
+        try {
+            if (!running)
+                throw new AppException(ErrorCode.ORDER_PIPELINE_STOPPED);
+            // backpressure: never block the request thread, tell the guest to retry instead
+            if (!queue.offer(preparedOrderLine)) {
+                rejectedCounter.increment();
+                throw new AppException(ErrorCode.ORDER_PIPELINE_FULL);
+            }
+        } finally {
+            stateLock.readLock().unlock();
+        }
+        acceptedCounter.increment();
+        return true;
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled)
+            return;
+        running = true;
+        branchWriters = Executors.newVirtualThreadPerTaskExecutor();
+        writerThread = Thread.ofVirtual().name("order-pipeline-writer").start(this::drainLoop);
+        logger.info("Order pipeline write-behind mode enabled, queue capacity: " + queue.remainingCapacity());
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (!enabled)
+            return;
+        stateLock.writeLock().lock();
+        try {
+            running = false;
+        } finally {
+            stateLock.writeLock().unlock();
+        }
+        try {
+            writerThread.join(Duration.ofSeconds(30));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        branchWriters.shutdown();
+        logger.info("Order pipeline stopped, " + queue.size() + " order lines left in queue");
+    }
+
+    private void drainLoop() {
+        // keep draining after stop() until the queue is empty so that acknowledged order lines are not lost
+        while (running || !queue.isEmpty()) {
+            try {
+                PreparedOrderLine first = queue.poll(pollTimeoutMs, TimeUnit.MILLISECONDS);
+                if (first == null)
+                    continue;
+                List<PreparedOrderLine> batch = new ArrayList<>(batchSize);
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+                writeBatch(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                logger.error("Order pipeline writer failed", e);
+            }
+        }
+    }
+
+    private void writeBatch(List<PreparedOrderLine> batch) throws InterruptedException {
+        Timer.Sample sample = Timer.start();
+        batchSizeSummary.record(batch.size());
+        Map<UUID, List<PreparedOrderLine>> byBranch = new LinkedHashMap<>();
+        for (PreparedOrderLine preparedOrderLine : batch)
+            byBranch.computeIfAbsent(preparedOrderLine.branchId(), branchId -> new ArrayList<>()).add(preparedOrderLine);
+
+        List<Callable<Void>> tasks = new ArrayList<>();
+        for (List<PreparedOrderLine> branchBatch : byBranch.values()) {
+            tasks.add(() -> {
+                writeBranchBatch(branchBatch);
+                return null;
+            });
+        }
+        branchWriters.invokeAll(tasks);
+        sample.stop(batchTimer);
+    }
+
+    // one transaction per branch group, if it fails retry each order line alone so one bad line does not drop the others.
+    // the retry needs fresh entities because the ones of the failed batch already carry generated ids, they are priced
+    // with the price book captured at acceptance so a price change since then does not drop an acknowledged line
+    private void writeBranchBatch(List<PreparedOrderLine> branchBatch) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> branchBatch.forEach(orderLineService::persistOrderLine));
+            branchBatch.forEach(this::recordPersisted);
+        } catch (RuntimeException e) {
+            logger.warn("Order pipeline batch of branch " + branchBatch.get(0).branchId() + " failed, retrying one by one", e);
+            for (PreparedOrderLine preparedOrderLine : branchBatch) {
+                try {
+                    transactionTemplate.executeWithoutResult(status ->
+                            orderLineService.persistOrderLine(orderLineService.repricePreparedOrderLine(preparedOrderLine)));
+                    recordPersisted(preparedOrderLine);
+                } catch (RuntimeException single) {
+                    failedCounter.increment();
+                    logger.error("Order pipeline dropped order line of table " + preparedOrderLine.areaTableId(), single);
+                }
+            }
+        }
+    }
+
+    private void recordPersisted(PreparedOrderLine preparedOrderLine) {
+        persistedCounter.increment();
+        queueLatencyTimer.record(Duration.between(preparedOrderLine.receivedAt(), Instant.now()));
+    }
+
+}
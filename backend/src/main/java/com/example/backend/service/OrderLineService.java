@@ -1,34 +1,39 @@
 package com.example.backend.service;
 
-import com.corundumstudio.socketio.SocketIOServer;
+import com.example.backend.dto.OrderItemCustomizationDTO;
+import com.example.backend.dto.OrderItemDTO;
 import com.example.backend.dto.OrderLineDTO;
+import com.example.backend.dto.event.OrderLineStatusEvent;
 import com.example.backend.dto.request.CreateOrderLineRequest;
 import com.example.backend.dto.request.UpdateOrderLineStatusRequest;
 import com.example.backend.dto.response.UpdateOrderLineStatusResponse;
 import com.example.backend.entities.AreaTable;
-import com.example.backend.entities.Branch;
 import com.example.backend.entities.Order;
 import com.example.backend.entities.OrderItem;
 import com.example.backend.entities.OrderLine;
 import com.example.backend.entities.OrderLineStatus;
-import com.example.backend.entities.OrderStatus;
 import com.example.backend.exception.AppException;
 import com.example.backend.exception.ErrorCode;
 import com.example.backend.mapper.OrderItemMapper;
 import com.example.backend.mapper.OrderLineMapper;
 import com.example.backend.repository.BranchRepository;
+import com.example.backend.repository.OrderCustomRepository.OpenOrder;
 import com.example.backend.repository.OrderLineRepository;
+import com.example.backend.repository.OrderLineRepository.OrderLineOwner;
 import com.example.backend.repository.OrderRepository;
 import com.example.backend.repository.TableRepository;
+import com.example.backend.repository.TableRepository.TableOwner;
+import com.example.backend.service.PriceBookService.PriceBook;
+import com.example.backend.utils.Money;
 
 import org.slf4j.Logger;
+import org.springframework.dao.ConcurrencyFailureException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
-import java.math.BigDecimal;
 import java.time.Instant;
 import java.time.LocalDate;
 import java.time.ZoneId;
-import java.util.ArrayList;
 import java.util.List;
 import java.util.Set;
 import java.util.UUID;
@@ -40,112 +45,188 @@ public class OrderLineService {
     private final OrderRepository orderRepository;
     private final OrderLineMapper orderLineMapper;
     private final OrderItemService orderItemService;
+    private final OrderItemCustomizationService orderItemCustomizationService;
     private final TableRepository tableRepository;
     private final BranchRepository branchRepository;
     private Logger logger = org.slf4j.LoggerFactory.getLogger(getClass());
-    private final SocketIOServer socketIOServer;
+    private final RoomEventEmitter roomEventEmitter;
+    private final PriceBookService priceBookService;
+    private final KitchenTicketService kitchenTicketService;
+    private final BranchLiveStatsService branchLiveStatsService;
+    private final ReportCacheService reportCacheService;
 
     public OrderLineService(OrderLineRepository orderLineRepository,
                             OrderLineMapper orderLineMapper,
                             OrderItemService orderItemService,
+                            OrderItemCustomizationService orderItemCustomizationService,
                             OrderRepository orderRepository,
                             TableRepository tableRepository,
                             BranchRepository branchRepository,
-                            SocketIOServer socketIOServer) {
+                            RoomEventEmitter roomEventEmitter,
+                            PriceBookService priceBookService,
+                            KitchenTicketService kitchenTicketService,
+                            BranchLiveStatsService branchLiveStatsService,
+                            ReportCacheService reportCacheService) {
         this.orderLineRepository = orderLineRepository;
         this.orderLineMapper = orderLineMapper;
         this.orderItemService = orderItemService;
+        this.orderItemCustomizationService = orderItemCustomizationService;
         this.orderRepository = orderRepository;
         this.tableRepository = tableRepository;
         this.branchRepository = branchRepository;
-        this.socketIOServer = socketIOServer;
+        this.roomEventEmitter = roomEventEmitter;
+        this.priceBookService = priceBookService;
+        this.kitchenTicketService = kitchenTicketService;
+        this.branchLiveStatsService = branchLiveStatsService;
+        this.reportCacheService = reportCacheService;
     }
 
+    // an orderLine validated and priced in memory, not persisted yet and not attached to an order
+    public record PreparedOrderLine(CreateOrderLineRequest request, UUID areaTableId, UUID branchId, OrderLine orderLine, PriceBook priceBook, Instant receivedAt) {
+    }
+
+    @Transactional
     public boolean createOrderLine(CreateOrderLineRequest createOrderLineRequest) {
-        // check whether this order line is first 
+        return persistOrderLine(prepareOrderLine(createOrderLineRequest));
+    }
+
+    // validate the table and price the whole line in memory so that every row is inserted exactly once later
+    // and hibernate can send orderLine, orderItems and orderItemCustomizations as jdbc batches in a single flush
+    public PreparedOrderLine prepareOrderLine(CreateOrderLineRequest createOrderLineRequest) {
+        UUID areaTableId = createOrderLineRequest.getAreaTableId();
+        TableOwner tableOwner = tableRepository.findOwnerByAreaTableId(areaTableId).orElseThrow(() -> new AppException(ErrorCode.TABLE_NOT_FOUND));
+        PriceBook priceBook = priceBookService.getPriceBook(tableOwner.getRestaurantId(), createOrderLineRequest.getPriceBookVersion());
+        return new PreparedOrderLine(createOrderLineRequest, areaTableId, tableOwner.getBranchId(),
+                priceOrderLine(createOrderLineRequest, priceBook), priceBook, Instant.now());
+    }
+
+    // fresh entities for a line whose batch rolled back, priced with the price book it was accepted with:
+    // the guest was already answered, a price change since then must not reject it
+    public PreparedOrderLine repricePreparedOrderLine(PreparedOrderLine preparedOrderLine) {
+        return new PreparedOrderLine(preparedOrderLine.request(), preparedOrderLine.areaTableId(), preparedOrderLine.branchId(),
+                priceOrderLine(preparedOrderLine.request(), preparedOrderLine.priceBook()), preparedOrderLine.priceBook(), preparedOrderLine.receivedAt());
+    }
+
+    private OrderLine priceOrderLine(CreateOrderLineRequest createOrderLineRequest, PriceBook priceBook) {
         OrderLine orderLine = new OrderLine();
-        Order order = checkOrderExist(createOrderLineRequest.getAreaTableId());
-        orderLine.setOrder(order);
         orderLine.setOrderLineStatus(OrderLineStatus.PENDING);
+        Set<OrderItem> orderItems = orderItemService.createOrderItem(createOrderLineRequest.getOrderItems(), orderLine, priceBook);
+        orderLine.setOrderItems(orderItems);
+        orderLine.setTotalPrice(getOrderLinePrice(orderItems).toBigDecimal());
+        return orderLine;
+    }
+
+    // guests send this version back with their order so a price change between browsing and ordering is detected
+    public long getPriceBookVersion(UUID areaTableId) {
+        TableOwner tableOwner = tableRepository.findOwnerByAreaTableId(areaTableId).orElseThrow(() -> new AppException(ErrorCode.TABLE_NOT_FOUND));
+        return priceBookService.getPriceBook(tableOwner.getRestaurantId()).version();
+    }
+
+    // must run inside a transaction: called by createOrderLine or by the write-behind writer of OrderLinePipelineService
+    public boolean persistOrderLine(PreparedOrderLine preparedOrderLine) {
+        // check whether this order line is first 
+        Order order = checkOrderExist(preparedOrderLine.areaTableId(), preparedOrderLine.branchId());
+        OrderLine orderLine = preparedOrderLine.orderLine();
+        orderLine.setOrder(order);
+        // orderItems are cascaded from orderLine, customizations are saved after their orderItems
         OrderLine savedOrderLine = orderLineRepository.save(orderLine);
-        // save the orderLine first then take it to use in orderItemService.createOrderItem
-        savedOrderLine.setOrderItems(orderItemService.createOrderItem(createOrderLineRequest.getOrderItems(), savedOrderLine));
-        savedOrderLine.setTotalPrice(getOrderLinePrice(savedOrderLine.getOrderItems()));
-        order.setTotalPrice(order.getTotalPrice().add(savedOrderLine.getTotalPrice()));
-        order = orderRepository.save(order);
-        savedOrderLine = orderLineRepository.save(savedOrderLine);
-        boolean createSuccessful = order != null && savedOrderLine != null;
+        orderItemCustomizationService.saveOrderItemCustomizations(savedOrderLine.getOrderItems());
+        orderRepository.addToTotalPrice(order.getOrderId(), savedOrderLine.getTotalPrice(), Instant.now());
+        boolean createSuccessful = savedOrderLine != null;
         if (createSuccessful)
         {
-            OrderLineDTO orderLineDTO = orderLineMapper.toOrderLineDTO(savedOrderLine);
+            OrderLineDTO orderLineDTO = toPricedOrderLineDTO(savedOrderLine, preparedOrderLine.priceBook());
             AreaTable table = savedOrderLine.getOrder().getAreaTable();
             orderLineDTO.setTableTag(table.getTag());
             orderLineDTO.setAreaName(table.getArea().getName());
-            String branchId = table.getArea().getBranch().getBranchId().toString();
-            socketIOServer.getRoomOperations(branchId).sendEvent("create_orderLine", orderLineDTO);
+            // creation timestamp is only generated on flush, the received time stands in for it until then
+            Instant createdAt = savedOrderLine.getCreatedAt() != null ? savedOrderLine.getCreatedAt() : preparedOrderLine.receivedAt();
+            if (orderLineDTO.getCreatedAt() == null)
+                orderLineDTO.setCreatedAt(createdAt.toString());
+            kitchenTicketService.upsert(preparedOrderLine.branchId(), orderLineDTO, createdAt);
+            // waiters must not see an orderLine that is rolled back together with the rest of its batch
+            roomEventEmitter.emitAfterCommit(preparedOrderLine.branchId().toString(), "create_orderLine", orderLineDTO.getOrderLineId(), orderLineDTO);
+            // every diner of the table sees the new orderLine enter PENDING
+            roomEventEmitter.emitAfterCommit(RoomEventPublisher.getTableRoom(preparedOrderLine.areaTableId(), order.getOrderId()), OrderLineStatusEvent.NAME,
+                    orderLineDTO.getOrderLineId(), new OrderLineStatusEvent(orderLineDTO.getOrderLineId(), OrderLineStatus.PENDING));
         }
         return createSuccessful;
     }
 
-    private BigDecimal getOrderLinePrice(Set<OrderItem> orderItems) {
-        BigDecimal orderLinePrice = BigDecimal.ZERO;
+    // names come from the price book so the menu items and customizations behind the references are never loaded
+    private OrderLineDTO toPricedOrderLineDTO(OrderLine orderLine, PriceBook priceBook) {
+        OrderLineDTO orderLineDTO = orderLineMapper.toPricedOrderLineDTO(orderLine);
+        for (OrderItemDTO orderItemDTO : orderLineDTO.getOrderItems()) {
+            orderItemDTO.setMenuItemName(priceBook.menuItems().get(orderItemDTO.getMenuItemId()).name());
+            for (OrderItemCustomizationDTO orderItemCustomizationDTO : orderItemDTO.getCustomizations())
+                orderItemCustomizationDTO.setCustomizationName(priceBook.customizations().get(orderItemCustomizationDTO.getCustomizationId()).name());
+        }
+        return orderLineDTO;
+    }
+
+    private Money getOrderLinePrice(Set<OrderItem> orderItems) {
+        Money orderLinePrice = Money.ZERO;
         for (OrderItem orderItem : orderItems) {
             if (orderItem.isStatus())
-                orderLinePrice = orderLinePrice.add(orderItem.getTotalPrice());
+                orderLinePrice = orderLinePrice.plus(Money.of(orderItem.getTotalPrice()));
         }
         return orderLinePrice;
     }
 
-    private Order createOrder(UUID areaTableId) {
-        Order order = new Order();
-        order.setAreaTable(tableRepository.findById(areaTableId).orElseThrow(() -> new AppException(ErrorCode.TABLE_NOT_FOUND)));
-        order.setStatus(OrderStatus.EATING);
-        return orderRepository.save(order);
-    }
-
-    // find the latest order of this table. If exist then there is currently customer eating at this table. If not then there is no customer at this table 
+    // find the open order of this table. If exist then there is currently customer eating at this table. If not then there is no customer at this table 
     // -> we create a new order for the new orderline. 
     // => this orderline will be the first orderline of this order of this table
+    // the lookup and the creation are a single upsert so diners ordering at the same time share one order
     // might need to check table status as well
-    private Order checkOrderExist(UUID areaTableId) {
-        return orderRepository.findTopByAreaTable_AreaTableIdAndStatusOrderByUpdatedAtDesc(areaTableId, OrderStatus.EATING).orElseGet( () -> createOrder(areaTableId));
+    private Order checkOrderExist(UUID areaTableId, UUID branchId) {
+        OpenOrder openOrder;
+        try {
+            openOrder = orderRepository.allocateOpenOrder(areaTableId).orElseThrow(() -> new AppException(ErrorCode.TABLE_NOT_FOUND));
+        } catch (ConcurrencyFailureException e) {
+            // retryable, unlike a missing table
+            throw new AppException(ErrorCode.OPEN_ORDER_CONFLICT);
+        }
+        if (openOrder.created()) {
+            branchLiveStatsService.orderOpened(branchId);
+            reportCacheService.orderChanged(branchId);
+        }
+        // the total is only touched through atomic increments, a reference is enough to attach the orderLine
+        return orderRepository.getReferenceById(openOrder.orderId());
     }
 
     // used to return orderItems today
-    // this returns orderItems with status false because of soft delete and mapping using mapstruct -> can try to fix this in mapper
+    // served from the kitchen_ticket read model: one indexed query, no orderLine, table, area or orderItem is loaded
     public List<OrderLineDTO> getOrderLinesByStatusAndBranch(UUID branchId, OrderLineStatus orderLineStatus) {
-        Branch branch = branchRepository.findById(branchId).orElseThrow(() -> new AppException(ErrorCode.BRANCH_NOTEXISTED));
+        if (!branchRepository.existsById(branchId))
+            throw new AppException(ErrorCode.BRANCH_NOTEXISTED);
         
         ZoneId zone = ZoneId.of("Asia/Ho_Chi_Minh");
         LocalDate today = LocalDate.now(zone);
         Instant startOfDay = today.atStartOfDay(zone).toInstant();
         Instant endOfDay = today.plusDays(1).atStartOfDay(zone).toInstant();
         
-        // List<OrderLine> orderLines = orderLineRepository.findAllByOrderLineStatusAndOrder_AreaTable_Area_Branch(orderLineStatus, branch);
-        List<OrderLine> orderLines = orderLineRepository.findAllTodayByStatusAndBranch(orderLineStatus, branch, startOfDay, endOfDay);
-        List<OrderLineDTO> orderLineDTOs = new ArrayList<>();
-        for (OrderLine orderLine : orderLines) {
-            OrderLineDTO orderLineDTO = orderLineMapper.toOrderLineDTO(orderLine);
-            AreaTable table = orderLine.getOrder().getAreaTable();
-            orderLineDTO.setTableTag(table.getTag());
-            orderLineDTO.setAreaName(table.getArea().getName());
-            orderLineDTOs.add(orderLineDTO);
-        }
-        return orderLineDTOs;
+        return kitchenTicketService.getTickets(branchId, orderLineStatus, startOfDay, endOfDay);
     }
 
+    @Transactional
     public UpdateOrderLineStatusResponse setOrderLineStatus(UpdateOrderLineStatusRequest request) {
         OrderLine orderLine = orderLineRepository.findById(request.getOrderLineId()).orElseThrow(() -> new AppException(ErrorCode.ORDERLINE_NOT_EXISTS));
         UpdateOrderLineStatusResponse result = new UpdateOrderLineStatusResponse();
         result.setPreviousStatus(orderLine.getOrderLineStatus());
-        if (request.getOrderLineStatus() == OrderLineStatus.CANCELLED) {
-            // re-calculate order total price 
-            Order order = orderLine.getOrder();
-            order.setTotalPrice(order.getTotalPrice().subtract(orderLine.getTotalPrice()));
-            orderRepository.save(order);
-        }
+        // re-calculate order total price, a cancelled orderLine does not count in its order
+        if (request.getOrderLineStatus() == OrderLineStatus.CANCELLED && orderLine.getOrderLineStatus() != OrderLineStatus.CANCELLED)
+            orderRepository.applyOrderLineTotal(orderLine.getOrderLineId(), -1, Instant.now());
+        else if (request.getOrderLineStatus() != OrderLineStatus.CANCELLED && orderLine.getOrderLineStatus() == OrderLineStatus.CANCELLED)
+            orderRepository.applyOrderLineTotal(orderLine.getOrderLineId(), 1, Instant.now());
         orderLine.setOrderLineStatus(request.getOrderLineStatus());
         orderLine = orderLineRepository.save(orderLine);
+        kitchenTicketService.updateStatus(orderLine.getOrderLineId(), orderLine.getOrderLineStatus());
+        OrderLineOwner owner = orderLineRepository.findOwnerByOrderLineId(orderLine.getOrderLineId()).orElseThrow(() -> new AppException(ErrorCode.ORDERLINE_NOT_EXISTS));
+        OrderLineStatusEvent statusEvent = new OrderLineStatusEvent(orderLine.getOrderLineId(), orderLine.getOrderLineStatus());
+        roomEventEmitter.emitAfterCommit(owner.getBranchId().toString(), OrderLineStatusEvent.NAME, orderLine.getOrderLineId(), statusEvent);
+        // guests at the table follow their orderLines without polling
+        roomEventEmitter.emitAfterCommit(RoomEventPublisher.getTableRoom(owner.getAreaTableId(), owner.getOrderId()), OrderLineStatusEvent.NAME,
+                orderLine.getOrderLineId(), statusEvent);
         result.setSuccessful( orderLine != null);
         result.setNewStatus(orderLine.getOrderLineStatus());
         return result;
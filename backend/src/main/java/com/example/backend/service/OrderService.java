@@ -1,6 +1,8 @@
 package com.example.backend.service;
 
 import com.example.backend.dto.OrderDTO;
+import com.example.backend.dto.OrderTotalDriftDTO;
+import com.example.backend.dto.event.OrderStatusEvent;
 import com.example.backend.dto.request.UpdateOrderStatusRequest;
 import com.example.backend.dto.response.UpdateOrderStatusResponse;
 import com.example.backend.entities.*;
@@ -8,21 +10,49 @@ import com.example.backend.exception.AppException;
 import com.example.backend.exception.ErrorCode;
 import com.example.backend.mapper.OrderMapper;
 import com.example.backend.repository.OrderRepository;
+import com.example.backend.repository.TableRepository;
+import com.example.backend.utils.Money;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDate;
+import java.time.ZoneId;
 import java.util.List;
 import java.util.UUID;
 
 @Service
 public class OrderService {
 
+    private static final ZoneId VIETNAM_TIMEZONE = ZoneId.of("Asia/Ho_Chi_Minh");
+
+    private final Logger logger = LoggerFactory.getLogger(OrderService.class);
     private final OrderMapper orderMapper;
     private final OrderRepository orderRepository;
+    private final KitchenTicketService kitchenTicketService;
+    private final TableRepository tableRepository;
+    private final RoomEventEmitter roomEventEmitter;
+    private final BranchLiveStatsService branchLiveStatsService;
+    private final ReportCacheService reportCacheService;
+    private final BranchTopSellersService branchTopSellersService;
 
     public OrderService(OrderMapper orderMapper,
-                        OrderRepository orderRepository) {
+                        OrderRepository orderRepository,
+                        KitchenTicketService kitchenTicketService,
+                        TableRepository tableRepository,
+                        RoomEventEmitter roomEventEmitter,
+                        BranchLiveStatsService branchLiveStatsService,
+                        ReportCacheService reportCacheService,
+                        BranchTopSellersService branchTopSellersService) {
         this.orderMapper = orderMapper;
         this.orderRepository = orderRepository;
+        this.kitchenTicketService = kitchenTicketService;
+        this.tableRepository = tableRepository;
+        this.roomEventEmitter = roomEventEmitter;
+        this.branchLiveStatsService = branchLiveStatsService;
+        this.reportCacheService = reportCacheService;
+        this.branchTopSellersService = branchTopSellersService;
     }
 
     public List<OrderDTO> getOrderByStatusAndBranch(UUID branchId, OrderStatus status) {
@@ -33,10 +63,53 @@ public class OrderService {
         Order order = orderRepository.findById(request.getOrderId()).orElseThrow(() -> new AppException(ErrorCode.ORDER_NOT_EXISTS));
         UpdateOrderStatusResponse response = new UpdateOrderStatusResponse();
         response.setPreviousStatus(order.getStatus());
+        // re-opening an order must not break the one open order per table rule
+        if (request.getOrderStatus() == OrderStatus.EATING && order.getStatus() != OrderStatus.EATING
+                && orderRepository.existsByAreaTable_AreaTableIdAndStatusAndOrderIdNot(order.getAreaTable().getAreaTableId(), OrderStatus.EATING, order.getOrderId()))
+            throw new AppException(ErrorCode.TABLE_ALREADY_HAS_PENDING_ORDER);
         order.setStatus(request.getOrderStatus());
         response.setNewStatus(order.getStatus());
         response.setSuccessful(orderRepository.save(order) != null);
+        UUID areaTableId = order.getAreaTable().getAreaTableId();
+        OrderStatusEvent statusEvent = new OrderStatusEvent(order.getOrderId(), areaTableId, response.getPreviousStatus(), response.getNewStatus());
+        tableRepository.findOwnerByAreaTableId(areaTableId).ifPresent(tableOwner -> {
+            roomEventEmitter.emitAfterCommit(tableOwner.getBranchId().toString(), OrderStatusEvent.NAME, order.getOrderId(), statusEvent);
+            reportCacheService.orderChanged(tableOwner.getBranchId());
+            // the items are only counted when the order enters or leaves COMPLETED
+            if ((response.getPreviousStatus() == OrderStatus.COMPLETED) != (response.getNewStatus() == OrderStatus.COMPLETED)) {
+                branchLiveStatsService.orderStatusChanged(tableOwner.getBranchId(), order.getCreatedAt(), response.getPreviousStatus(),
+                        response.getNewStatus(), Money.of(order.getTotalPrice()), orderRepository.sumItemQuantity(order.getOrderId()));
+                if (response.getNewStatus() == OrderStatus.COMPLETED)
+                    branchTopSellersService.orderCompleted(tableOwner.getBranchId(), order.getOrderId(), order.getCreatedAt());
+                else
+                    branchTopSellersService.orderReopened(tableOwner.getBranchId(), order.getCreatedAt());
+            }
+        });
+        roomEventEmitter.emitAfterCommit(RoomEventPublisher.getTableRoom(areaTableId, order.getOrderId()), OrderStatusEvent.NAME, order.getOrderId(), statusEvent);
         return response;
     }
 
+    // guests ask for the open order of their table once they ordered, it keys their live tracking room
+    public UUID getOpenOrderId(UUID areaTableId) {
+        return orderRepository.findOpenOrderIdByAreaTableId(areaTableId).orElseThrow(() -> new AppException(ErrorCode.ORDER_NOT_EXISTS));
+    }
+
+    public boolean isOpenOrder(UUID areaTableId, UUID orderId) {
+        return orderRepository.existsByOrderIdAndAreaTable_AreaTableIdAndStatus(orderId, areaTableId, OrderStatus.EATING);
+    }
+
+    // recompute stored totals of the branch orders created since the given day and fix the drifted ones
+    @Transactional
+    public List<OrderTotalDriftDTO> reconcileTotals(UUID branchId, LocalDate from) {
+        List<OrderTotalDriftDTO> drifts = orderRepository.reconcileTotals(branchId, from.atStartOfDay(VIETNAM_TIMEZONE).toInstant());
+        // kitchen tickets carry the orderLine total as well
+        for (OrderTotalDriftDTO drift : drifts) {
+            if ("ORDER_LINE".equals(drift.getScope()))
+                kitchenTicketService.refresh(drift.getOrderLineId());
+        }
+        if (!drifts.isEmpty())
+            logger.warn("Reconciled " + drifts.size() + " drifted totals for branch " + branchId);
+        return drifts;
+    }
+
 }
@@ -0,0 +1,113 @@
+package com.example.backend.service;
+
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Service;
+
+import com.example.backend.entities.MenuItemStatus;
+import com.example.backend.exception.AppException;
+import com.example.backend.exception.ErrorCode;
+import com.example.backend.repository.CustomizationRepository;
+import com.example.backend.repository.MenuItemRepository;
+import com.example.backend.utils.Money;
+import com.example.backend.utils.TransactionUtils;
+
+/**
+ * Immutable per-restaurant snapshot of menu item and customization prices used to price guest orders
+ * without touching the database.
+ * The version of each restaurant lives in redis so every instance notices writes made on another one:
+ * pricing costs one redis GET, the snapshot is only rebuilt (two queries) after the version moved.
+ */
+@Service
+public class PriceBookService {
+
+    private static final String VERSION_KEY_PREFIX = "pricebook:version:";
+
+    private final Logger logger = LoggerFactory.getLogger(PriceBookService.class);
+    private final MenuItemRepository menuItemRepository;
+    private final CustomizationRepository customizationRepository;
+    private final StringRedisTemplate redisTemplate;
+    private final Map<UUID, PriceBook> priceBooks = new ConcurrentHashMap<>();
+
+    public PriceBookService(MenuItemRepository menuItemRepository,
+                            CustomizationRepository customizationRepository,
+                            StringRedisTemplate redisTemplate) {
+        this.menuItemRepository = menuItemRepository;
+        this.customizationRepository = customizationRepository;
+        this.redisTemplate = redisTemplate;
+    }
+
+    public record PriceEntry(String name, Money price, boolean available) {
+    }
+
+    public record PriceBook(UUID restaurantId, long version, Map<UUID, PriceEntry> menuItems, Map<UUID, PriceEntry> customizations) {
+
+        // unknown ids belong to another restaurant or were deleted, unavailable ones cannot be ordered anymore
+        public PriceEntry getMenuItem(UUID menuItemId) {
+            PriceEntry entry = menuItems.get(menuItemId);
+            if (entry == null || !entry.available())
+                throw new AppException(ErrorCode.MENUITEM_NOT_FOUND);
+            return entry;
+        }
+
+        public PriceEntry getCustomization(UUID customizationId) {
+            PriceEntry entry = customizations.get(customizationId);
+            if (entry == null || !entry.available())
+                throw new AppException(ErrorCode.CUSTOMIZATION_NOT_FOUND);
+            return entry;
+        }
+    }
+
+    public PriceBook getPriceBook(UUID restaurantId) {
+        long version = getVersion(restaurantId);
+        PriceBook priceBook = priceBooks.get(restaurantId);
+        if (priceBook != null && priceBook.version() == version)
+            return priceBook;
+        // the version is read before loading, so a write committed meanwhile leaves this snapshot outdated and it is rebuilt next time
+        priceBook = load(restaurantId, version);
+        priceBooks.put(restaurantId, priceBook);
+        return priceBook;
+    }
+
+    // guests send the version their menu was priced with, an older one means the prices they saw have changed
+    public PriceBook getPriceBook(UUID restaurantId, Long expectedVersion) {
+        PriceBook priceBook = getPriceBook(restaurantId);
+        if (expectedVersion != null && expectedVersion != priceBook.version())
+            throw new AppException(ErrorCode.PRICE_BOOK_STALE);
+        return priceBook;
+    }
+
+    public long getVersion(UUID restaurantId) {
+        String version = redisTemplate.opsForValue().get(VERSION_KEY_PREFIX + restaurantId);
+        return version == null ? 0L : Long.parseLong(version);
+    }
+
+    // called by every write to menu item or customization prices and availability
+    // the version is bumped after commit so no instance can rebuild the snapshot from uncommitted rows
+    public void bumpVersion(UUID restaurantId) {
+        TransactionUtils.afterCommit(() -> incrementVersion(restaurantId));
+    }
+
+    private void incrementVersion(UUID restaurantId) {
+        redisTemplate.opsForValue().increment(VERSION_KEY_PREFIX + restaurantId);
+        priceBooks.remove(restaurantId);
+    }
+
+    private PriceBook load(UUID restaurantId, long version) {
+        Map<UUID, PriceEntry> menuItems = new HashMap<>();
+        for (Object[] row : menuItemRepository.findPriceRowsByRestaurantId(restaurantId))
+            menuItems.put((UUID) row[0], new PriceEntry((String) row[1], Money.of((BigDecimal) row[2]), row[3] == MenuItemStatus.ACTIVE));
+        Map<UUID, PriceEntry> customizations = new HashMap<>();
+        for (Object[] row : customizationRepository.findPriceRowsByRestaurantId(restaurantId))
+            customizations.put((UUID) row[0], new PriceEntry((String) row[1], Money.of((BigDecimal) row[2]), Boolean.TRUE.equals(row[3])));
+        logger.debug("Loaded price book of restaurant " + restaurantId + " version " + version);
+        return new PriceBook(restaurantId, version, Map.copyOf(menuItems), Map.copyOf(customizations));
+    }
+}
@@ -0,0 +1,73 @@
+package com.example.backend.service;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.stereotype.Service;
+
+import com.example.backend.service.RoomEventLog.RoomEvent;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Meters of the realtime layer shared by the socket.io and SSE transports.
+ * Branch rooms are tagged with their branch id, so runaway rooms show up on their own; the transports only let clients
+ * into rooms of existing branches, the number of series is bounded by the branches. Table rooms live as long as
+ * an order and are counted together under room=table to keep the number of series bounded.
+ */
+@Service
+public class RealtimeMetrics {
+
+    public static final String SOCKETIO = "socketio";
+    public static final String SSE = "sse";
+
+    private final MeterRegistry meterRegistry;
+    // one gauge per transport and room tag, registered on the first client and kept at 0 once the room is empty
+    private final Map<String, AtomicInteger> roomClients = new ConcurrentHashMap<>();
+
+    public RealtimeMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    public void connected(String transport, String room) {
+        String roomTag = getRoomTag(room);
+        meterRegistry.counter("realtime.connections", "transport", transport, "room", roomTag, "event", "connect").increment();
+        getRoomClients(transport, roomTag).incrementAndGet();
+    }
+
+    public void disconnected(String transport, String room) {
+        String roomTag = getRoomTag(room);
+        meterRegistry.counter("realtime.connections", "transport", transport, "room", roomTag, "event", "disconnect").increment();
+        getRoomClients(transport, roomTag).decrementAndGet();
+    }
+
+    // counted once on the node that sequenced the frame, relayed copies are not emitted again
+    public void emitted(String room, List<RoomEvent> events) {
+        String roomType = isTableRoom(room) ? "table" : "branch";
+        for (RoomEvent event : events)
+            meterRegistry.counter("realtime.events.emitted", "event", event.event(), "room_type", roomType).increment();
+        meterRegistry.counter("realtime.events.emitted.by_room", "room", getRoomTag(room)).increment(events.size());
+    }
+
+    private AtomicInteger getRoomClients(String transport, String roomTag) {
+        return roomClients.computeIfAbsent(transport + "|" + roomTag, key -> {
+            AtomicInteger clients = new AtomicInteger();
+            Gauge.builder("realtime.room.clients", clients, AtomicInteger::get)
+                    .description("Clients connected to a room on this node")
+                    .tags("transport", transport, "room", roomTag)
+                    .register(meterRegistry);
+            return clients;
+        });
+    }
+
+    private static boolean isTableRoom(String room) {
+        return room.startsWith(RoomEventPublisher.TABLE_ROOM_PREFIX);
+    }
+
+    private static String getRoomTag(String room) {
+        return isTableRoom(room) ? "table" : room;
+    }
+}
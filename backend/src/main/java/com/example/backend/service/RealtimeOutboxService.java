@@ -0,0 +1,226 @@
+package com.example.backend.service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.backend.repository.RealtimeOutboxRepository;
+import com.example.backend.repository.RealtimeOutboxRepository.OutboxRow;
+import com.example.backend.service.RoomEventLog.RoomEvent;
+import com.example.backend.utils.TransactionUtils;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Transactional outbox of the room events.
+ * Events raised inside a transaction are inserted into realtime_outbox by that transaction, so they exist
+ * exactly when the state change they describe was committed and the write path never waits for redis or socket.io.
+ * A dispatcher thread is woken after each commit (and polls for retries and rows left by a crashed node),
+ * claims due rows in batches, sends them as one frame per room and deletes them in the same transaction.
+ * A room that cannot be sent is put back with a backoff: delivery is at least once, clients tolerate a repeated state.
+ */
+@Service
+public class RealtimeOutboxService {
+
+    private final Logger logger = LoggerFactory.getLogger(RealtimeOutboxService.class);
+    private final RealtimeOutboxRepository realtimeOutboxRepository;
+    private final RoomEventPublisher roomEventPublisher;
+    private final RoomEventLog roomEventLog;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
+
+    private final boolean enabled;
+    private final int batchSize;
+    private final long pollMs;
+    private final long windowMs;
+    private final int maxAttempts;
+    private final long maxBackoffMs;
+    // permits only say "something was committed", any number of them is drained by one pass
+    private final Semaphore wakeUps = new Semaphore(0);
+
+    private final Timer lagTimer;
+    private final DistributionSummary claimSizeSummary;
+    private final Counter retriedCounter;
+    private final Counter droppedCounter;
+
+    private Thread dispatcherThread;
+    private volatile boolean running;
+
+    public RealtimeOutboxService(RealtimeOutboxRepository realtimeOutboxRepository,
+                                 RoomEventPublisher roomEventPublisher,
+                                 RoomEventLog roomEventLog,
+                                 ObjectMapper objectMapper,
+                                 PlatformTransactionManager transactionManager,
+                                 MeterRegistry meterRegistry,
+                                 @Value("${realtime.outbox.enabled}") boolean enabled,
+                                 @Value("${realtime.outbox.batch-size}") int batchSize,
+                                 @Value("${realtime.outbox.poll-ms}") long pollMs,
+                                 @Value("${realtime.outbox.max-attempts}") int maxAttempts,
+                                 @Value("${realtime.outbox.max-backoff-ms}") long maxBackoffMs,
+                                 @Value("${socketio.batch.enabled}") boolean batchEnabled,
+                                 @Value("${socketio.batch.window-ms}") long windowMs) {
+        this.realtimeOutboxRepository = realtimeOutboxRepository;
+        this.roomEventPublisher = roomEventPublisher;
+        this.roomEventLog = roomEventLog;
+        this.objectMapper = objectMapper;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.enabled = enabled;
+        this.batchSize = batchSize;
+        this.pollMs = pollMs;
+        this.windowMs = batchEnabled ? windowMs : 0L;
+        this.maxAttempts = maxAttempts;
+        this.maxBackoffMs = maxBackoffMs;
+
+        this.lagTimer = Timer.builder("realtime.outbox.lag")
+                .description("Time between writing an event to the outbox and sending it to its room")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.claimSizeSummary = DistributionSummary.builder("realtime.outbox.claim.size")
+                .description("Outbox rows claimed by one dispatch pass")
+                .register(meterRegistry);
+        this.retriedCounter = Counter.builder("realtime.outbox.retried")
+                .description("Outbox rows put back after their room could not be sent")
+                .register(meterRegistry);
+        this.droppedCounter = Counter.builder("realtime.outbox.dropped")
+                .description("Outbox rows given up after max-attempts or unreadable payload")
+                .register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    // must run inside the transaction of the state change, the dispatcher is woken once it commits
+    public void append(String room, String event, Object key, Object payload) {
+        String json;
+        try {
+            json = objectMapper.writeValueAsString(payload);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Cannot serialize " + event + " event of room " + room, e);
+        }
+        realtimeOutboxRepository.append(room, event, key == null ? null : key.toString(), json, Instant.now());
+        TransactionUtils.afterCommit(wakeUps::release);
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled)
+            return;
+        running = true;
+        dispatcherThread = Thread.ofVirtual().name("realtime-outbox-dispatcher").start(this::dispatchLoop);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (!enabled)
+            return;
+        running = false;
+        wakeUps.release();
+        try {
+            dispatcherThread.join(Duration.ofSeconds(10));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void dispatchLoop() {
+        while (running) {
+            try {
+                if (wakeUps.tryAcquire(pollMs, TimeUnit.MILLISECONDS)) {
+                    // same window as the in-memory batching: commits landing meanwhile leave in the same frame
+                    if (windowMs > 0)
+                        Thread.sleep(windowMs);
+                    wakeUps.drainPermits();
+                }
+                // keep claiming while full batches come back, rows stay in the table if this node stops midway
+                int claimed;
+                do {
+                    claimed = dispatchBatch();
+                } while (claimed == batchSize && running);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                logger.error("Realtime outbox dispatch failed", e);
+            }
+        }
+    }
+
+    private int dispatchBatch() {
+        Integer claimed = transactionTemplate.execute(status -> {
+            List<OutboxRow> rows = realtimeOutboxRepository.claim(batchSize, Instant.now());
+            if (rows.isEmpty())
+                return 0;
+            claimSizeSummary.record(rows.size());
+            Map<String, List<OutboxRow>> byRoom = new LinkedHashMap<>();
+            for (OutboxRow row : rows)
+                byRoom.computeIfAbsent(row.room(), room -> new ArrayList<>()).add(row);
+            byRoom.forEach(this::dispatchRoom);
+            return rows.size();
+        });
+        return claimed == null ? 0 : claimed;
+    }
+
+    // runs in the claiming transaction: a failed room is re-inserted and its rows stay in the table
+    private void dispatchRoom(String room, List<OutboxRow> rows) {
+        Map<String, RoomEvent> events = new LinkedHashMap<>();
+        int unkeyed = 0;
+        for (OutboxRow row : rows) {
+            JsonNode payload;
+            try {
+                payload = objectMapper.readTree(row.payload());
+            } catch (JsonProcessingException e) {
+                droppedCounter.increment();
+                logger.error("Dropped unreadable outbox row " + row.id() + " of room " + room, e);
+                continue;
+            }
+            RoomEvent roomEvent = new RoomEvent(0L, row.event(), row.eventKey(), payload);
+            // same conflation as RoomEventEmitter: the latest state of a ticket keeps the position of the first one
+            events.put(row.eventKey() == null ? row.event() + "#" + unkeyed++ : roomEvent.getConflationSlot(), roomEvent);
+        }
+        if (events.isEmpty())
+            return;
+        try {
+            roomEventPublisher.sendToRoom(room, roomEventLog.sequence(room, new ArrayList<>(events.values())));
+        } catch (RuntimeException e) {
+            logger.warn("Cannot send " + events.size() + " outbox events to room " + room + ", retrying later", e);
+            rows.forEach(this::reschedule);
+            return;
+        }
+        Instant now = Instant.now();
+        for (OutboxRow row : rows)
+            lagTimer.record(Duration.between(row.createdAt(), now));
+    }
+
+    private void reschedule(OutboxRow row) {
+        if (row.attempts() + 1 >= maxAttempts) {
+            droppedCounter.increment();
+            logger.error("Dropped outbox row " + row.id() + " " + row.event() + " of room " + row.room() + " after " + maxAttempts + " attempts");
+            return;
+        }
+        // 1s, 2s, 4s... capped, a redis outage must not turn into a tight retry loop
+        long backoffMs = Math.min(maxBackoffMs, 1000L << Math.min(row.attempts(), 20));
+        realtimeOutboxRepository.reschedule(row, Instant.now().plusMillis(backoffMs));
+        retriedCounter.increment();
+    }
+}
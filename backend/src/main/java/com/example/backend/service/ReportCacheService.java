@@ -0,0 +1,183 @@
+package com.example.backend.service;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Service;
+
+import com.example.backend.entities.ReportType;
+import com.example.backend.repository.BranchRepository;
+import com.example.backend.service.ReportRollupService.Period;
+import com.example.backend.utils.TransactionUtils;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Results of the report endpoints, shared by every viewer: caffeine on each node, redis between nodes.
+ * An entry is keyed by endpoint, scope (branch or restaurant), timeframe and the first day of its bucket.
+ * A closed bucket cannot change anymore once the rollup stopped recomputing its days, it is kept until evicted.
+ * The key of a current bucket also carries the generation of its branch or restaurant, a redis counter bumped
+ * after commit whenever an order of the branch opens or changes status: the old entries are simply never read
+ * again and expire, like the price book version a read costs one redis GET.
+ */
+@Service
+public class ReportCacheService {
+
+    private static final ZoneId VIETNAM_TIMEZONE = ZoneId.of("Asia/Ho_Chi_Minh");
+    private static final String KEY_PREFIX = "report-cache:";
+    private static final String GENERATION_KEY_PREFIX = "report-cache:generation:";
+
+    public enum Scope {
+        BRANCH, RESTAURANT
+    }
+
+    private final Logger logger = LoggerFactory.getLogger(ReportCacheService.class);
+    private final StringRedisTemplate redisTemplate;
+    private final ObjectMapper objectMapper;
+    private final BranchRepository branchRepository;
+    private final MeterRegistry meterRegistry;
+    private final boolean enabled;
+    private final int recomputeDays;
+    private final Duration closedTtl;
+    private final Duration currentTtl;
+    private final Cache<String, Object> closedBuckets;
+    private final Cache<String, Object> currentBuckets;
+    // a branch never moves to another restaurant
+    private final Map<UUID, UUID> branchRestaurants = new ConcurrentHashMap<>();
+
+    public ReportCacheService(StringRedisTemplate redisTemplate,
+                              ObjectMapper objectMapper,
+                              BranchRepository branchRepository,
+                              MeterRegistry meterRegistry,
+                              @Value("${report-cache.enabled}") boolean enabled,
+                              @Value("${report-cache.max-entries}") long maxEntries,
+                              @Value("${report-cache.closed-ttl-ms}") long closedTtlMs,
+                              @Value("${report-cache.current-ttl-ms}") long currentTtlMs,
+                              @Value("${schedule.report-rollup.recompute-days}") int recomputeDays) {
+        this.redisTemplate = redisTemplate;
+        this.objectMapper = objectMapper;
+        this.branchRepository = branchRepository;
+        this.meterRegistry = meterRegistry;
+        this.enabled = enabled;
+        this.recomputeDays = recomputeDays;
+        this.closedTtl = Duration.ofMillis(closedTtlMs);
+        this.currentTtl = Duration.ofMillis(currentTtlMs);
+        this.closedBuckets = Caffeine.newBuilder().maximumSize(maxEntries).build();
+        // outdated generations are unreachable, the ttl only frees their memory
+        this.currentBuckets = Caffeine.newBuilder().maximumSize(maxEntries).expireAfterWrite(currentTtl).build();
+    }
+
+    /**
+     * Cached result of an endpoint for one bucket, computed by the loader on a miss of both tiers.
+     * The variant tells apart requests of the same bucket with other parameters, null when there is none.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T get(String endpoint, Scope scope, UUID scopeId, ReportType timeframe, Period period, String variant,
+                     TypeReference<T> type, Supplier<T> loader) {
+        if (!enabled)
+            return loader.get();
+        boolean closed = isClosed(period);
+        String key;
+        try {
+            // read before loading: an order changing meanwhile bumps the generation and this result is never served
+            key = KEY_PREFIX + endpoint + ":" + scope + ":" + scopeId + ":" + timeframe + ":" + period.from()
+                    + (variant == null ? "" : ":" + variant)
+                    + (closed ? "" : ":g" + getGeneration(scope, scopeId));
+        } catch (DataAccessException e) {
+            logger.warn("Report cache unavailable, computing " + endpoint + " directly: " + e.getMessage());
+            record(endpoint, "bypass");
+            return loader.get();
+        }
+        Cache<String, Object> local = closed ? closedBuckets : currentBuckets;
+        Object cached = local.getIfPresent(key);
+        if (cached != null) {
+            record(endpoint, "local");
+            return (T) cached;
+        }
+        T value = readRedis(key, type);
+        if (value != null) {
+            record(endpoint, "redis");
+            local.put(key, value);
+            return value;
+        }
+        record(endpoint, "miss");
+        value = loader.get();
+        if (value != null) {
+            local.put(key, value);
+            writeRedis(key, value, closed ? closedTtl : currentTtl);
+        }
+        return value;
+    }
+
+    // called by every write opening an order or changing its status, in the transaction of the write
+    public void orderChanged(UUID branchId) {
+        if (!enabled)
+            return;
+        UUID restaurantId = branchRestaurants.computeIfAbsent(branchId, id -> branchRepository.findRestaurantIdByBranchId(id).orElse(null));
+        TransactionUtils.afterCommit(() -> bumpGenerations(branchId, restaurantId));
+    }
+
+    private void bumpGenerations(UUID branchId, UUID restaurantId) {
+        try {
+            redisTemplate.opsForValue().increment(GENERATION_KEY_PREFIX + Scope.BRANCH + ":" + branchId);
+            if (restaurantId != null)
+                redisTemplate.opsForValue().increment(GENERATION_KEY_PREFIX + Scope.RESTAURANT + ":" + restaurantId);
+        } catch (DataAccessException e) {
+            // current buckets of this branch stay outdated for at most current-ttl-ms
+            logger.warn("Cannot invalidate the report cache of branch " + branchId + ": " + e.getMessage());
+        }
+    }
+
+    private long getGeneration(Scope scope, UUID scopeId) {
+        String generation = redisTemplate.opsForValue().get(GENERATION_KEY_PREFIX + scope + ":" + scopeId);
+        return generation == null ? 0L : Long.parseLong(generation);
+    }
+
+    // the nightly rollup rewrites the last recompute-days closed days, orders opened on them may still close
+    private boolean isClosed(Period period) {
+        return !period.to().isAfter(LocalDate.now(VIETNAM_TIMEZONE).minusDays(recomputeDays));
+    }
+
+    private <T> T readRedis(String key, TypeReference<T> type) {
+        try {
+            String json = redisTemplate.opsForValue().get(key);
+            if (json == null)
+                return null;
+            // amounts come back as BigDecimal with their scale, as the endpoint returned them the first time
+            return objectMapper.readerFor(type).with(DeserializationFeature.USE_BIG_DECIMAL_FOR_FLOATS).readValue(json);
+        } catch (DataAccessException | IOException e) {
+            logger.warn("Cannot read report cache entry " + key + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    private void writeRedis(String key, Object value, Duration ttl) {
+        try {
+            redisTemplate.opsForValue().set(key, objectMapper.writeValueAsString(value), ttl);
+        } catch (DataAccessException | JsonProcessingException e) {
+            logger.warn("Cannot write report cache entry " + key + ": " + e.getMessage());
+        }
+    }
+
+    // hit ratio of an endpoint: (local + redis) / all requests
+    private void record(String endpoint, String result) {
+        meterRegistry.counter("report.cache.requests", "endpoint", endpoint, "result", result).increment();
+    }
+}
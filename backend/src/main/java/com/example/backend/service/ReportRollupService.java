@@ -0,0 +1,161 @@
+package com.example.backend.service;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.UUID;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.backend.entities.ReportType;
+import com.example.backend.repository.BranchReportRepository;
+import com.example.backend.repository.OrderRepository;
+import com.example.backend.repository.OrderRepository.OrderTotals;
+import com.example.backend.repository.RestaurantReportRepository;
+
+/**
+ * Incremental rollup of closed days into branch_report and restaurant_report.
+ * Every night the DAY rows of the days not rolled up yet are written, plus the last recompute-days closed days again
+ * because an order created before midnight may be completed or cancelled after it. MONTH and YEAR rows are derived
+ * from the DAY rows of the periods touched.
+ * Analytics of a period read the DAY rows of its rolled up days and aggregate raw orders only after the last one,
+ * so a YEAR view reads at most 366 rows instead of every order of the year.
+ */
+@Service
+public class ReportRollupService {
+
+    private static final ZoneId VIETNAM_TIMEZONE = ZoneId.of("Asia/Ho_Chi_Minh");
+
+    private final Logger logger = LoggerFactory.getLogger(ReportRollupService.class);
+    private final BranchReportRepository branchReportRepository;
+    private final RestaurantReportRepository restaurantReportRepository;
+    private final OrderRepository orderRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private final int recomputeDays;
+
+    public ReportRollupService(BranchReportRepository branchReportRepository,
+                               RestaurantReportRepository restaurantReportRepository,
+                               OrderRepository orderRepository,
+                               PlatformTransactionManager transactionManager,
+                               @Value("${schedule.report-rollup.enabled}") boolean enabled,
+                               @Value("${schedule.report-rollup.recompute-days}") int recomputeDays) {
+        this.branchReportRepository = branchReportRepository;
+        this.restaurantReportRepository = restaurantReportRepository;
+        this.orderRepository = orderRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.enabled = enabled;
+        this.recomputeDays = recomputeDays;
+    }
+
+    // also on startup so that days missed while no instance was running are caught up
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(cron = "${schedule.report-rollup.cron}", zone = "Asia/Ho_Chi_Minh")
+    public void rollUp() {
+        if (!enabled)
+            return;
+        LocalDate today = LocalDate.now(VIETNAM_TIMEZONE);
+        LocalDate from = getFirstDayToRollUp(today);
+        if (from == null || !from.isBefore(today))
+            return;
+        // one transaction per day: an interrupted catch-up resumes after the last day written
+        for (LocalDate day = from; day.isBefore(today); day = day.plusDays(1)) {
+            LocalDate rolledDay = day;
+            transactionTemplate.executeWithoutResult(status -> rollUpDay(rolledDay));
+        }
+        transactionTemplate.executeWithoutResult(status -> rollUpPeriods(from, today.minusDays(1)));
+        logger.info("Rolled up reports from " + from + " to " + today.minusDays(1));
+    }
+
+    private LocalDate getFirstDayToRollUp(LocalDate today) {
+        LocalDateTime latest = branchReportRepository.findLatestRolledUpDay();
+        if (latest != null) {
+            LocalDate next = latest.toLocalDate().plusDays(1);
+            LocalDate recompute = today.minusDays(recomputeDays);
+            return next.isBefore(recompute) ? next : recompute;
+        }
+        // empty report tables start at the first order
+        Instant earliest = orderRepository.findEarliestCreatedAt();
+        return earliest == null ? null : LocalDate.ofInstant(earliest, VIETNAM_TIMEZONE);
+    }
+
+    private void rollUpDay(LocalDate day) {
+        branchReportRepository.rollUpDay(day.atStartOfDay(), toInstant(day), toInstant(day.plusDays(1)));
+        restaurantReportRepository.rollUpDay(day.atStartOfDay());
+    }
+
+    // the MONTH and YEAR rows of every period between the two days, the current ones only cover the closed days
+    private void rollUpPeriods(LocalDate from, LocalDate to) {
+        for (LocalDate month = from.withDayOfMonth(1); !month.isAfter(to); month = month.plusMonths(1)) {
+            branchReportRepository.rollUpPeriod(ReportType.MONTH.name(), month.atStartOfDay(), month.plusMonths(1).atStartOfDay());
+            restaurantReportRepository.rollUpPeriod(ReportType.MONTH.name(), month.atStartOfDay(), month.plusMonths(1).atStartOfDay());
+        }
+        for (LocalDate year = from.withDayOfYear(1); !year.isAfter(to); year = year.plusYears(1)) {
+            branchReportRepository.rollUpPeriod(ReportType.YEAR.name(), year.atStartOfDay(), year.plusYears(1).atStartOfDay());
+            restaurantReportRepository.rollUpPeriod(ReportType.YEAR.name(), year.atStartOfDay(), year.plusYears(1).atStartOfDay());
+        }
+    }
+
+    // days [from, to) of the DAY, MONTH or YEAR containing a date
+    public record Period(LocalDate from, LocalDate to) {
+
+        public static Period of(ReportType reportType, LocalDate date) {
+            return switch (reportType) {
+                case DAY -> new Period(date, date.plusDays(1));
+                case MONTH -> new Period(date.withDayOfMonth(1), date.withDayOfMonth(1).plusMonths(1));
+                case YEAR -> new Period(date.withDayOfYear(1), date.withDayOfYear(1).plusYears(1));
+            };
+        }
+    }
+
+    /**
+     * Totals of a branch over a period: DAY rows up to the last rolled up day, raw orders after it
+     */
+    public OrderTotals getBranchTotals(UUID branchId, Period period) {
+        LocalDate rolledUntil = clamp(branchReportRepository.findLatestRolledUpDay(branchId), period);
+        OrderTotals rolledUp = rolledUntil.isAfter(period.from())
+                ? branchReportRepository.sumDays(branchId, period.from().atStartOfDay(), rolledUntil.atStartOfDay())
+                : null;
+        if (!rolledUntil.isBefore(period.to()))
+            return rolledUp;
+        OrderTotals raw = orderRepository.aggregateOrdersByBranchAndTimeframe(branchId, toInstant(rolledUntil), toInstant(period.to()));
+        return rolledUp == null ? raw : rolledUp.plus(raw);
+    }
+
+    /**
+     * Same for a restaurant, from its own DAY rows
+     */
+    public OrderTotals getRestaurantTotals(UUID restaurantId, Period period) {
+        LocalDate rolledUntil = clamp(restaurantReportRepository.findLatestRolledUpDay(restaurantId), period);
+        OrderTotals rolledUp = rolledUntil.isAfter(period.from())
+                ? restaurantReportRepository.sumDays(restaurantId, period.from().atStartOfDay(), rolledUntil.atStartOfDay())
+                : null;
+        if (!rolledUntil.isBefore(period.to()))
+            return rolledUp;
+        OrderTotals raw = orderRepository.aggregateOrdersByRestaurantAndTimeframe(restaurantId, toInstant(rolledUntil), toInstant(period.to()));
+        return rolledUp == null ? raw : rolledUp.plus(raw);
+    }
+
+    // first day of the period not covered by a DAY row, the end of the period when all of it is rolled up
+    private static LocalDate clamp(LocalDateTime latestRolledUpDay, Period period) {
+        if (latestRolledUpDay == null)
+            return period.from();
+        LocalDate rolledUntil = latestRolledUpDay.toLocalDate().plusDays(1);
+        if (rolledUntil.isBefore(period.from()))
+            return period.from();
+        return rolledUntil.isAfter(period.to()) ? period.to() : rolledUntil;
+    }
+
+    private static Instant toInstant(LocalDate day) {
+        return day.atStartOfDay(VIETNAM_TIMEZONE).toInstant();
+    }
+}
@@ -0,0 +1,158 @@
+package com.example.backend.service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.example.backend.service.RoomEventLog.RoomEvent;
+import com.example.backend.utils.TransactionUtils;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Coalesces the socket events of a room into one sequenced "room_events" frame per window.
+ * The first event of a room opens a window of socketio.batch.window-ms, the frame is sent when the window ends
+ * or as soon as it holds socketio.batch.max-events events. Events with the same name and key (an orderLine)
+ * queued in the same window collapse to the latest payload, keeping the position of the first one.
+ * With batching disabled every event is sent at once in a frame of its own.
+ */
+@Service
+public class RoomEventEmitter {
+
+    private final Logger logger = LoggerFactory.getLogger(RoomEventEmitter.class);
+    private final RoomEventPublisher roomEventPublisher;
+    private final RoomEventLog roomEventLog;
+    private final RealtimeOutboxService realtimeOutboxService;
+    private final boolean enabled;
+    private final long windowMs;
+    private final int maxEvents;
+    private final Map<String, RoomBuffer> buffers = new HashMap<>();
+    private final ScheduledExecutorService flusher;
+
+    private final Timer flushLatencyTimer;
+    private final DistributionSummary batchSizeSummary;
+    private final Counter conflatedCounter;
+
+    public RoomEventEmitter(RoomEventPublisher roomEventPublisher,
+                            RoomEventLog roomEventLog,
+                            RealtimeOutboxService realtimeOutboxService,
+                            MeterRegistry meterRegistry,
+                            @Value("${socketio.batch.enabled}") boolean enabled,
+                            @Value("${socketio.batch.window-ms}") long windowMs,
+                            @Value("${socketio.batch.max-events}") int maxEvents) {
+        this.roomEventPublisher = roomEventPublisher;
+        this.roomEventLog = roomEventLog;
+        this.realtimeOutboxService = realtimeOutboxService;
+        this.enabled = enabled;
+        this.windowMs = windowMs;
+        this.maxEvents = maxEvents;
+        this.flusher = enabled ? Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform().name("room-event-flusher").daemon().factory()) : null;
+
+        this.flushLatencyTimer = Timer.builder("socketio.batch.flush.latency")
+                .description("Time between the first event of a frame and sending the frame")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.batchSizeSummary = DistributionSummary.builder("socketio.batch.size")
+                .description("Events sent in one room frame")
+                .register(meterRegistry);
+        this.conflatedCounter = Counter.builder("socketio.batch.conflated")
+                .description("Events replaced by a newer state of the same ticket before being sent")
+                .register(meterRegistry);
+    }
+
+    private static final class RoomBuffer {
+        private final Map<String, RoomEvent> events = new LinkedHashMap<>();
+        private final long openedAt = System.nanoTime();
+        private int unkeyed;
+    }
+
+    // key identifies the state the event carries (an orderLineId), null when the event must never be collapsed
+    public void emit(String room, String event, Object key, Object payload) {
+        if (!enabled) {
+            send(room, List.of(new RoomEvent(0L, event, key == null ? null : key.toString(), payload)));
+            return;
+        }
+        RoomBuffer full = null;
+        synchronized (buffers) {
+            RoomBuffer buffer = buffers.get(room);
+            if (buffer == null) {
+                buffer = new RoomBuffer();
+                buffers.put(room, buffer);
+                flusher.schedule(() -> flush(room), windowMs, TimeUnit.MILLISECONDS);
+            }
+            RoomEvent roomEvent = new RoomEvent(0L, event, key == null ? null : key.toString(), payload);
+            String slot = key == null ? event + "#" + buffer.unkeyed++ : roomEvent.getConflationSlot();
+            if (buffer.events.put(slot, roomEvent) != null)
+                conflatedCounter.increment();
+            if (buffer.events.size() >= maxEvents) {
+                buffers.remove(room);
+                full = buffer;
+            }
+        }
+        // the scheduled flush of this window finds no buffer, or the buffer of the next window, and sends it early
+        if (full != null)
+            send(room, full);
+    }
+
+    // clients must never see a state that is rolled back, inside a transaction the event waits for the commit.
+    // with the outbox the event is written by the transaction itself and survives a crash right after the commit
+    public void emitAfterCommit(String room, String event, Object key, Object payload) {
+        if (realtimeOutboxService.isEnabled() && TransactionSynchronizationManager.isSynchronizationActive()
+                && TransactionSynchronizationManager.isActualTransactionActive()) {
+            realtimeOutboxService.append(room, event, key, payload);
+            return;
+        }
+        TransactionUtils.afterCommit(() -> emit(room, event, key, payload));
+    }
+
+    private void flush(String room) {
+        RoomBuffer buffer;
+        synchronized (buffers) {
+            buffer = buffers.remove(room);
+        }
+        if (buffer != null)
+            send(room, buffer);
+    }
+
+    private void send(String room, RoomBuffer buffer) {
+        List<RoomEvent> events = new ArrayList<>(buffer.events.values());
+        send(room, events);
+        batchSizeSummary.record(events.size());
+        flushLatencyTimer.record(System.nanoTime() - buffer.openedAt, TimeUnit.NANOSECONDS);
+    }
+
+    private void send(String room, List<RoomEvent> events) {
+        try {
+            roomEventPublisher.sendToRoom(room, roomEventLog.sequence(room, events));
+        } catch (RuntimeException e) {
+            logger.error("Cannot send " + events.size() + " events to room " + room, e);
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (!enabled)
+            return;
+        flusher.shutdownNow();
+        List<String> rooms;
+        synchronized (buffers) {
+            rooms = new ArrayList<>(buffers.keySet());
+        }
+        rooms.forEach(this::flush);
+    }
+}
@@ -0,0 +1,14 @@
+package com.example.backend.service;
+
+import java.util.List;
+
+import com.example.backend.service.RoomEventLog.RoomEvent;
+
+/**
+ * In-process subscriber of the sequenced room frames delivered on this node, local or relayed from another node.
+ * Implementations hand the frame to their own connections and must not block the caller.
+ */
+public interface RoomEventListener {
+
+    void onRoomEvents(String room, List<RoomEvent> events);
+}
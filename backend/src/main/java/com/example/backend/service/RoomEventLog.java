@@ -0,0 +1,109 @@
+package com.example.backend.service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+/**
+ * Per-room sequence numbers and the bounded log of the last events sent to each room, used to replay
+ * the events a client missed while disconnected.
+ * Sequences come from a redis counter so they keep increasing across nodes and restarts; every node logs
+ * the events it delivers, its own and the ones relayed from other nodes, ordered by sequence.
+ * Guest table rooms live as long as an order: their counters expire and idle logs are dropped.
+ */
+@Service
+public class RoomEventLog {
+
+    private static final String SEQUENCE_KEY_PREFIX = "socketio:seq:";
+    private static final Duration TABLE_ROOM_TTL = Duration.ofDays(1);
+
+    private final StringRedisTemplate redisTemplate;
+    private final int capacity;
+    private final Map<String, RoomLog> logs = new ConcurrentHashMap<>();
+
+    public RoomEventLog(StringRedisTemplate redisTemplate,
+                        @Value("${socketio.replay.buffer-size}") int capacity) {
+        this.redisTemplate = redisTemplate;
+        this.capacity = capacity;
+    }
+
+    // seq is 0 until the event is sequenced right before being sent
+    // key identifies the state carried by the event (an orderLineId), null when the event must never be collapsed
+    public record RoomEvent(long seq, String event, String key, Object payload) {
+
+        public String getConflationSlot() {
+            return key == null ? null : event + ":" + key;
+        }
+    }
+
+    private static final class RoomLog {
+        private final TreeMap<Long, RoomEvent> events = new TreeMap<>();
+        private volatile long lastAppend = System.currentTimeMillis();
+    }
+
+    // one redis round trip for the whole frame, its events get consecutive sequences in order
+    public List<RoomEvent> sequence(String room, List<RoomEvent> events) {
+        String key = SEQUENCE_KEY_PREFIX + room;
+        long last = redisTemplate.opsForValue().increment(key, events.size());
+        if (room.startsWith(RoomEventPublisher.TABLE_ROOM_PREFIX))
+            redisTemplate.expire(key, TABLE_ROOM_TTL);
+        long seq = last - events.size();
+        List<RoomEvent> sequenced = new ArrayList<>(events.size());
+        for (RoomEvent event : events)
+            sequenced.add(new RoomEvent(++seq, event.event(), event.key(), event.payload()));
+        return sequenced;
+    }
+
+    public void append(String room, List<RoomEvent> events) {
+        RoomLog log = logs.computeIfAbsent(room, key -> new RoomLog());
+        synchronized (log) {
+            for (RoomEvent event : events)
+                log.events.put(event.seq(), event);
+            while (log.events.size() > capacity)
+                log.events.pollFirstEntry();
+            log.lastAppend = System.currentTimeMillis();
+        }
+    }
+
+    // a room without events for a day has no client left to resume, mostly tables of closed orders
+    @Scheduled(fixedDelay = 60 * 60 * 1000)
+    public void evictIdleLogs() {
+        long idleSince = System.currentTimeMillis() - TABLE_ROOM_TTL.toMillis();
+        logs.values().removeIf(log -> log.lastAppend < idleSince);
+    }
+
+    public long getCurrentSeq(String room) {
+        String seq = redisTemplate.opsForValue().get(SEQUENCE_KEY_PREFIX + room);
+        return seq == null ? 0L : Long.parseLong(seq);
+    }
+
+    // events after lastSeq, empty when some of them are no longer (or were never) in the log of this node
+    // events sequenced on another node but not relayed here yet are not missing, the client gets them live
+    public Optional<List<RoomEvent>> getEventsSince(String room, long lastSeq) {
+        long currentSeq = getCurrentSeq(room);
+        if (lastSeq > currentSeq)
+            return Optional.empty();
+        RoomLog log = logs.getOrDefault(room, new RoomLog());
+        List<RoomEvent> missed;
+        synchronized (log) {
+            missed = new ArrayList<>(log.events.tailMap(lastSeq, false).values());
+        }
+        if (missed.isEmpty())
+            return lastSeq == currentSeq ? Optional.of(missed) : Optional.empty();
+        // the missed events must follow lastSeq without a hole
+        long first = missed.get(0).seq();
+        long last = missed.get(missed.size() - 1).seq();
+        if (first != lastSeq + 1 || last - first + 1 != missed.size())
+            return Optional.empty();
+        return Optional.of(missed);
+    }
+}
@@ -0,0 +1,110 @@
+package com.example.backend.service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.UUID;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Service;
+
+import com.example.backend.service.RoomEventLog.RoomEvent;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Sends sequenced frames of events to a room (a branch or a table), as one "room_events" event.
+ * Single node: the frame is handed to the RoomEventListeners of this node (socket.io and SSE connections).
+ * Clustered (socketio.cluster.enabled): the frame is delivered locally and published on a redis channel,
+ * every other node receives it through onMessage and delivers it to its own listeners.
+ * Every delivered frame is kept in the RoomEventLog of the node for replay.
+ */
+@Service
+public class RoomEventPublisher implements MessageListener {
+
+    public static final String CHANNEL = "socketio:room-events";
+    public static final String FRAME_EVENT = "room_events";
+    public static final String TABLE_ROOM_PREFIX = "table:";
+    public static final String COMPACT_ROOM_SUFFIX = ":" + RoomFrameEncoder.ENCODING;
+
+    private final Logger logger = LoggerFactory.getLogger(RoomEventPublisher.class);
+    private final StringRedisTemplate redisTemplate;
+    private final ObjectMapper objectMapper;
+    private final RoomEventLog roomEventLog;
+    private final List<RoomEventListener> roomEventListeners;
+    private final RealtimeMetrics realtimeMetrics;
+    private final boolean clustered;
+    // a node ignores its own messages, its clients already got the events
+    private final String nodeId = UUID.randomUUID().toString();
+
+    public RoomEventPublisher(StringRedisTemplate redisTemplate,
+                              ObjectMapper objectMapper,
+                              RoomEventLog roomEventLog,
+                              List<RoomEventListener> roomEventListeners,
+                              RealtimeMetrics realtimeMetrics,
+                              @Value("${socketio.cluster.enabled}") boolean clustered) {
+        this.redisTemplate = redisTemplate;
+        this.objectMapper = objectMapper;
+        this.roomEventLog = roomEventLog;
+        this.roomEventListeners = roomEventListeners;
+        this.realtimeMetrics = realtimeMetrics;
+        this.clustered = clustered;
+    }
+
+    public record RelayedFrame(String nodeId, String room, List<RoomEvent> events) {
+    }
+
+    public void sendToRoom(String room, List<RoomEvent> events) {
+        realtimeMetrics.emitted(room, events);
+        deliver(room, events);
+        if (!clustered)
+            return;
+        try {
+            redisTemplate.convertAndSend(CHANNEL, objectMapper.writeValueAsString(new RelayedFrame(nodeId, room, events)));
+        } catch (JsonProcessingException | RuntimeException e) {
+            // the local clients are served, the others see a gap in the sequence and resync
+            logger.error("Cannot relay " + events.size() + " events to room " + room + " through redis", e);
+        }
+    }
+
+    public static String getCompactRoom(String room) {
+        return room + COMPACT_ROOM_SUFFIX;
+    }
+
+    // guests of a table follow their own order only, the next party at the table gets a new room
+    public static String getTableRoom(UUID areaTableId, UUID orderId) {
+        return TABLE_ROOM_PREFIX + areaTableId + ":" + orderId;
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        try {
+            RelayedFrame frame = objectMapper.readValue(new String(message.getBody(), StandardCharsets.UTF_8), RelayedFrame.class);
+            if (nodeId.equals(frame.nodeId()))
+                return;
+            deliver(frame.room(), frame.events());
+        } catch (JsonProcessingException e) {
+            logger.error("Dropped malformed room events from redis", e);
+        }
+    }
+
+    private void deliver(String room, List<RoomEvent> events) {
+        roomEventLog.append(room, events);
+        for (RoomEventListener roomEventListener : roomEventListeners) {
+            try {
+                roomEventListener.onRoomEvents(room, events);
+            } catch (RuntimeException e) {
+                // one transport failing must not starve the others
+                logger.error("Room event listener " + roomEventListener.getClass().getSimpleName() + " failed for room " + room, e);
+            }
+        }
+    }
+}
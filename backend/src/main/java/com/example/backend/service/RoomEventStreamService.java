@@ -0,0 +1,233 @@
+package com.example.backend.service;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import com.example.backend.service.RoomEventLog.RoomEvent;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Server-Sent Events gateway of the room frames on the HTTP port, the same feed socket.io clients get.
+ * Every stream is written by a virtual thread of its own parked on a bounded queue, so an idle dashboard costs
+ * a parked virtual thread and a slow one never blocks the publisher. Frames queued while the client is slow leave
+ * merged; a stream whose queue overflows gets "resync_required" and is closed, the browser reconnects with Last-Event-ID.
+ * The id of every frame is the last sequence it carries.
+ */
+@Service
+public class RoomEventStreamService implements RoomEventListener {
+
+    private final Logger logger = LoggerFactory.getLogger(RoomEventStreamService.class);
+    private final RoomEventLog roomEventLog;
+    private final RealtimeMetrics realtimeMetrics;
+    private final long timeoutMs;
+    private final long heartbeatMs;
+    private final int maxPendingFrames;
+    private final Map<String, Set<Subscriber>> subscribers = new ConcurrentHashMap<>();
+    private final AtomicInteger openStreams = new AtomicInteger();
+
+    private final Counter disconnectedCounter;
+
+    public RoomEventStreamService(RoomEventLog roomEventLog,
+                                  RealtimeMetrics realtimeMetrics,
+                                  MeterRegistry meterRegistry,
+                                  @Value("${realtime.sse.timeout-ms}") long timeoutMs,
+                                  @Value("${realtime.sse.heartbeat-ms}") long heartbeatMs,
+                                  @Value("${realtime.sse.max-pending-frames}") int maxPendingFrames) {
+        this.roomEventLog = roomEventLog;
+        this.realtimeMetrics = realtimeMetrics;
+        this.timeoutMs = timeoutMs;
+        this.heartbeatMs = heartbeatMs;
+        this.maxPendingFrames = maxPendingFrames;
+
+        Gauge.builder("realtime.sse.streams", openStreams, AtomicInteger::get)
+                .description("Open Server-Sent Events streams on this node")
+                .register(meterRegistry);
+        Gauge.builder("realtime.sse.pending", subscribers, RoomEventStreamService::countPending)
+                .description("Frames queued for SSE streams and not written yet")
+                .register(meterRegistry);
+        this.disconnectedCounter = Counter.builder("realtime.sse.disconnected")
+                .description("Streams closed for lagging behind, they resync on reconnect")
+                .register(meterRegistry);
+    }
+
+    private record Frame(String event, Object data, Long id) {
+    }
+
+    private final class Subscriber {
+        private final String room;
+        private final SseEmitter emitter;
+        private final BlockingQueue<Frame> queue = new ArrayBlockingQueue<>(maxPendingFrames);
+        private volatile boolean closed;
+        private volatile boolean lagging;
+        private Thread writer;
+
+        private Subscriber(String room, SseEmitter emitter) {
+            this.room = room;
+            this.emitter = emitter;
+        }
+    }
+
+    // lastSeq comes from Last-Event-ID on an automatic reconnect, null on the first connection
+    public SseEmitter subscribe(String room, String lastSeq) {
+        SseEmitter emitter = new SseEmitter(timeoutMs);
+        Subscriber subscriber = new Subscriber(room, emitter);
+        emitter.onCompletion(() -> close(subscriber));
+        emitter.onTimeout(() -> close(subscriber));
+        emitter.onError(e -> close(subscriber));
+        // subscribed before replaying: an event sent meanwhile may arrive twice, clients skip sequences they already applied
+        subscribers.computeIfAbsent(room, key -> ConcurrentHashMap.newKeySet()).add(subscriber);
+        openStreams.incrementAndGet();
+        realtimeMetrics.connected(RealtimeMetrics.SSE, room);
+        resume(subscriber, lastSeq);
+        subscriber.writer = Thread.ofVirtual().name("sse-" + room).start(() -> write(subscriber));
+        return emitter;
+    }
+
+    @Override
+    public void onRoomEvents(String room, List<RoomEvent> events) {
+        Set<Subscriber> roomSubscribers = subscribers.get(room);
+        if (roomSubscribers == null || events.isEmpty())
+            return;
+        Frame frame = toFrame(events);
+        for (Subscriber subscriber : roomSubscribers)
+            offer(subscriber, frame);
+    }
+
+    private static Frame toFrame(List<RoomEvent> events) {
+        return new Frame(RoomEventPublisher.FRAME_EVENT, events, events.get(events.size() - 1).seq());
+    }
+
+    private void resume(Subscriber subscriber, String lastSeq) {
+        if (lastSeq == null || lastSeq.isBlank()) {
+            offer(subscriber, new Frame("room_seq", Map.of("seq", roomEventLog.getCurrentSeq(subscriber.room)), null));
+            return;
+        }
+        Optional<List<RoomEvent>> missed;
+        try {
+            missed = roomEventLog.getEventsSince(subscriber.room, Long.parseLong(lastSeq));
+        } catch (NumberFormatException e) {
+            missed = Optional.empty();
+        }
+        if (missed.isEmpty())
+            offer(subscriber, new Frame(SocketClientOutbox.RESYNC_EVENT, Map.of("seq", roomEventLog.getCurrentSeq(subscriber.room)), null));
+        else if (!missed.get().isEmpty())
+            offer(subscriber, toFrame(missed.get()));
+    }
+
+    private void offer(Subscriber subscriber, Frame frame) {
+        if (subscriber.closed || subscriber.queue.offer(frame))
+            return;
+        // the writer sends resync_required instead of the backlog and closes the stream
+        subscriber.lagging = true;
+        subscriber.queue.clear();
+        subscriber.queue.offer(frame);
+    }
+
+    private void write(Subscriber subscriber) {
+        try {
+            while (!subscriber.closed) {
+                Frame frame = subscriber.queue.poll(heartbeatMs, TimeUnit.MILLISECONDS);
+                if (subscriber.lagging) {
+                    disconnectedCounter.increment();
+                    subscriber.emitter.send(SseEmitter.event().name(SocketClientOutbox.RESYNC_EVENT)
+                            .data(Map.of("seq", roomEventLog.getCurrentSeq(subscriber.room)), MediaType.APPLICATION_JSON));
+                    subscriber.emitter.complete();
+                    return;
+                }
+                if (frame == null) {
+                    // keeps proxies from closing an idle stream and detects a gone client
+                    subscriber.emitter.send(SseEmitter.event().comment("heartbeat"));
+                    continue;
+                }
+                send(subscriber, frame);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException | IllegalStateException e) {
+            logger.debug("SSE stream of room " + subscriber.room + " closed: " + e.getMessage());
+            close(subscriber);
+        }
+    }
+
+    // room frames waiting behind the current one leave merged in a single frame
+    private void send(Subscriber subscriber, Frame frame) throws IOException {
+        if (!RoomEventPublisher.FRAME_EVENT.equals(frame.event())) {
+            subscriber.emitter.send(event(frame));
+            return;
+        }
+        List<Frame> queued = new ArrayList<>();
+        subscriber.queue.drainTo(queued);
+        List<RoomEvent> merged = new ArrayList<>(castEvents(frame));
+        Long id = frame.id();
+        for (Frame next : queued) {
+            if (!RoomEventPublisher.FRAME_EVENT.equals(next.event())) {
+                flush(subscriber, merged, id);
+                merged.clear();
+                subscriber.emitter.send(event(next));
+                continue;
+            }
+            merged.addAll(castEvents(next));
+            id = next.id();
+        }
+        flush(subscriber, merged, id);
+    }
+
+    private void flush(Subscriber subscriber, List<RoomEvent> events, Long id) throws IOException {
+        if (!events.isEmpty())
+            subscriber.emitter.send(event(new Frame(RoomEventPublisher.FRAME_EVENT, events, id)));
+    }
+
+    private static SseEmitter.SseEventBuilder event(Frame frame) {
+        SseEmitter.SseEventBuilder builder = SseEmitter.event().name(frame.event()).data(frame.data(), MediaType.APPLICATION_JSON);
+        return frame.id() == null ? builder : builder.id(frame.id().toString());
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<RoomEvent> castEvents(Frame frame) {
+        return (List<RoomEvent>) frame.data();
+    }
+
+    private void close(Subscriber subscriber) {
+        synchronized (subscriber) {
+            if (subscriber.closed)
+                return;
+            subscriber.closed = true;
+        }
+        openStreams.decrementAndGet();
+        realtimeMetrics.disconnected(RealtimeMetrics.SSE, subscriber.room);
+        subscribers.computeIfPresent(subscriber.room, (room, roomSubscribers) -> {
+            roomSubscribers.remove(subscriber);
+            return roomSubscribers.isEmpty() ? null : roomSubscribers;
+        });
+        if (subscriber.writer != null && subscriber.writer != Thread.currentThread())
+            subscriber.writer.interrupt();
+    }
+
+    private static double countPending(Map<String, Set<Subscriber>> subscribers) {
+        int pending = 0;
+        for (Set<Subscriber> roomSubscribers : subscribers.values()) {
+            for (Subscriber subscriber : roomSubscribers)
+                pending += subscriber.queue.size();
+        }
+        return pending;
+    }
+}
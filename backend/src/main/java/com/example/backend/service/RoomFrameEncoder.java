@@ -0,0 +1,141 @@
+package com.example.backend.service;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.regex.Pattern;
+
+import org.msgpack.core.MessageBufferPacker;
+import org.msgpack.core.MessagePack;
+import org.springframework.stereotype.Service;
+
+import com.example.backend.exception.AppException;
+import com.example.backend.exception.ErrorCode;
+import com.example.backend.service.RoomEventLog.RoomEvent;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Compact MessagePack form of a "room_events" frame for clients that connect with encoding=msgpack.
+ * A frame is encoded once per node and sent to every compact client of the room as a binary attachment.
+ * <pre>
+ * [1, keys, events]
+ *   keys:   array of the field names used in the frame
+ *   events: array of [seq, event, payload]
+ * payload: objects are maps whose keys are indexes into keys, UUIDs are 16 byte bin,
+ *          decimals with a fraction are str (exact money amounts), everything else is native msgpack
+ * </pre>
+ */
+@Service
+public class RoomFrameEncoder {
+
+    public static final String ENCODING = "msgpack";
+    private static final int VERSION = 1;
+    private static final Pattern UUID_PATTERN = Pattern.compile("[0-9a-fA-F]{8}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{12}");
+
+    private final ObjectMapper objectMapper;
+
+    public RoomFrameEncoder(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    public byte[] encode(List<RoomEvent> events) {
+        List<JsonNode> payloads = new ArrayList<>(events.size());
+        Map<String, Integer> keys = new HashMap<>();
+        List<String> keyTable = new ArrayList<>();
+        for (RoomEvent event : events) {
+            JsonNode payload = objectMapper.valueToTree(event.payload());
+            collectKeys(payload, keys, keyTable);
+            payloads.add(payload);
+        }
+        try (MessageBufferPacker packer = MessagePack.newDefaultBufferPacker()) {
+            packer.packArrayHeader(3);
+            packer.packInt(VERSION);
+            packer.packArrayHeader(keyTable.size());
+            for (String key : keyTable)
+                packer.packString(key);
+            packer.packArrayHeader(events.size());
+            for (int i = 0; i < events.size(); i++) {
+                packer.packArrayHeader(3);
+                packer.packLong(events.get(i).seq());
+                packer.packString(events.get(i).event());
+                pack(packer, payloads.get(i), keys);
+            }
+            return packer.toByteArray();
+        } catch (IOException e) {
+            throw new AppException(ErrorCode.WE_COOKED);
+        }
+    }
+
+    private void collectKeys(JsonNode node, Map<String, Integer> keys, List<String> keyTable) {
+        if (node.isObject()) {
+            Iterator<Map.Entry<String, JsonNode>> fields = node.fields();
+            while (fields.hasNext()) {
+                Map.Entry<String, JsonNode> field = fields.next();
+                if (keys.putIfAbsent(field.getKey(), keyTable.size()) == null)
+                    keyTable.add(field.getKey());
+                collectKeys(field.getValue(), keys, keyTable);
+            }
+        } else if (node.isArray()) {
+            for (JsonNode element : node)
+                collectKeys(element, keys, keyTable);
+        }
+    }
+
+    private void pack(MessageBufferPacker packer, JsonNode node, Map<String, Integer> keys) throws IOException {
+        if (node == null || node.isNull()) {
+            packer.packNil();
+        } else if (node.isObject()) {
+            packer.packMapHeader(node.size());
+            Iterator<Map.Entry<String, JsonNode>> fields = node.fields();
+            while (fields.hasNext()) {
+                Map.Entry<String, JsonNode> field = fields.next();
+                packer.packInt(keys.get(field.getKey()));
+                pack(packer, field.getValue(), keys);
+            }
+        } else if (node.isArray()) {
+            packer.packArrayHeader(node.size());
+            for (JsonNode element : node)
+                pack(packer, element, keys);
+        } else if (node.isTextual()) {
+            packText(packer, node.textValue());
+        } else if (node.isBoolean()) {
+            packer.packBoolean(node.booleanValue());
+        } else if (node.isIntegralNumber()) {
+            packer.packLong(node.longValue());
+        } else if (node.isNumber()) {
+            BigDecimal value = node.decimalValue();
+            if (value.signum() == 0 || value.stripTrailingZeros().scale() <= 0)
+                packer.packLong(value.longValueExact());
+            else
+                packer.packString(value.toPlainString());
+        } else {
+            packer.packString(node.asText());
+        }
+    }
+
+    private void packText(MessageBufferPacker packer, String text) throws IOException {
+        if (text.length() != 36 || !UUID_PATTERN.matcher(text).matches()) {
+            packer.packString(text);
+            return;
+        }
+        UUID uuid = UUID.fromString(text);
+        packer.packBinaryHeader(16);
+        packer.writePayload(toBytes(uuid.getMostSignificantBits()));
+        packer.writePayload(toBytes(uuid.getLeastSignificantBits()));
+    }
+
+    private byte[] toBytes(long bits) {
+        byte[] bytes = new byte[8];
+        for (int i = 7; i >= 0; i--) {
+            bytes[i] = (byte) bits;
+            bits >>= 8;
+        }
+        return bytes;
+    }
+}
@@ -0,0 +1,216 @@
+package com.example.backend.service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import com.corundumstudio.socketio.AckCallback;
+import com.corundumstudio.socketio.SocketIOClient;
+import com.example.backend.service.RoomEventLog.RoomEvent;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Bounded outbound queue of every socket client, so a stalled tablet cannot make netty buffer frames without limit.
+ * A client has at most one unacknowledged room_events frame in flight. Frames produced meanwhile wait in its outbox,
+ * where events carrying the state of the same ticket collapse to the latest one; the whole backlog leaves as one frame
+ * once the client acknowledges. A client whose backlog still exceeds socketio.outbox.max-pending-events, or that does
+ * not acknowledge within socketio.outbox.ack-timeout-seconds, gets "resync_required" and is disconnected.
+ * Only clients announcing acks=1 in their handshake get this flow control; the others (older bundles, test pages)
+ * never acknowledge and keep receiving every frame as it is produced.
+ */
+@Service
+@ConditionalOnProperty(name = "socketio.enabled", havingValue = "true", matchIfMissing = true)
+public class SocketClientOutbox {
+
+    public static final String RESYNC_EVENT = "resync_required";
+    public static final String ACKS_PARAM = "acks";
+
+    private final Logger logger = LoggerFactory.getLogger(SocketClientOutbox.class);
+    private final RoomFrameEncoder roomFrameEncoder;
+    private final RoomEventLog roomEventLog;
+    private final RealtimeMetrics realtimeMetrics;
+    private final int maxPendingEvents;
+    private final int ackTimeoutSeconds;
+    private final Map<UUID, Outbox> outboxes = new ConcurrentHashMap<>();
+
+    private final Counter conflatedCounter;
+    private final Counter disconnectedCounter;
+    private final Timer ackLatencyTimer;
+
+    public SocketClientOutbox(RoomFrameEncoder roomFrameEncoder,
+                              RoomEventLog roomEventLog,
+                              RealtimeMetrics realtimeMetrics,
+                              MeterRegistry meterRegistry,
+                              @Value("${socketio.outbox.max-pending-events}") int maxPendingEvents,
+                              @Value("${socketio.outbox.ack-timeout-seconds}") int ackTimeoutSeconds) {
+        this.roomFrameEncoder = roomFrameEncoder;
+        this.roomEventLog = roomEventLog;
+        this.realtimeMetrics = realtimeMetrics;
+        this.maxPendingEvents = maxPendingEvents;
+        this.ackTimeoutSeconds = ackTimeoutSeconds;
+
+        Gauge.builder("socketio.outbox.pending", outboxes, SocketClientOutbox::countPending)
+                .description("Events waiting for slow clients to acknowledge their previous frame")
+                .register(meterRegistry);
+        Gauge.builder("socketio.outbox.inflight", outboxes, SocketClientOutbox::countInFlight)
+                .description("Clients with a frame sent and not acknowledged yet")
+                .register(meterRegistry);
+        this.conflatedCounter = Counter.builder("socketio.outbox.conflated")
+                .description("Queued events replaced by a newer state of the same ticket")
+                .register(meterRegistry);
+        this.disconnectedCounter = Counter.builder("socketio.outbox.disconnected")
+                .description("Clients disconnected for lagging behind, they resync on reconnect")
+                .register(meterRegistry);
+        this.ackLatencyTimer = Timer.builder("socketio.frame.ack.latency")
+                .description("Time between sending a room frame to a client and its acknowledgement")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    private static final class Outbox {
+        private final SocketIOClient client;
+        private final String room;
+        private final boolean compact;
+        private final boolean acks;
+        private final Map<String, RoomEvent> pending = new LinkedHashMap<>();
+        private boolean inFlight;
+        private boolean closed;
+        private int unkeyed;
+
+        private Outbox(SocketIOClient client, String room, boolean compact, boolean acks) {
+            this.client = client;
+            this.room = room;
+            this.compact = compact;
+            this.acks = acks;
+        }
+    }
+
+    // acks tells whether the client acknowledges room_events frames, as announced in its handshake
+    public void register(SocketIOClient client, String room, boolean compact, boolean acks) {
+        outboxes.put(client.getSessionId(), new Outbox(client, room, compact, acks));
+        realtimeMetrics.connected(RealtimeMetrics.SOCKETIO, room);
+    }
+
+    public void unregister(SocketIOClient client) {
+        Outbox outbox = outboxes.remove(client.getSessionId());
+        if (outbox != null) {
+            synchronized (outbox) {
+                outbox.closed = true;
+                outbox.pending.clear();
+            }
+            realtimeMetrics.disconnected(RealtimeMetrics.SOCKETIO, outbox.room);
+        }
+    }
+
+    // encoded is the frame already encoded for the compact clients of the room, null for JSON clients or a replay
+    public void offer(SocketIOClient client, List<RoomEvent> events, Object encoded) {
+        Outbox outbox = outboxes.get(client.getSessionId());
+        if (outbox == null)
+            return;
+        boolean lagging;
+        synchronized (outbox) {
+            if (outbox.closed)
+                return;
+            if (!outbox.inFlight && outbox.pending.isEmpty()) {
+                send(outbox, events, encoded);
+                return;
+            }
+            for (RoomEvent event : events) {
+                String slot = event.getConflationSlot() == null ? "#" + outbox.unkeyed++ : event.getConflationSlot();
+                if (outbox.pending.put(slot, event) != null)
+                    conflatedCounter.increment();
+            }
+            lagging = outbox.pending.size() > maxPendingEvents;
+        }
+        if (lagging)
+            disconnect(outbox, "backlog over " + maxPendingEvents + " events");
+    }
+
+    // called with the outbox lock held
+    private void send(Outbox outbox, List<RoomEvent> events, Object encoded) {
+        Object frame = encoded != null ? encoded : outbox.compact ? roomFrameEncoder.encode(events) : events;
+        if (!outbox.acks) {
+            // never in flight, nothing queues up behind it
+            outbox.client.sendEvent(RoomEventPublisher.FRAME_EVENT, frame);
+            return;
+        }
+        outbox.inFlight = true;
+        long sentAt = System.nanoTime();
+        outbox.client.sendEvent(RoomEventPublisher.FRAME_EVENT, new AckCallback<>(Object.class, ackTimeoutSeconds) {
+            @Override
+            public void onSuccess(Object result) {
+                ackLatencyTimer.record(System.nanoTime() - sentAt, TimeUnit.NANOSECONDS);
+                acknowledged(outbox);
+            }
+
+            @Override
+            public void onTimeout() {
+                disconnect(outbox, "no acknowledgement within " + ackTimeoutSeconds + "s");
+            }
+        }, frame);
+    }
+
+    private void acknowledged(Outbox outbox) {
+        synchronized (outbox) {
+            outbox.inFlight = false;
+            if (outbox.closed || outbox.pending.isEmpty())
+                return;
+            List<RoomEvent> backlog = new ArrayList<>(outbox.pending.values());
+            outbox.pending.clear();
+            // conflated events keep the slot of their first version, the client applies them in sequence order
+            backlog.sort(Comparator.comparingLong(RoomEvent::seq));
+            send(outbox, backlog, null);
+        }
+    }
+
+    // the client reconnects with its last sequence and gets a replay or reloads its lists
+    private void disconnect(Outbox outbox, String reason) {
+        synchronized (outbox) {
+            if (outbox.closed)
+                return;
+            outbox.closed = true;
+            outbox.pending.clear();
+        }
+        // stays registered until the disconnect handler unregisters it and counts the client out of its room
+        disconnectedCounter.increment();
+        logger.warn("Disconnecting slow socket client " + outbox.client.getSessionId() + " of room " + outbox.room + ": " + reason);
+        outbox.client.sendEvent(RESYNC_EVENT, Map.of("seq", roomEventLog.getCurrentSeq(outbox.room)));
+        outbox.client.disconnect();
+    }
+
+    private static double countInFlight(Map<UUID, Outbox> outboxes) {
+        int inFlight = 0;
+        for (Outbox outbox : outboxes.values()) {
+            synchronized (outbox) {
+                if (outbox.inFlight && !outbox.closed)
+                    inFlight++;
+            }
+        }
+        return inFlight;
+    }
+
+    private static double countPending(Map<UUID, Outbox> outboxes) {
+        int pending = 0;
+        for (Outbox outbox : outboxes.values()) {
+            synchronized (outbox) {
+                pending += outbox.pending.size();
+            }
+        }
+        return pending;
+    }
+}
@@ -11,6 +11,7 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import com.example.backend.configuration.AppProperties;
+import com.example.backend.dto.event.TableStatusEvent;
 import com.example.backend.dto.request.CreateTableRequest;
 import com.example.backend.dto.response.TableResponse;
 import com.example.backend.entities.Area;
@@ -34,13 +35,15 @@ public class TableService {
     private final AreaRepository areaRepository;
     private final AppProperties appProps;
     private final TableMapper tableMapper;
+    private final RoomEventEmitter roomEventEmitter;
 
     public TableService(TableRepository tableRepository, AreaRepository areaRepository, AppProperties appProps,
-            TableMapper tableMapper) {
+            TableMapper tableMapper, RoomEventEmitter roomEventEmitter) {
         this.tableRepository = tableRepository;
         this.areaRepository = areaRepository;
         this.appProps = appProps;
         this.tableMapper = tableMapper;
+        this.roomEventEmitter = roomEventEmitter;
     }
 
     @Transactional(readOnly = true)
@@ -327,6 +330,9 @@ public class TableService {
         TableResponse response = tableMapper.toTableResponse(table);
         if (table.getArea() != null && table.getArea().getBranch() != null) {
             response.setBranchId(table.getArea().getBranch().getBranchId());
+            // floor screens of the branch update the table instead of polling
+            roomEventEmitter.emitAfterCommit(response.getBranchId().toString(), TableStatusEvent.NAME, table.getAreaTableId(),
+                    new TableStatusEvent(table.getAreaTableId(), table.getTag(), table.getStatus()));
         }
         return response;
     }
@@ -0,0 +1,102 @@
+package com.example.backend.utils;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.function.Supplier;
+
+/**
+ * Amount of VND kept as a long of minor units (1/100 VND, the scale of every price column).
+ * Pricing and summing run on the long; BigDecimal is only used at the entity and JSON boundary.
+ * Every operation overflows loudly instead of wrapping.
+ */
+public final class Money implements Comparable<Money> {
+
+    public static final int SCALE = 2;
+    public static final Money ZERO = new Money(0L);
+
+    private final long minorUnits;
+
+    private Money(long minorUnits) {
+        this.minorUnits = minorUnits;
+    }
+
+    public static Money ofMinorUnits(long minorUnits) {
+        return minorUnits == 0L ? ZERO : new Money(minorUnits);
+    }
+
+    // null is read as zero, like the COALESCE of the aggregate queries
+    public static Money of(BigDecimal amount) {
+        if (amount == null)
+            return ZERO;
+        return ofMinorUnits(amount.setScale(SCALE, RoundingMode.HALF_UP).unscaledValue().longValueExact());
+    }
+
+    public long getMinorUnits() {
+        return minorUnits;
+    }
+
+    public Money plus(Money other) {
+        return ofMinorUnits(Math.addExact(minorUnits, other.minorUnits));
+    }
+
+    public Money minus(Money other) {
+        return ofMinorUnits(Math.subtractExact(minorUnits, other.minorUnits));
+    }
+
+    public Money times(long quantity) {
+        return ofMinorUnits(Math.multiplyExact(minorUnits, quantity));
+    }
+
+    public Money negate() {
+        return ofMinorUnits(Math.negateExact(minorUnits));
+    }
+
+    // rounds half up (away from zero) to the nearest minor unit, never throws on a non-terminating quotient
+    public Money dividedBy(long divisor) {
+        if (divisor == 0L)
+            throw new ArithmeticException("Division of money by zero");
+        long quotient = minorUnits / divisor;
+        long remainder = minorUnits % divisor;
+        if (Math.abs(remainder) * 2 >= Math.abs(divisor))
+            quotient += Long.signum(minorUnits) * Long.signum(divisor);
+        return ofMinorUnits(quotient);
+    }
+
+    // unit price of a total priced as unit price * quantity, a total of zero units has kept no unit price
+    // so the list price given by the fallback is used instead of dividing by zero
+    public Money perUnit(long quantity, Supplier<Money> fallback) {
+        return quantity == 0L ? fallback.get() : dividedBy(quantity);
+    }
+
+    public int signum() {
+        return Long.signum(minorUnits);
+    }
+
+    public boolean isZero() {
+        return minorUnits == 0L;
+    }
+
+    public BigDecimal toBigDecimal() {
+        return BigDecimal.valueOf(minorUnits, SCALE);
+    }
+
+    @Override
+    public int compareTo(Money other) {
+        return Long.compare(minorUnits, other.minorUnits);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof Money other && other.minorUnits == minorUnits;
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(minorUnits);
+    }
+
+    @Override
+    public String toString() {
+        return toBigDecimal().toPlainString();
+    }
+}
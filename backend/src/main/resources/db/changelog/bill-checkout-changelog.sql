@@ -0,0 +1,6 @@
+-- liquibase formatted sql
+
+-- changeset quoc:bill-checkout-1
+-- end-of-day cash-up reads the bills of one branch over a paid_time range
+CREATE INDEX IF NOT EXISTS idx_bill_branch_paid_time
+    ON public.bill (branch_id, paid_time);
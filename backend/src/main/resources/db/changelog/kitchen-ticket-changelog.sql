@@ -0,0 +1,19 @@
+-- liquibase formatted sql
+
+-- changeset quoc:kitchen-ticket-1
+-- denormalized orderLine board, payload is the OrderLineDTO served by /api/orderlines/{status}/{branchId}
+CREATE TABLE kitchen_ticket
+(
+    order_line_id UUID                        NOT NULL,
+    branch_id     UUID                        NOT NULL,
+    status        VARCHAR(255)                NOT NULL,
+    payload       JSONB                       NOT NULL,
+    created_at    TIMESTAMP WITHOUT TIME ZONE NOT NULL,
+    updated_at    TIMESTAMP WITHOUT TIME ZONE NOT NULL,
+    CONSTRAINT pk_kitchen_ticket PRIMARY KEY (order_line_id),
+    CONSTRAINT fk_kitchen_ticket_on_order_line FOREIGN KEY (order_line_id) REFERENCES order_line (order_line_id) ON DELETE CASCADE
+);
+
+-- changeset quoc:kitchen-ticket-2
+CREATE INDEX idx_kitchen_ticket_branch_status_created
+    ON kitchen_ticket (branch_id, status, created_at DESC);
@@ -0,0 +1,50 @@
+-- liquibase formatted sql
+
+-- changeset quoc:open-order-per-table-0
+-- fold tables holding several EATING orders into their oldest one, otherwise the unique index below cannot be built:
+-- the order lines and running totals of the others move to it, the emptied orders are deleted
+-- (kept as CANCELLED with a zero total when a bill already points to them)
+CREATE TEMPORARY TABLE open_order_merge AS
+SELECT o.order_id AS duplicate_id, survivor.order_id AS survivor_id, o.total_price
+FROM orders o
+JOIN LATERAL (
+    SELECT k.order_id
+    FROM orders k
+    WHERE k.area_table_id = o.area_table_id
+      AND k.status = 'EATING'
+    ORDER BY k.created_at NULLS LAST, k.order_id
+    LIMIT 1
+) survivor ON survivor.order_id <> o.order_id
+WHERE o.status = 'EATING';
+
+UPDATE order_line ol
+SET order_id = m.survivor_id
+FROM open_order_merge m
+WHERE ol.order_id = m.duplicate_id;
+
+UPDATE orders o
+SET total_price = o.total_price + merged.total_price, updated_at = now()
+FROM (
+    SELECT survivor_id, SUM(total_price) AS total_price
+    FROM open_order_merge
+    GROUP BY survivor_id
+) merged
+WHERE o.order_id = merged.survivor_id;
+
+UPDATE orders o
+SET status = 'CANCELLED', total_price = 0, updated_at = now()
+FROM open_order_merge m
+WHERE o.order_id = m.duplicate_id;
+
+DELETE FROM orders o
+USING open_order_merge m
+WHERE o.order_id = m.duplicate_id
+  AND NOT EXISTS (SELECT 1 FROM bill b WHERE b.order_id = o.order_id);
+
+DROP TABLE open_order_merge;
+
+-- changeset quoc:open-order-per-table-1
+-- at most one EATING order per table, used by the open order allocator (INSERT ... ON CONFLICT DO NOTHING)
+CREATE UNIQUE INDEX IF NOT EXISTS uq_orders_open_per_table
+    ON public.orders (area_table_id)
+    WHERE status = 'EATING';
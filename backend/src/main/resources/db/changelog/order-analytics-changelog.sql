@@ -0,0 +1,7 @@
+-- liquibase formatted sql
+
+-- changeset quoc:order-analytics-1
+-- branch and restaurant analytics aggregate the orders of each table over a created_at range,
+-- status and total_price are carried in the index so the aggregation is an index-only scan
+CREATE INDEX IF NOT EXISTS idx_orders_area_table_created
+    ON public.orders (area_table_id, created_at) INCLUDE (status, total_price);
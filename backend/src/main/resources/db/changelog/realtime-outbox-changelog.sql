@@ -0,0 +1,25 @@
+-- liquibase formatted sql
+
+-- changeset quoc:realtime-outbox-1
+-- socket events written in the transaction of the state change they describe, drained by RealtimeOutboxService
+CREATE TABLE realtime_outbox
+(
+    id              BIGSERIAL                   NOT NULL,
+    room            VARCHAR(255)                NOT NULL,
+    event           VARCHAR(100)                NOT NULL,
+    event_key       VARCHAR(255),
+    payload         JSONB                       NOT NULL,
+    attempts        INTEGER                     NOT NULL DEFAULT 0,
+    created_at      TIMESTAMP WITHOUT TIME ZONE NOT NULL,
+    next_attempt_at TIMESTAMP WITHOUT TIME ZONE NOT NULL,
+    CONSTRAINT pk_realtime_outbox PRIMARY KEY (id)
+);
+
+-- changeset quoc:realtime-outbox-2
+CREATE INDEX idx_realtime_outbox_next_attempt
+    ON realtime_outbox (next_attempt_at, id);
+
+-- changeset quoc:realtime-outbox-3
+-- claim looks for earlier rows of the same room still waiting for their retry
+CREATE INDEX idx_realtime_outbox_room
+    ON realtime_outbox (room, id);
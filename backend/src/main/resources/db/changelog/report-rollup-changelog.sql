@@ -0,0 +1,14 @@
+-- liquibase formatted sql
+
+-- changeset quoc:report-rollup-1
+-- a month or a year of a chain does not fit DECIMAL(10, 2) VND
+ALTER TABLE public.branch_report ALTER COLUMN total_revenue TYPE DECIMAL(18, 2);
+ALTER TABLE public.restaurant_report ALTER COLUMN total_revenue TYPE DECIMAL(18, 2);
+ALTER TABLE public.restaurant_report ALTER COLUMN avg_revenue TYPE DECIMAL(18, 2);
+
+-- changeset quoc:report-rollup-2
+-- one rollup row per owner, report type and period start, rewritten in place by ReportRollupService
+ALTER TABLE public.branch_report
+    ADD CONSTRAINT uc_branch_report_branch_type_date UNIQUE (branch_id, report_type, create_date);
+ALTER TABLE public.restaurant_report
+    ADD CONSTRAINT uc_restaurant_report_restaurant_type_date UNIQUE (restaurant_id, report_type, create_date);
@@ -0,0 +1,185 @@
+package com.example.backend.benchmark;
+
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.example.backend.dto.request.CreateOrderItemCustomizationRequest;
+import com.example.backend.dto.request.CreateOrderItemRequest;
+import com.example.backend.entities.Customization;
+import com.example.backend.entities.MenuItem;
+import com.example.backend.entities.OrderItem;
+import com.example.backend.entities.OrderItemCustomization;
+import com.example.backend.entities.OrderLine;
+import com.example.backend.mapper.OrderItemCustomizationMapperImpl;
+import com.example.backend.mapper.OrderItemMapperImpl;
+import com.example.backend.repository.CustomizationRepository;
+import com.example.backend.repository.MenuItemRepository;
+import com.example.backend.service.OrderItemCustomizationService;
+import com.example.backend.service.OrderItemService;
+import com.example.backend.service.PriceBookService.PriceBook;
+import com.example.backend.service.PriceBookService.PriceEntry;
+import com.example.backend.utils.Money;
+
+/**
+ * Pricing of one guest order line through OrderItemService.createOrderItem, with the BigDecimal to Money and back
+ * conversions at the entity boundary, against the same entities priced in BigDecimal as the service did before Money.
+ * Repositories only answer getReferenceById, with a detached entity like the hibernate reference would be.
+ * Not part of the test suite, run with
+ * mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=com.example.backend.benchmark.OrderItemPricingBenchmark
+ * and compare the score together with gc.alloc.rate.norm.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OrderItemPricingBenchmark {
+
+    private static final int CUSTOMIZATIONS_PER_ITEM = 2;
+
+    @Param({"5", "50"})
+    private int orderItems;
+
+    private OrderItemService orderItemService;
+    private PriceBook priceBook;
+    private Map<UUID, BigDecimal> menuItemPrices;
+    private Map<UUID, BigDecimal> customizationPrices;
+    private List<CreateOrderItemRequest> requests;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        Map<UUID, PriceEntry> menuItems = new HashMap<>();
+        Map<UUID, PriceEntry> customizations = new HashMap<>();
+        menuItemPrices = new HashMap<>();
+        customizationPrices = new HashMap<>();
+        requests = new ArrayList<>(orderItems);
+        for (int i = 0; i < orderItems; i++) {
+            CreateOrderItemRequest request = new CreateOrderItemRequest();
+            request.setMenuItemId(UUID.randomUUID());
+            request.setQuantity(1 + random.nextInt(4));
+            // VND prices such as 45000.00, stored with the scale of the price columns
+            BigDecimal price = BigDecimal.valueOf((20 + random.nextInt(200)) * 1000L, 0).setScale(Money.SCALE);
+            menuItemPrices.put(request.getMenuItemId(), price);
+            menuItems.put(request.getMenuItemId(), new PriceEntry("item " + i, Money.of(price), true));
+            List<CreateOrderItemCustomizationRequest> customizationRequests = new ArrayList<>(CUSTOMIZATIONS_PER_ITEM);
+            for (int c = 0; c < CUSTOMIZATIONS_PER_ITEM; c++) {
+                CreateOrderItemCustomizationRequest customizationRequest = new CreateOrderItemCustomizationRequest();
+                customizationRequest.setCustomizationId(UUID.randomUUID());
+                customizationRequest.setQuantity(request.getQuantity());
+                BigDecimal customizationPrice = BigDecimal.valueOf((1 + random.nextInt(20)) * 1000L, 0).setScale(Money.SCALE);
+                customizationPrices.put(customizationRequest.getCustomizationId(), customizationPrice);
+                customizations.put(customizationRequest.getCustomizationId(), new PriceEntry("customization " + c, Money.of(customizationPrice), true));
+                customizationRequests.add(customizationRequest);
+            }
+            request.setCustomizations(customizationRequests);
+            requests.add(request);
+        }
+        priceBook = new PriceBook(UUID.randomUUID(), 1L, menuItems, customizations);
+
+        OrderItemMapperImpl orderItemMapper = new OrderItemMapperImpl();
+        OrderItemCustomizationMapperImpl orderItemCustomizationMapper = new OrderItemCustomizationMapperImpl();
+        ReflectionTestUtils.setField(orderItemMapper, "orderItemCustomizationMapper", orderItemCustomizationMapper);
+        OrderItemCustomizationService orderItemCustomizationService = new OrderItemCustomizationService(null,
+                referencesOnly(CustomizationRepository.class, OrderItemPricingBenchmark::customizationReference),
+                orderItemCustomizationMapper, null);
+        orderItemService = new OrderItemService(null, referencesOnly(MenuItemRepository.class, OrderItemPricingBenchmark::menuItemReference),
+                orderItemCustomizationService, orderItemMapper, null, null, null, null, null);
+    }
+
+    @Benchmark
+    public BigDecimal priceOrderLineBigDecimal() {
+        OrderLine orderLine = new OrderLine();
+        BigDecimal orderLineTotal = BigDecimal.ZERO;
+        for (CreateOrderItemRequest request : requests) {
+            OrderItem orderItem = new OrderItem();
+            orderItem.setQuantity(request.getQuantity());
+            orderItem.setNote(request.getNote());
+            orderItem.setStatus(request.isStatus());
+            orderItem.setMenuItem(menuItemReference(request.getMenuItemId()));
+            orderItem.setOrderLine(orderLine);
+            Set<OrderItemCustomization> orderItemCustomizations = new LinkedHashSet<>();
+            BigDecimal customizationTotal = BigDecimal.ZERO;
+            for (CreateOrderItemCustomizationRequest customizationRequest : request.getCustomizations()) {
+                OrderItemCustomization orderItemCustomization = new OrderItemCustomization();
+                orderItemCustomization.setQuantity(customizationRequest.getQuantity());
+                orderItemCustomization.setOrderItem(orderItem);
+                orderItemCustomization.setCustomization(customizationReference(customizationRequest.getCustomizationId()));
+                orderItemCustomization.setTotalPrice(customizationPrices.get(customizationRequest.getCustomizationId())
+                        .multiply(BigDecimal.valueOf(customizationRequest.getQuantity())));
+                orderItemCustomizations.add(orderItemCustomization);
+                customizationTotal = customizationTotal.add(orderItemCustomization.getTotalPrice());
+            }
+            orderItem.setOrderItemCustomizations(orderItemCustomizations);
+            orderItem.setTotalPrice(menuItemPrices.get(request.getMenuItemId()).multiply(BigDecimal.valueOf(request.getQuantity())).add(customizationTotal));
+            orderLineTotal = orderLineTotal.add(orderItem.getTotalPrice());
+        }
+        return orderLineTotal;
+    }
+
+    @Benchmark
+    public BigDecimal priceOrderLineService() {
+        Set<OrderItem> orderItems = orderItemService.createOrderItem(requests, new OrderLine(), priceBook);
+        // the order line total of OrderLineService, read back from the BigDecimal columns of the entities
+        Money orderLineTotal = Money.ZERO;
+        for (OrderItem orderItem : orderItems)
+            orderLineTotal = orderLineTotal.plus(Money.of(orderItem.getTotalPrice()));
+        return orderLineTotal.toBigDecimal();
+    }
+
+    private static MenuItem menuItemReference(UUID menuItemId) {
+        MenuItem menuItem = new MenuItem();
+        menuItem.setMenuItemId(menuItemId);
+        return menuItem;
+    }
+
+    private static Customization customizationReference(UUID customizationId) {
+        Customization customization = new Customization();
+        customization.setCustomizationId(customizationId);
+        return customization;
+    }
+
+    // the pricing path only asks repositories for references, anything else is a benchmark bug
+    @SuppressWarnings("unchecked")
+    private static <R> R referencesOnly(Class<R> repositoryType, Function<UUID, Object> reference) {
+        return (R) Proxy.newProxyInstance(repositoryType.getClassLoader(), new Class<?>[] {repositoryType}, (proxy, method, args) -> {
+            if (!method.getName().equals("getReferenceById"))
+                throw new UnsupportedOperationException(method.getName());
+            return reference.apply((UUID) args[0]);
+        });
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(OrderItemPricingBenchmark.class.getSimpleName())
+                .addProfiler("gc")
+                .build()).run();
+    }
+}
@@ -0,0 +1,139 @@
+package com.example.backend.benchmark;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import com.example.backend.dto.OrderItemCustomizationDTO;
+import com.example.backend.dto.OrderItemDTO;
+import com.example.backend.dto.OrderLineDTO;
+import com.example.backend.entities.OrderLineStatus;
+import com.example.backend.service.RoomEventLog.RoomEvent;
+import com.example.backend.service.RoomFrameEncoder;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * One room_events frame of create_orderLine events, JSON as sent to old clients against the compact encoding.
+ * Not part of the test suite, run with
+ * mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=com.example.backend.benchmark.RoomFrameEncodingBenchmark
+ * which prints the bytes per event of both encodings before the timings.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RoomFrameEncodingBenchmark {
+
+    private static final String[] MENU_ITEMS = {"Phở bò tái", "Bún chả Hà Nội", "Cơm tấm sườn bì", "Gỏi cuốn tôm thịt", "Trà đá"};
+    private static final String[] CUSTOMIZATIONS = {"Thêm trứng", "Thêm hành", "Ít cay", "Không đá"};
+
+    // 1: batching disabled, 50: a full batching window during a rush
+    @Param({"1", "50"})
+    private int events;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final RoomFrameEncoder encoder = new RoomFrameEncoder(objectMapper);
+    private List<RoomEvent> frame;
+
+    @Setup
+    public void setUp() {
+        frame = createFrame(events);
+    }
+
+    @Benchmark
+    public byte[] encodeJson() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(frame);
+    }
+
+    @Benchmark
+    public byte[] encodeCompact() {
+        return encoder.encode(frame);
+    }
+
+    private static List<RoomEvent> createFrame(int events) {
+        Random random = new Random(42);
+        // the same menu of a branch, ids repeat across orderLines like in a real rush
+        UUID[] menuItemIds = new UUID[MENU_ITEMS.length];
+        for (int i = 0; i < menuItemIds.length; i++)
+            menuItemIds[i] = new UUID(random.nextLong(), random.nextLong());
+        UUID[] customizationIds = new UUID[CUSTOMIZATIONS.length];
+        for (int i = 0; i < customizationIds.length; i++)
+            customizationIds[i] = new UUID(random.nextLong(), random.nextLong());
+
+        List<RoomEvent> frame = new ArrayList<>();
+        for (int e = 0; e < events; e++) {
+            OrderLineDTO orderLine = new OrderLineDTO();
+            orderLine.setOrderLineId(new UUID(random.nextLong(), random.nextLong()));
+            orderLine.setOrderLineStatus(OrderLineStatus.PENDING);
+            orderLine.setCreatedAt(Instant.ofEpochSecond(1_760_000_000L + e).toString());
+            orderLine.setTableTag("T" + (1 + random.nextInt(30)));
+            orderLine.setAreaName("Tầng " + (1 + random.nextInt(3)));
+            List<OrderItemDTO> orderItems = new ArrayList<>();
+            BigDecimal total = BigDecimal.ZERO;
+            for (int i = 0; i < 3; i++) {
+                int menuItem = random.nextInt(MENU_ITEMS.length);
+                OrderItemDTO orderItem = new OrderItemDTO();
+                orderItem.setOrderItemId(new UUID(random.nextLong(), random.nextLong()));
+                orderItem.setMenuItemId(menuItemIds[menuItem]);
+                orderItem.setMenuItemName(MENU_ITEMS[menuItem]);
+                orderItem.setQuantity(1 + random.nextInt(3));
+                orderItem.setTotalPrice(BigDecimal.valueOf((20 + random.nextInt(100)) * 1000L, 0).setScale(2));
+                orderItem.setStatus(true);
+                List<OrderItemCustomizationDTO> customizations = new ArrayList<>();
+                int customization = random.nextInt(CUSTOMIZATIONS.length);
+                OrderItemCustomizationDTO orderItemCustomization = new OrderItemCustomizationDTO();
+                orderItemCustomization.setOrderItemCustomizationId(new UUID(random.nextLong(), random.nextLong()));
+                orderItemCustomization.setCustomizationId(customizationIds[customization]);
+                orderItemCustomization.setCustomizationName(CUSTOMIZATIONS[customization]);
+                orderItemCustomization.setQuantity(1);
+                orderItemCustomization.setTotalPrice(BigDecimal.valueOf(5000L, 0).setScale(2));
+                customizations.add(orderItemCustomization);
+                orderItem.setCustomizations(customizations);
+                orderItems.add(orderItem);
+                total = total.add(orderItem.getTotalPrice());
+            }
+            orderLine.setOrderItems(orderItems);
+            orderLine.setTotalPrice(total);
+            frame.add(new RoomEvent(e + 1, "create_orderLine", orderLine.getOrderLineId().toString(), orderLine));
+        }
+        return frame;
+    }
+
+    public static void main(String[] args) throws RunnerException, JsonProcessingException {
+        ObjectMapper objectMapper = new ObjectMapper();
+        RoomFrameEncoder encoder = new RoomFrameEncoder(objectMapper);
+        for (int events : new int[] {1, 50}) {
+            List<RoomEvent> frame = createFrame(events);
+            int json = objectMapper.writeValueAsBytes(frame).length;
+            int compact = encoder.encode(frame).length;
+            System.out.printf("%d events: json %d bytes/event, compact %d bytes/event (%.0f%%)%n",
+                    events, json / events, compact / events, 100.0 * compact / json);
+        }
+        new Runner(new OptionsBuilder()
+                .include(RoomFrameEncodingBenchmark.class.getSimpleName())
+                .addProfiler("gc")
+                .build()).run();
+    }
+}
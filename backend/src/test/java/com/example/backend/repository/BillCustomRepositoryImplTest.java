@@ -0,0 +1,136 @@
+package com.example.backend.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Optional;
+import java.util.UUID;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.backend.entities.PaymentMethod;
+import com.example.backend.repository.BillCustomRepository.CheckoutResult;
+
+import io.zonky.test.db.AutoConfigureEmbeddedDatabase;
+
+/**
+ * The checkout statement closes the order, bills its stored running total and frees its table at once,
+ * and a second checkout of the same order finds nothing to close.
+ */
+@DataJpaTest(properties = {
+        "spring.liquibase.enabled=true",
+        "spring.liquibase.change-log=classpath:db/changelog/db.changelog-master.yaml"
+})
+@AutoConfigureEmbeddedDatabase(provider = AutoConfigureEmbeddedDatabase.DatabaseProvider.ZONKY)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class BillCustomRepositoryImplTest {
+
+    // table T1 on Floor 1 of the seeded branch
+    private static final UUID AREA_TABLE_ID = UUID.fromString("a1111111-1111-4111-8111-111111111111");
+    private static final UUID BRANCH_ID = UUID.fromString("ba111111-1111-1111-1111-111111111111");
+    private static final UUID MENU_ITEM_ID = UUID.fromString("f1111111-1111-1111-1111-111111111111");
+
+    @Autowired
+    private BillRepository billRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private UUID orderId;
+    private Instant orderCreatedAt;
+
+    @BeforeEach
+    void seatGuests() {
+        orderId = UUID.randomUUID();
+        orderCreatedAt = Instant.now().minus(1, ChronoUnit.HOURS).truncatedTo(ChronoUnit.MILLIS);
+        UUID orderLineId = UUID.randomUUID();
+        jdbcTemplate.update("UPDATE area_table SET status = 'OCCUPIED' WHERE area_table_id = ?", AREA_TABLE_ID);
+        jdbcTemplate.update("INSERT INTO orders (order_id, area_table_id, status, total_price, created_at, updated_at) "
+                + "VALUES (?, ?, 'EATING', 245000.00, ?, ?)", orderId, AREA_TABLE_ID,
+                Timestamp.from(orderCreatedAt), Timestamp.from(orderCreatedAt));
+        jdbcTemplate.update("INSERT INTO order_line (order_line_id, order_id, order_line_status, total_price, created_at, updated_at) "
+                + "VALUES (?, ?, 'COMPLETED', 245000.00, now(), now())", orderLineId, orderId);
+        jdbcTemplate.update("INSERT INTO order_item (order_item_id, order_line_id, menu_item_id, quantity, total_price, status) "
+                + "VALUES (?, ?, ?, 2, 240000.00, true)", UUID.randomUUID(), orderLineId, MENU_ITEM_ID);
+        jdbcTemplate.update("INSERT INTO order_item (order_item_id, order_line_id, menu_item_id, quantity, total_price, status) "
+                + "VALUES (?, ?, ?, 1, 5000.00, true)", UUID.randomUUID(), orderLineId, MENU_ITEM_ID);
+    }
+
+    @AfterEach
+    void deleteOrders() {
+        jdbcTemplate.update("DELETE FROM bill WHERE order_id IN (SELECT order_id FROM orders WHERE area_table_id = ?)", AREA_TABLE_ID);
+        jdbcTemplate.update("DELETE FROM order_item WHERE order_line_id IN (SELECT order_line_id FROM order_line WHERE order_id IN "
+                + "(SELECT order_id FROM orders WHERE area_table_id = ?))", AREA_TABLE_ID);
+        jdbcTemplate.update("DELETE FROM order_line WHERE order_id IN (SELECT order_id FROM orders WHERE area_table_id = ?)", AREA_TABLE_ID);
+        jdbcTemplate.update("DELETE FROM orders WHERE area_table_id = ?", AREA_TABLE_ID);
+        jdbcTemplate.update("UPDATE area_table SET status = 'FREE' WHERE area_table_id = ?", AREA_TABLE_ID);
+    }
+
+    @Test
+    void checkoutBillsTheRunningTotalAndFreesTheTable() {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        LocalDateTime paidTime = LocalDateTime.of(2026, 10, 18, 20, 30);
+
+        Optional<CheckoutResult> checkout = transactionTemplate.execute(status ->
+                billRepository.checkout(orderId, PaymentMethod.ONLINE, "table 1", paidTime, Instant.now()));
+
+        assertThat(checkout).isPresent();
+        CheckoutResult result = checkout.get();
+        assertThat(result.bill().getOrderId()).isEqualTo(orderId);
+        assertThat(result.bill().getFinalPrice()).isEqualByComparingTo("245000.00");
+        assertThat(result.bill().getPaymentMethod()).isEqualTo(PaymentMethod.ONLINE);
+        assertThat(result.bill().getNote()).isEqualTo("table 1");
+        assertThat(result.bill().getPaidTime()).isEqualTo(paidTime);
+        assertThat(result.branchId()).isEqualTo(BRANCH_ID);
+        assertThat(result.areaTableId()).isEqualTo(AREA_TABLE_ID);
+        assertThat(result.tableTag()).isEqualTo("T1");
+        assertThat(result.orderCreatedAt()).isEqualTo(orderCreatedAt);
+        assertThat(result.itemsSold()).isEqualTo(3L);
+
+        assertThat(jdbcTemplate.queryForObject("SELECT status FROM orders WHERE order_id = ?", String.class, orderId))
+                .isEqualTo("COMPLETED");
+        assertThat(jdbcTemplate.queryForObject("SELECT status FROM area_table WHERE area_table_id = ?", String.class, AREA_TABLE_ID))
+                .isEqualTo("FREE");
+        assertThat(jdbcTemplate.queryForObject("SELECT branch_id FROM bill WHERE order_id = ?", UUID.class, orderId))
+                .isEqualTo(BRANCH_ID);
+    }
+
+    @Test
+    void secondCheckoutOfAnOrderFindsNothingToClose() {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.execute(status -> billRepository.checkout(orderId, PaymentMethod.CASH, null, LocalDateTime.now(), Instant.now()));
+
+        Optional<CheckoutResult> again = transactionTemplate.execute(status ->
+                billRepository.checkout(orderId, PaymentMethod.CASH, null, LocalDateTime.now(), Instant.now()));
+
+        assertThat(again).isEmpty();
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM bill WHERE order_id = ?", Long.class, orderId)).isEqualTo(1L);
+    }
+
+    @Test
+    void unknownOrderIsNotCheckedOut() {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+
+        Optional<CheckoutResult> checkout = transactionTemplate.execute(status ->
+                billRepository.checkout(UUID.randomUUID(), PaymentMethod.CASH, null, LocalDateTime.now(), Instant.now()));
+
+        assertThat(checkout).isEmpty();
+        assertThat(jdbcTemplate.queryForObject("SELECT status FROM area_table WHERE area_table_id = ?", String.class, AREA_TABLE_ID))
+                .isEqualTo("OCCUPIED");
+    }
+}
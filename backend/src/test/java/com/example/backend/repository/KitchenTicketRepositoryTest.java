@@ -0,0 +1,111 @@
+package com.example.backend.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.UUID;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import io.zonky.test.db.AutoConfigureEmbeddedDatabase;
+
+/**
+ * The kitchen_ticket read model: one row per orderLine, rewritten in place and moved between boards by status.
+ */
+@DataJpaTest(properties = {
+        "spring.liquibase.enabled=true",
+        "spring.liquibase.change-log=classpath:db/changelog/db.changelog-master.yaml"
+})
+@AutoConfigureEmbeddedDatabase(provider = AutoConfigureEmbeddedDatabase.DatabaseProvider.ZONKY)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class KitchenTicketRepositoryTest {
+
+    // table T1 on Floor 1 of the seeded branch
+    private static final UUID AREA_TABLE_ID = UUID.fromString("a1111111-1111-4111-8111-111111111111");
+    private static final UUID BRANCH_ID = UUID.fromString("ba111111-1111-1111-1111-111111111111");
+
+    @Autowired
+    private KitchenTicketRepository kitchenTicketRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private UUID orderLineId;
+    private Instant createdAt;
+
+    @BeforeEach
+    void placeOrderLine() {
+        UUID orderId = UUID.randomUUID();
+        orderLineId = UUID.randomUUID();
+        createdAt = Instant.now().minus(10, ChronoUnit.MINUTES).truncatedTo(ChronoUnit.MILLIS);
+        jdbcTemplate.update("INSERT INTO orders (order_id, area_table_id, status, total_price, created_at, updated_at) "
+                + "VALUES (?, ?, 'EATING', 0, now(), now())", orderId, AREA_TABLE_ID);
+        jdbcTemplate.update("INSERT INTO order_line (order_line_id, order_id, order_line_status, total_price, created_at, updated_at) "
+                + "VALUES (?, ?, 'PENDING', 0, ?, ?)", orderLineId, orderId, Timestamp.from(createdAt), Timestamp.from(createdAt));
+    }
+
+    @AfterEach
+    void deleteOrders() {
+        jdbcTemplate.update("DELETE FROM order_line WHERE order_id IN (SELECT order_id FROM orders WHERE area_table_id = ?)", AREA_TABLE_ID);
+        jdbcTemplate.update("DELETE FROM orders WHERE area_table_id = ?", AREA_TABLE_ID);
+    }
+
+    @Test
+    void upsertReplacesThePayloadAndKeepsTheFirstCreatedAt() {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.execute(status -> kitchenTicketRepository.upsert(orderLineId, BRANCH_ID, "PENDING",
+                "{\"orderLineStatus\": \"PENDING\", \"note\": \"first\"}", createdAt, Instant.now()));
+
+        transactionTemplate.execute(status -> kitchenTicketRepository.upsert(orderLineId, BRANCH_ID, "PENDING",
+                "{\"orderLineStatus\": \"PENDING\", \"note\": \"second\"}", Instant.now(), Instant.now()));
+
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM kitchen_ticket WHERE order_line_id = ?", Long.class, orderLineId))
+                .isEqualTo(1L);
+        assertThat(jdbcTemplate.queryForObject("SELECT payload ->> 'note' FROM kitchen_ticket WHERE order_line_id = ?", String.class, orderLineId))
+                .isEqualTo("second");
+        assertThat(jdbcTemplate.queryForObject("SELECT created_at FROM kitchen_ticket WHERE order_line_id = ?", Timestamp.class, orderLineId)
+                .toInstant()).isEqualTo(createdAt);
+    }
+
+    @Test
+    void updateStatusMovesTheTicketToAnotherBoard() {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        Instant from = createdAt.minus(1, ChronoUnit.MINUTES);
+        Instant to = Instant.now().plus(1, ChronoUnit.MINUTES);
+        transactionTemplate.execute(status -> kitchenTicketRepository.upsert(orderLineId, BRANCH_ID, "PENDING",
+                "{\"orderLineStatus\": \"PENDING\"}", createdAt, Instant.now()));
+
+        transactionTemplate.execute(status -> kitchenTicketRepository.updateStatus(orderLineId, "COOKING", Instant.now()));
+
+        assertThat(kitchenTicketRepository.findPayloads(BRANCH_ID, "PENDING", from, to)).isEmpty();
+        List<String> cooking = kitchenTicketRepository.findPayloads(BRANCH_ID, "COOKING", from, to);
+        assertThat(cooking).hasSize(1);
+        assertThat(cooking.get(0)).contains("\"orderLineStatus\": \"COOKING\"");
+    }
+
+    @Test
+    void orderLinesWithoutTicketAreFoundForBackfill() {
+        Instant from = createdAt.minus(1, ChronoUnit.MINUTES);
+        assertThat(kitchenTicketRepository.findOrderLineIdsWithoutTicket(from)).contains(orderLineId);
+
+        new TransactionTemplate(transactionManager).execute(status -> kitchenTicketRepository.upsert(orderLineId, BRANCH_ID,
+                "PENDING", "{\"orderLineStatus\": \"PENDING\"}", createdAt, Instant.now()));
+
+        assertThat(kitchenTicketRepository.findOrderLineIdsWithoutTicket(from)).doesNotContain(orderLineId);
+    }
+}
@@ -0,0 +1,180 @@
+package com.example.backend.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.backend.dto.OrderTotalDriftDTO;
+import com.example.backend.repository.OrderCustomRepository.OpenOrder;
+
+import io.zonky.test.db.AutoConfigureEmbeddedDatabase;
+
+/**
+ * Runs the allocator against a real postgres built by the liquibase changelogs, the partial unique index
+ * is what keeps concurrent scans of a table on a single order.
+ */
+@DataJpaTest(properties = {
+        "spring.liquibase.enabled=true",
+        "spring.liquibase.change-log=classpath:db/changelog/db.changelog-master.yaml"
+})
+@AutoConfigureEmbeddedDatabase(provider = AutoConfigureEmbeddedDatabase.DatabaseProvider.ZONKY)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class OrderCustomRepositoryImplTest {
+
+    // table T1 of the seeded branch
+    private static final UUID AREA_TABLE_ID = UUID.fromString("a1111111-1111-4111-8111-111111111111");
+    private static final UUID BRANCH_ID = UUID.fromString("ba111111-1111-1111-1111-111111111111");
+    private static final UUID MENU_ITEM_ID = UUID.fromString("f1111111-1111-1111-1111-111111111111");
+    private static final int SCANS = 16;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @AfterEach
+    void deleteOrders() {
+        jdbcTemplate.update("DELETE FROM order_item WHERE order_line_id IN (SELECT order_line_id FROM order_line WHERE order_id IN "
+                + "(SELECT order_id FROM orders WHERE area_table_id = ?))", AREA_TABLE_ID);
+        jdbcTemplate.update("DELETE FROM order_line WHERE order_id IN (SELECT order_id FROM orders WHERE area_table_id = ?)", AREA_TABLE_ID);
+        jdbcTemplate.update("DELETE FROM orders WHERE area_table_id = ?", AREA_TABLE_ID);
+    }
+
+    @Test
+    void concurrentScansOfATableShareOneOrder() throws Exception {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(SCANS);
+        try {
+            List<Future<OpenOrder>> scans = new ArrayList<>();
+            for (int i = 0; i < SCANS; i++) {
+                scans.add(executor.submit(() -> {
+                    start.await();
+                    return transactionTemplate.execute(status -> orderRepository.allocateOpenOrder(AREA_TABLE_ID).orElseThrow());
+                }));
+            }
+            start.countDown();
+
+            Set<UUID> orderIds = new HashSet<>();
+            int created = 0;
+            for (Future<OpenOrder> scan : scans) {
+                OpenOrder openOrder = scan.get();
+                orderIds.add(openOrder.orderId());
+                if (openOrder.created())
+                    created++;
+            }
+
+            assertThat(orderIds).hasSize(1);
+            assertThat(created).isEqualTo(1);
+            assertThat(jdbcTemplate.queryForObject(
+                    "SELECT COUNT(*) FROM orders WHERE area_table_id = ? AND status = 'EATING'", Long.class, AREA_TABLE_ID))
+                    .isEqualTo(1L);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void migrationFoldsDuplicateOpenOrders() throws Exception {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        String changelog = new ClassPathResource("db/changelog/open-order-per-table-changelog.sql").getContentAsString(StandardCharsets.UTF_8);
+        String fold = changelog.substring(changelog.indexOf("-- changeset quoc:open-order-per-table-0"),
+                changelog.indexOf("-- changeset quoc:open-order-per-table-1"));
+        UUID oldest = UUID.randomUUID();
+        UUID duplicate = UUID.randomUUID();
+        UUID duplicateLine = UUID.randomUUID();
+
+        transactionTemplate.executeWithoutResult(status -> {
+            // the state the index was created over: tables with several open orders
+            jdbcTemplate.execute("DROP INDEX uq_orders_open_per_table");
+            jdbcTemplate.update("INSERT INTO orders (order_id, area_table_id, status, total_price, created_at, updated_at) "
+                    + "VALUES (?, ?, 'EATING', 10.00, now() - interval '1 hour', now())", oldest, AREA_TABLE_ID);
+            jdbcTemplate.update("INSERT INTO orders (order_id, area_table_id, status, total_price, created_at, updated_at) "
+                    + "VALUES (?, ?, 'EATING', 2.50, now(), now())", duplicate, AREA_TABLE_ID);
+            jdbcTemplate.update("INSERT INTO order_line (order_line_id, order_id, order_line_status, total_price, created_at, updated_at) "
+                    + "VALUES (?, ?, 'PENDING', 2.50, now(), now())", duplicateLine, duplicate);
+            jdbcTemplate.execute(fold);
+            jdbcTemplate.execute(changelog.substring(changelog.indexOf("CREATE UNIQUE INDEX")));
+        });
+
+        assertThat(jdbcTemplate.queryForList("SELECT order_id FROM orders WHERE area_table_id = ?", UUID.class, AREA_TABLE_ID))
+                .containsExactly(oldest);
+        assertThat(jdbcTemplate.queryForObject("SELECT total_price FROM orders WHERE order_id = ?", BigDecimal.class, oldest))
+                .isEqualByComparingTo("12.50");
+        assertThat(jdbcTemplate.queryForObject("SELECT order_id FROM order_line WHERE order_line_id = ?", UUID.class, duplicateLine))
+                .isEqualTo(oldest);
+    }
+
+    @Test
+    void reconcileRepairsDriftedTotalsOnce() {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        UUID orderId = UUID.randomUUID();
+        UUID servedLine = UUID.randomUUID();
+        UUID cancelledLine = UUID.randomUUID();
+        jdbcTemplate.update("INSERT INTO orders (order_id, area_table_id, status, total_price, created_at, updated_at) "
+                + "VALUES (?, ?, 'EATING', 999.00, now(), now())", orderId, AREA_TABLE_ID);
+        // the served line lost an increment, the cancelled one is right and must not count in the order
+        jdbcTemplate.update("INSERT INTO order_line (order_line_id, order_id, order_line_status, total_price, created_at, updated_at) "
+                + "VALUES (?, ?, 'COMPLETED', 50.00, now(), now())", servedLine, orderId);
+        jdbcTemplate.update("INSERT INTO order_line (order_line_id, order_id, order_line_status, total_price, created_at, updated_at) "
+                + "VALUES (?, ?, 'CANCELLED', 30.00, now(), now())", cancelledLine, orderId);
+        insertOrderItem(servedLine, "100.00", true);
+        // a removed item does not count in its line
+        insertOrderItem(servedLine, "20.00", false);
+        insertOrderItem(cancelledLine, "30.00", true);
+        Instant from = Instant.now().minus(1, ChronoUnit.DAYS);
+
+        List<OrderTotalDriftDTO> drifts = transactionTemplate.execute(status -> orderRepository.reconcileTotals(BRANCH_ID, from));
+
+        assertThat(drifts).extracting(OrderTotalDriftDTO::getScope, OrderTotalDriftDTO::getOrderLineId)
+                .containsExactlyInAnyOrder(tuple("ORDER_LINE", servedLine),
+                        tuple("ORDER", null));
+        assertThat(jdbcTemplate.queryForObject("SELECT total_price FROM order_line WHERE order_line_id = ?", BigDecimal.class, servedLine))
+                .isEqualByComparingTo("100.00");
+        assertThat(jdbcTemplate.queryForObject("SELECT total_price FROM orders WHERE order_id = ?", BigDecimal.class, orderId))
+                .isEqualByComparingTo("100.00");
+        List<OrderTotalDriftDTO> again = transactionTemplate.execute(status -> orderRepository.reconcileTotals(BRANCH_ID, from));
+        assertThat(again).isEmpty();
+    }
+
+    @Test
+    void unknownTableHasNoOpenOrder() {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        Optional<OpenOrder> openOrder = transactionTemplate.execute(status -> orderRepository.allocateOpenOrder(UUID.randomUUID()));
+        assertThat(openOrder).isEmpty();
+    }
+
+    private void insertOrderItem(UUID orderLineId, String totalPrice, boolean active) {
+        jdbcTemplate.update("INSERT INTO order_item (order_item_id, order_line_id, menu_item_id, quantity, total_price, status) "
+                + "VALUES (?, ?, ?, 1, ?, ?)", UUID.randomUUID(), orderLineId, MENU_ITEM_ID, new BigDecimal(totalPrice), active);
+    }
+}
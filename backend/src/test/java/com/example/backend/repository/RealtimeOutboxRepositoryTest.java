@@ -0,0 +1,121 @@
+package com.example.backend.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.backend.repository.RealtimeOutboxRepository.OutboxRow;
+
+import io.zonky.test.db.AutoConfigureEmbeddedDatabase;
+
+/**
+ * A room must never be sent out of order: rows behind one that waits for its retry, or behind one claimed
+ * by another node, stay in the outbox until it is gone.
+ */
+@DataJpaTest(properties = {
+        "spring.liquibase.enabled=true",
+        "spring.liquibase.change-log=classpath:db/changelog/db.changelog-master.yaml"
+})
+@AutoConfigureEmbeddedDatabase(provider = AutoConfigureEmbeddedDatabase.DatabaseProvider.ZONKY)
+@Import(RealtimeOutboxRepository.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class RealtimeOutboxRepositoryTest {
+
+    private static final String ROOM = "room-a";
+    private static final String OTHER_ROOM = "room-b";
+
+    @Autowired
+    private RealtimeOutboxRepository realtimeOutboxRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @AfterEach
+    void deleteRows() {
+        jdbcTemplate.update("DELETE FROM realtime_outbox");
+    }
+
+    @Test
+    void rowsBehindARescheduledRowWaitForIt() {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        Instant now = Instant.now();
+        transactionTemplate.executeWithoutResult(status -> {
+            realtimeOutboxRepository.append(ROOM, "update_orderLine", "line-1", "{}", now);
+            realtimeOutboxRepository.append(ROOM, "update_orderLine", "line-2", "{}", now);
+            realtimeOutboxRepository.append(OTHER_ROOM, "update_orderLine", "line-3", "{}", now);
+        });
+
+        // the first event of the room fails and goes back with a backoff
+        OutboxRow failed = transactionTemplate.execute(status -> {
+            List<OutboxRow> claimed = realtimeOutboxRepository.claim(1, now);
+            realtimeOutboxRepository.reschedule(claimed.get(0), now.plusSeconds(2));
+            return claimed.get(0);
+        });
+        assertThat(failed.eventKey()).isEqualTo("line-1");
+
+        List<OutboxRow> beforeRetry = transactionTemplate.execute(status -> realtimeOutboxRepository.claim(10, now.plusSeconds(1)));
+        assertThat(beforeRetry).extracting(OutboxRow::eventKey).containsExactly("line-3");
+
+        List<OutboxRow> atRetry = transactionTemplate.execute(status -> realtimeOutboxRepository.claim(10, now.plusSeconds(2)));
+        assertThat(atRetry).extracting(OutboxRow::eventKey).containsExactly("line-1", "line-2");
+    }
+
+    @Test
+    void rowsBehindARowClaimedByAnotherNodeWaitForIt() throws Exception {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        Instant now = Instant.now();
+        transactionTemplate.executeWithoutResult(status -> {
+            realtimeOutboxRepository.append(ROOM, "update_orderLine", "line-1", "{}", now);
+            realtimeOutboxRepository.append(ROOM, "update_orderLine", "line-2", "{}", now);
+            realtimeOutboxRepository.append(OTHER_ROOM, "update_orderLine", "line-3", "{}", now);
+        });
+
+        CountDownLatch claimed = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            // the other node holds the first event of the room in its open transaction
+            Future<List<OutboxRow>> otherNode = executor.submit(() -> transactionTemplate.execute(status -> {
+                List<OutboxRow> rows = realtimeOutboxRepository.claim(1, now);
+                claimed.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return rows;
+            }));
+            claimed.await();
+
+            List<OutboxRow> thisNode = transactionTemplate.execute(status -> realtimeOutboxRepository.claim(10, now));
+            release.countDown();
+
+            assertThat(otherNode.get()).extracting(OutboxRow::eventKey).containsExactly("line-1");
+            assertThat(thisNode).extracting(OutboxRow::eventKey).containsExactly("line-3");
+            List<OutboxRow> afterCommit = transactionTemplate.execute(status -> realtimeOutboxRepository.claim(10, now));
+            assertThat(afterCommit).extracting(OutboxRow::eventKey).containsExactly("line-2");
+        } finally {
+            release.countDown();
+            executor.shutdownNow();
+        }
+    }
+}
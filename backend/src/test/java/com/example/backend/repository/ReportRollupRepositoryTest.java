@@ -0,0 +1,167 @@
+package com.example.backend.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Map;
+import java.util.UUID;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import io.zonky.test.db.AutoConfigureEmbeddedDatabase;
+
+/**
+ * The rollup upserts of BranchReportRepository and RestaurantReportRepository: one row per owner, type and period,
+ * rewritten in place when a day is rolled up again.
+ */
+@DataJpaTest(properties = {
+        "spring.liquibase.enabled=true",
+        "spring.liquibase.change-log=classpath:db/changelog/db.changelog-master.yaml"
+})
+@AutoConfigureEmbeddedDatabase(provider = AutoConfigureEmbeddedDatabase.DatabaseProvider.ZONKY)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class ReportRollupRepositoryTest {
+
+    private static final ZoneId VIETNAM_TIMEZONE = ZoneId.of("Asia/Ho_Chi_Minh");
+    // table T1 on Floor 1 of the seeded branch
+    private static final UUID AREA_TABLE_ID = UUID.fromString("a1111111-1111-4111-8111-111111111111");
+    private static final UUID BRANCH_ID = UUID.fromString("ba111111-1111-1111-1111-111111111111");
+    // a closed day with no other orders
+    private static final LocalDate DAY = LocalDate.of(2024, 3, 10);
+
+    @Autowired
+    private BranchReportRepository branchReportRepository;
+
+    @Autowired
+    private RestaurantReportRepository restaurantReportRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private UUID restaurantId;
+
+    @BeforeEach
+    void placeOrders() {
+        restaurantId = jdbcTemplate.queryForObject("SELECT restaurant_id FROM branch WHERE branch_id = ?", UUID.class, BRANCH_ID);
+        insertOrder(DAY, "COMPLETED", "100000.00");
+        insertOrder(DAY, "COMPLETED", "50000.00");
+        insertOrder(DAY, "CANCELLED", "20000.00");
+        insertOrder(DAY, "EATING", "10000.00");
+        // the next day is not part of the rollup of DAY
+        insertOrder(DAY.plusDays(1), "COMPLETED", "999000.00");
+    }
+
+    @AfterEach
+    void deleteRows() {
+        jdbcTemplate.update("DELETE FROM branch_report");
+        jdbcTemplate.update("DELETE FROM restaurant_report");
+        jdbcTemplate.update("DELETE FROM orders WHERE area_table_id = ?", AREA_TABLE_ID);
+    }
+
+    @Test
+    void dayRowCountsTheOrdersOfTheDay() {
+        rollUpDay();
+
+        Map<String, Object> row = getBranchRow("DAY", DAY);
+        assertThat(((Number) row.get("total_order")).intValue()).isEqualTo(4);
+        assertThat(((Number) row.get("completed_order")).intValue()).isEqualTo(2);
+        assertThat(((Number) row.get("cancelled_order")).intValue()).isEqualTo(1);
+        assertThat((BigDecimal) row.get("total_revenue")).isEqualByComparingTo("150000.00");
+        // active branches without orders get a zero row
+        assertThat(jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM branch_report WHERE report_type = 'DAY' AND create_date = ? AND total_order = 0",
+                Long.class, DAY.atStartOfDay())).isPositive();
+    }
+
+    @Test
+    void rollingUpADayAgainRewritesItsRow() {
+        rollUpDay();
+        insertOrder(DAY, "COMPLETED", "30000.00");
+
+        rollUpDay();
+
+        assertThat(jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM branch_report WHERE branch_id = ? AND report_type = 'DAY' AND create_date = ?",
+                Long.class, BRANCH_ID, DAY.atStartOfDay())).isEqualTo(1L);
+        Map<String, Object> row = getBranchRow("DAY", DAY);
+        assertThat(((Number) row.get("completed_order")).intValue()).isEqualTo(3);
+        assertThat((BigDecimal) row.get("total_revenue")).isEqualByComparingTo("180000.00");
+    }
+
+    @Test
+    void restaurantDayRowSumsItsBranches() {
+        rollUpDay();
+
+        Map<String, Object> row = jdbcTemplate.queryForMap(
+                "SELECT * FROM restaurant_report WHERE restaurant_id = ? AND report_type = 'DAY' AND create_date = ?",
+                restaurantId, DAY.atStartOfDay());
+        Long activeBranches = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM branch WHERE restaurant_id = ? AND is_active = true", Long.class, restaurantId);
+        assertThat(((Number) row.get("total_branches")).longValue()).isEqualTo(activeBranches);
+        assertThat(((Number) row.get("completed_order")).intValue()).isEqualTo(2);
+        assertThat((BigDecimal) row.get("total_revenue")).isEqualByComparingTo("150000.00");
+        assertThat((BigDecimal) row.get("avg_revenue")).isEqualByComparingTo("75000.00");
+    }
+
+    @Test
+    void monthRowSumsTheDayRows() {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        rollUpDay();
+        rollUpDay(DAY.plusDays(1));
+        LocalDateTime month = DAY.withDayOfMonth(1).atStartOfDay();
+
+        transactionTemplate.executeWithoutResult(status -> {
+            branchReportRepository.rollUpPeriod("MONTH", month, month.plusMonths(1));
+            restaurantReportRepository.rollUpPeriod("MONTH", month, month.plusMonths(1));
+        });
+
+        Map<String, Object> row = getBranchRow("MONTH", DAY.withDayOfMonth(1));
+        assertThat(((Number) row.get("total_order")).intValue()).isEqualTo(5);
+        assertThat(((Number) row.get("completed_order")).intValue()).isEqualTo(3);
+        assertThat((BigDecimal) row.get("total_revenue")).isEqualByComparingTo("1149000.00");
+        assertThat(jdbcTemplate.queryForObject(
+                "SELECT total_revenue FROM restaurant_report WHERE restaurant_id = ? AND report_type = 'MONTH' AND create_date = ?",
+                BigDecimal.class, restaurantId, month)).isEqualByComparingTo("1149000.00");
+    }
+
+    private void rollUpDay() {
+        rollUpDay(DAY);
+    }
+
+    private void rollUpDay(LocalDate day) {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.executeWithoutResult(status -> {
+            branchReportRepository.rollUpDay(day.atStartOfDay(), day.atStartOfDay(VIETNAM_TIMEZONE).toInstant(),
+                    day.plusDays(1).atStartOfDay(VIETNAM_TIMEZONE).toInstant());
+            restaurantReportRepository.rollUpDay(day.atStartOfDay());
+        });
+    }
+
+    private Map<String, Object> getBranchRow(String reportType, LocalDate periodStart) {
+        return jdbcTemplate.queryForMap("SELECT * FROM branch_report WHERE branch_id = ? AND report_type = ? AND create_date = ?",
+                BRANCH_ID, reportType, periodStart.atStartOfDay());
+    }
+
+    // at noon, far from the day boundaries whatever the time zone of the session
+    private void insertOrder(LocalDate day, String status, String totalPrice) {
+        Timestamp createdAt = Timestamp.from(day.atTime(12, 0).atZone(VIETNAM_TIMEZONE).toInstant());
+        jdbcTemplate.update("INSERT INTO orders (order_id, area_table_id, status, total_price, created_at, updated_at) VALUES (?, ?, ?, ?, ?, ?)",
+                UUID.randomUUID(), AREA_TABLE_ID, status, new BigDecimal(totalPrice), createdAt, createdAt);
+    }
+}
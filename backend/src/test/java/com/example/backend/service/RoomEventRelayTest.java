@@ -0,0 +1,121 @@
+package com.example.backend.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import com.example.backend.service.RoomEventLog.RoomEvent;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import redis.embedded.RedisServer;
+
+/**
+ * Two clustered nodes wired like SocketIOConfig against one real redis: a frame sent to a room on node A
+ * must reach the listeners (the socket.io and SSE clients) of node B, and be replayable from node B's log.
+ */
+class RoomEventRelayTest {
+
+    private static final String ROOM = "3f1c6f5e-9a53-4d7e-a2f4-2b7f0c7c0b11";
+
+    private RedisServer redisServer;
+    private Node nodeA;
+    private Node nodeB;
+
+    // the clients connected to one node, as seen by its RoomEventListeners
+    private static final class Node implements RoomEventListener {
+        private final LettuceConnectionFactory connectionFactory;
+        private final RedisMessageListenerContainer container;
+        private final RoomEventLog roomEventLog;
+        private final RoomEventPublisher roomEventPublisher;
+        private final BlockingQueue<List<RoomEvent>> received = new LinkedBlockingQueue<>();
+
+        private Node(int redisPort) {
+            connectionFactory = new LettuceConnectionFactory(new RedisStandaloneConfiguration("localhost", redisPort));
+            connectionFactory.afterPropertiesSet();
+            connectionFactory.start();
+            StringRedisTemplate redisTemplate = new StringRedisTemplate(connectionFactory);
+            roomEventLog = new RoomEventLog(redisTemplate, 100);
+            // the defaults of the application mapper, which ignores unknown properties such as the conflation slot
+            ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+            roomEventPublisher = new RoomEventPublisher(redisTemplate, objectMapper, roomEventLog, List.of(this),
+                    new RealtimeMetrics(new SimpleMeterRegistry()), true);
+            container = new RedisMessageListenerContainer();
+            container.setConnectionFactory(connectionFactory);
+            container.addMessageListener(roomEventPublisher, new ChannelTopic(RoomEventPublisher.CHANNEL));
+            container.afterPropertiesSet();
+            // returns once the channel is subscribed
+            container.start();
+        }
+
+        @Override
+        public void onRoomEvents(String room, List<RoomEvent> events) {
+            if (ROOM.equals(room))
+                received.add(events);
+        }
+
+        private void close() throws Exception {
+            container.stop();
+            container.destroy();
+            connectionFactory.destroy();
+        }
+    }
+
+    @BeforeEach
+    void startNodes() throws IOException {
+        int port;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        redisServer = new RedisServer(port);
+        redisServer.start();
+        nodeA = new Node(port);
+        nodeB = new Node(port);
+    }
+
+    @AfterEach
+    void stopNodes() throws Exception {
+        nodeA.close();
+        nodeB.close();
+        redisServer.stop();
+    }
+
+    @Test
+    void frameSentOnNodeAReachesClientsOfNodeB() throws InterruptedException {
+        List<RoomEvent> sequenced = nodeA.roomEventLog.sequence(ROOM,
+                List.of(new RoomEvent(0L, "update_orderLine", "line-1", Map.of("orderLineStatus", "PREPARING"))));
+
+        nodeA.roomEventPublisher.sendToRoom(ROOM, sequenced);
+
+        List<RoomEvent> relayed = nodeB.received.poll(5, TimeUnit.SECONDS);
+        assertThat(relayed).isNotNull();
+        assertThat(relayed).hasSize(1);
+        assertThat(relayed.get(0).seq()).isEqualTo(1L);
+        assertThat(relayed.get(0).event()).isEqualTo("update_orderLine");
+        assertThat(relayed.get(0).key()).isEqualTo("line-1");
+        assertThat(relayed.get(0).payload()).isEqualTo(Map.of("orderLineStatus", "PREPARING"));
+        // a client reconnecting to node B resumes from its log
+        assertThat(nodeB.roomEventLog.getEventsSince(ROOM, 0L)).hasValueSatisfying(events -> assertThat(events).hasSize(1));
+
+        // node A delivered it once locally and ignores its own message coming back from redis
+        assertThat(nodeA.received.poll(5, TimeUnit.SECONDS)).hasSize(1);
+        assertThat(nodeA.received.poll(500, TimeUnit.MILLISECONDS)).isNull();
+        assertThat(nodeB.received).isEmpty();
+    }
+}
@@ -0,0 +1,80 @@
+package com.example.backend.utils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.math.BigDecimal;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Money must price and sum exactly like the BigDecimal code it replaced at the scale of the price columns,
+ * and fail instead of wrapping around.
+ */
+class MoneyTest {
+
+    @Test
+    void convertsAtTheScaleOfThePriceColumns() {
+        assertThat(Money.of(new BigDecimal("45000")).getMinorUnits()).isEqualTo(4_500_000L);
+        assertThat(Money.of(new BigDecimal("45000")).toBigDecimal()).isEqualTo(new BigDecimal("45000.00"));
+        assertThat(Money.of(new BigDecimal("1.5"))).isEqualTo(Money.of(new BigDecimal("1.50")));
+        assertThat(Money.of(null)).isSameAs(Money.ZERO);
+    }
+
+    @Test
+    void roundsExtraDecimalsHalfUp() {
+        assertThat(Money.of(new BigDecimal("1.005")).toBigDecimal()).isEqualTo(new BigDecimal("1.01"));
+        assertThat(Money.of(new BigDecimal("1.004")).toBigDecimal()).isEqualTo(new BigDecimal("1.00"));
+        assertThat(Money.of(new BigDecimal("-1.005")).toBigDecimal()).isEqualTo(new BigDecimal("-1.01"));
+    }
+
+    @Test
+    void pricesLikeBigDecimal() {
+        Money unitPrice = Money.of(new BigDecimal("45000.00"));
+        Money customization = Money.of(new BigDecimal("5000.00"));
+
+        Money total = unitPrice.times(3).plus(customization.times(3));
+
+        assertThat(total.toBigDecimal()).isEqualByComparingTo(new BigDecimal("45000.00").multiply(BigDecimal.valueOf(3))
+                .add(new BigDecimal("5000.00").multiply(BigDecimal.valueOf(3))));
+        assertThat(total.minus(unitPrice).toBigDecimal()).isEqualTo(new BigDecimal("105000.00"));
+        assertThat(total.negate().signum()).isEqualTo(-1);
+        assertThat(total.minus(total).isZero()).isTrue();
+    }
+
+    @Test
+    void dividesHalfAwayFromZero() {
+        assertThat(Money.ofMinorUnits(10).dividedBy(4)).isEqualTo(Money.ofMinorUnits(3));
+        assertThat(Money.ofMinorUnits(9).dividedBy(4)).isEqualTo(Money.ofMinorUnits(2));
+        assertThat(Money.ofMinorUnits(-10).dividedBy(4)).isEqualTo(Money.ofMinorUnits(-3));
+        assertThat(Money.ofMinorUnits(10).dividedBy(-4)).isEqualTo(Money.ofMinorUnits(-3));
+        assertThat(Money.ofMinorUnits(10).dividedBy(3)).isEqualTo(Money.ofMinorUnits(3));
+        assertThatThrownBy(() -> Money.ofMinorUnits(10).dividedBy(0)).isInstanceOf(ArithmeticException.class);
+    }
+
+    @Test
+    void unitPriceOfZeroUnitsFallsBackToTheListPrice() {
+        Money listPrice = Money.of(new BigDecimal("45000.00"));
+
+        assertThat(Money.ZERO.perUnit(0, () -> listPrice)).isEqualTo(listPrice);
+        assertThat(listPrice.times(3).perUnit(3, () -> Money.ZERO)).isEqualTo(listPrice);
+    }
+
+    @Test
+    void overflowsLoudly() {
+        Money max = Money.ofMinorUnits(Long.MAX_VALUE);
+
+        assertThatThrownBy(() -> max.plus(Money.ofMinorUnits(1))).isInstanceOf(ArithmeticException.class);
+        assertThatThrownBy(() -> max.times(2)).isInstanceOf(ArithmeticException.class);
+        assertThatThrownBy(() -> Money.ofMinorUnits(Long.MIN_VALUE).negate()).isInstanceOf(ArithmeticException.class);
+        assertThatThrownBy(() -> Money.of(new BigDecimal("1e30"))).isInstanceOf(ArithmeticException.class);
+    }
+
+    @Test
+    void comparesByAmount() {
+        assertThat(Money.ofMinorUnits(1).compareTo(Money.ofMinorUnits(2))).isNegative();
+        assertThat(Money.ofMinorUnits(0)).isSameAs(Money.ZERO);
+        assertThat(Money.ofMinorUnits(5).hashCode()).isEqualTo(Money.of(new BigDecimal("0.05")).hashCode());
+        assertThat(Money.ofMinorUnits(-150)).hasToString("-1.50");
+    }
+}
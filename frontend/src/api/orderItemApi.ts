@@ -1,4 +1,5 @@
-import { OrderItemDTO } from "@/dto/orderItem.dto";
+import { OrderItemDTO, UpdateOrderLineItemsRequest } from "@/dto/orderItem.dto";
+import { OrderLineDTO } from "@/dto/orderLine.dto";
 import { axiosClient } from "./axiosClient";
 import { ApiResponse } from "@/dto/apiResponse";
 
@@ -7,6 +8,11 @@ export const updateOrderItem = async (orderItem: OrderItemDTO) => {
     return res.data.result;
 };
 
+export const updateOrderItems = async (request: UpdateOrderLineItemsRequest) => {
+    const res = await axiosClient.put<ApiResponse<OrderLineDTO>>("/order-items/batch", request);
+    return res.data.result;
+};
+
 export const deleteOrderItem = async (orderItemId: string) => {
     const res = await axiosClient.delete<ApiResponse<boolean>>(`/order-items/${orderItemId}`);
     return res.data.result;
@@ -262,9 +262,11 @@ export const ReportsAnalytics = ({ restaurantId }: ReportsAnalyticsProps) => {
                       </div>
                       <div className="flex-1 min-w-0">
                         <p className="font-medium truncate">{item.menuItemName}</p>
-                        <p className="text-sm text-muted-foreground">
-                          {item.quantitySold} {item.quantitySold === 1 ? 'unit sold' : 'units sold'}
-                        </p>
+                        {item.quantitySold !== null && (
+                          <p className="text-sm text-muted-foreground">
+                            {item.quantitySold} {item.quantitySold === 1 ? 'unit sold' : 'units sold'}
+                          </p>
+                        )}
                       </div>
                       <div className="text-right flex-shrink-0">
                         <p className="font-bold">{item.totalRevenue.toLocaleString()} VND</p>
@@ -17,4 +17,10 @@ export interface OrderItemDTO {
     menuItemName: string;
     customizations: OrderItemCustomizationDTO[];
     menuItemId: string;
-}
\ No newline at end of file
+}
+
+export interface UpdateOrderLineItemsRequest {
+    orderLineId: string;
+    orderItems: OrderItemDTO[];
+    deletedOrderItemIds: string[];
+}
@@ -10,7 +10,8 @@ export interface BranchAnalyticsDTO {
 export interface TopSellingItemDTO {
     menuItemId: string;
     menuItemName: string;
-    quantitySold: number;
+    // null for today's items the live ranking only knows the revenue of
+    quantitySold: number | null;
     totalRevenue: number;
 }
 
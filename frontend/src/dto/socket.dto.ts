@@ -0,0 +1,43 @@
+import { OrderStatus } from "./order.dto";
+import { OrderLineStatus } from "./orderLine.dto";
+import { TableStatus } from "./table.dto";
+
+// one event of a "room_events" frame, the server batches the events of a branch room per window
+// seq increases per branch, a reconnecting client sends the last one it applied
+export interface RoomEvent {
+    seq: number;
+    event: string;
+    // state carried by the event (an orderLineId), events with the same key may be conflated
+    key: string | null;
+    payload: any;
+};
+
+export interface RoomSeq {
+    seq: number;
+};
+
+// typed state changes pushed to the branch room
+
+// the latest status of the orderLine, not a transition: the server merges the events of an orderLine
+export interface OrderLineStatusEvent {
+    orderLineId: string;
+    orderLineStatus: OrderLineStatus;
+};
+
+export interface OrderStatusEvent {
+    orderId: string;
+    areaTableId: string;
+    previousStatus: OrderStatus;
+    newStatus: OrderStatus;
+};
+
+export interface TableStatusEvent {
+    areaTableId: string;
+    tag: string;
+    status: TableStatus;
+};
+
+export interface MenuItemAvailabilityEvent {
+    menuItemId: string;
+    available: boolean;
+};
@@ -21,6 +21,14 @@ import { OrderItemDTO } from "@/dto/orderItem.dto";
 import { OrderLineEditDialog } from "@/components/waiter/OrderLineEditDialog";
 import { io, Socket } from "socket.io-client";
 import { useQueryClient } from "@tanstack/react-query";
+import {
+  MenuItemAvailabilityEvent,
+  OrderLineStatusEvent,
+  OrderStatusEvent,
+  RoomEvent,
+  RoomSeq,
+  TableStatusEvent,
+} from "@/dto/socket.dto";
 
 
 const OrdersPage = () => {
@@ -81,25 +89,17 @@ const OrdersPage = () => {
   }, [activeTab, search, pendingQuery.data, preparingQuery.data, completedQuery.data, cancelledQuery.data]);
 
   const SOCKET_URL = import.meta.env.VITE_SOCKET_URL;
+  // "sse" streams from the API port instead, for deployments without the socket.io server
+  const REALTIME_TRANSPORT = import.meta.env.VITE_REALTIME_TRANSPORT;
+  const API_BASE_URL = import.meta.env.VITE_API_BASE_URL || "/api";
   const [socket, setSocket] = useState<Socket | null>(null);
   const queryClient = useQueryClient();
   useEffect(() => {
-    const newSocket = io(SOCKET_URL, {
-      transports: ["websocket"], 
-      query: { branchId },
-    });
-
-    setSocket(newSocket);
-
-    newSocket.on("connect", () => {
-      console.log("Connected to Socket.IO server");
-    });
-
-    newSocket.on("disconnect", () => {
-      console.log("Disconnected from server");
-    });
+    // last branch sequence applied, sent back on reconnect so the server replays only the missed events
+    let lastSeq: number | null = null;
+    const appliedSeqs = new Set<number>();
 
-    newSocket.on("create_orderLine", (newOrderLine: OrderLineDTO) => {
+    const onCreateOrderLine = (newOrderLine: OrderLineDTO) => {
       if (newOrderLine.orderLineStatus !== OrderLineStatus.PENDING) 
         return;
       
@@ -115,7 +115,128 @@ const OrdersPage = () => {
           return oldList;
         return [newOrderLine, ...oldList];
       });
+    };
+
+    const onUpdateOrderLine = (updatedOrderLine: OrderLineDTO) => {
+      const key = ['orderLines', branchId, updatedOrderLine.orderLineStatus];
+
+      queryClient.setQueryData<OrderLineDTO[]>(key, (oldList) =>
+        oldList?.map((o) => (o.orderLineId === updatedOrderLine.orderLineId ? updatedOrderLine : o))
+      );
+    };
+
+    // move the ticket to the list of its status, taking it out of every other list: merged events may skip statuses
+    // reload the target list when the ticket was not loaded
+    const onOrderLineStatus = ({ orderLineId, orderLineStatus }: OrderLineStatusEvent) => {
+      const newKey = ['orderLines', branchId, orderLineStatus];
+      const lists = queryClient.getQueriesData<OrderLineDTO[]>({ queryKey: ['orderLines', branchId] });
+      const moved = lists.flatMap(([, list]) => list ?? []).find((o) => o.orderLineId === orderLineId);
+      lists
+        .filter(([key]) => key[2] !== orderLineStatus)
+        .forEach(([key]) =>
+          queryClient.setQueryData<OrderLineDTO[]>(key, (oldList) => oldList?.filter((o) => o.orderLineId !== orderLineId))
+        );
+
+      if (!moved) {
+        queryClient.invalidateQueries({ queryKey: newKey, refetchType: 'active' });
+        return;
+      }
+      queryClient.setQueryData<OrderLineDTO[]>(newKey, (oldList) =>
+        oldList && !oldList.some((o) => o.orderLineId === orderLineId)
+          ? [{ ...moved, orderLineStatus }, ...oldList]
+          : oldList
+      );
+    };
+
+    const handlers: Record<string, (payload: any) => void> = {
+      create_orderLine: onCreateOrderLine,
+      update_orderLine: onUpdateOrderLine,
+      orderLine_status: onOrderLineStatus,
+      // merged events of an order may skip its intermediate statuses, every status list is reloaded
+      order_status: (_: OrderStatusEvent) => {
+        queryClient.invalidateQueries({ queryKey: ['orders', branchId], refetchType: 'active' });
+      },
+      table_status: (_: TableStatusEvent) => {
+        queryClient.invalidateQueries({ queryKey: ['tables'], refetchType: 'active' });
+      },
+      menuItem_availability: (_: MenuItemAvailabilityEvent) => {
+        queryClient.invalidateQueries({ queryKey: ["branch-menu-items", branchId], refetchType: 'active' });
+      },
+    };
+
+    // the server coalesces the events of a branch into one frame, applied in the order they were emitted
+    // a replayed event may also arrive live, each sequence is applied once
+    const onRoomEvents = (events: RoomEvent[]) => {
+      events.forEach(({ seq, event, payload }) => {
+        if (appliedSeqs.has(seq))
+          return;
+        appliedSeqs.add(seq);
+        if (appliedSeqs.size > 2000)
+          appliedSeqs.delete(appliedSeqs.values().next().value as number);
+        lastSeq = lastSeq === null ? seq : Math.max(lastSeq, seq);
+        handlers[event]?.(payload);
+      });
+    };
+
+    const onRoomSeq = ({ seq }: RoomSeq) => {
+      if (lastSeq === null)
+        lastSeq = seq;
+    };
+
+    // too many events were missed to replay them, reload the lists and continue from the given sequence
+    const onResyncRequired = ({ seq }: RoomSeq) => {
+      lastSeq = seq;
+      appliedSeqs.clear();
+      queryClient.invalidateQueries({ queryKey: ['orderLines', branchId] });
+    };
+
+    // same feed as Server-Sent Events on the API port, the browser resumes with Last-Event-ID by itself
+    if (REALTIME_TRANSPORT === "sse") {
+      const source = new EventSource(`${API_BASE_URL}/realtime/branches/${branchId}`);
+      source.addEventListener("room_events", (e) => onRoomEvents(JSON.parse((e as MessageEvent).data)));
+      source.addEventListener("room_seq", (e) => onRoomSeq(JSON.parse((e as MessageEvent).data)));
+      source.addEventListener("resync_required", (e) => onResyncRequired(JSON.parse((e as MessageEvent).data)));
+      return () => {
+        source.close();
+      };
+    }
+
+    const newSocket = io(SOCKET_URL, {
+      transports: ["websocket"], 
+      // acks: 1 tells the server this page acknowledges room_events frames
+      query: { branchId, acks: 1 },
+    });
+
+    const resumeQuery = () => {
+      newSocket.io.opts.query = lastSeq === null ? { branchId, acks: 1 } : { branchId, acks: 1, lastSeq };
+    };
+    newSocket.io.on("reconnect_attempt", resumeQuery);
+
+    setSocket(newSocket);
+
+    newSocket.on("connect", () => {
+      console.log("Connected to Socket.IO server");
+    });
+
+    newSocket.on("disconnect", (reason) => {
+      console.log("Disconnected from server");
+      // the server drops clients that fall too far behind, they come back with their last sequence
+      if (reason === "io server disconnect") {
+        resumeQuery();
+        setTimeout(() => newSocket.connect(), 1000);
+      }
+    });
+
+    newSocket.on("create_orderLine", onCreateOrderLine);
+    newSocket.on("update_orderLine", onUpdateOrderLine);
+
+    // the acknowledgement lets the server send the next frame, it holds back and conflates events until then
+    newSocket.on("room_events", (events: RoomEvent[], ack?: () => void) => {
+      onRoomEvents(events);
+      ack?.();
     });
+    newSocket.on("room_seq", onRoomSeq);
+    newSocket.on("resync_required", onResyncRequired);
 
     return () => {
       newSocket.disconnect();